@@ -14,6 +14,7 @@ public class ListMessagesRequest {
   private Integer limit;
   private Integer offset;
   private OrderBy orderBy;
+  private String cursor;
 
   public Long roomId() {
     return roomId;
@@ -87,6 +88,15 @@ public ListMessagesRequest orderBy(OrderBy orderBy) {
     return this;
   }
 
+  public String cursor() {
+    return cursor;
+  }
+
+  public ListMessagesRequest cursor(String cursor) {
+    this.cursor = cursor;
+    return this;
+  }
+
   @Override
   public String toString() {
     return new StringJoiner(", ", ListMessagesRequest.class.getSimpleName() + "[", "]")
@@ -98,6 +108,7 @@ public String toString() {
         .add("limit=" + limit)
         .add("offset=" + offset)
         .add("orderBy=" + orderBy)
+        .add("cursor='" + cursor + "'")
         .toString();
   }
 }
@@ -10,6 +10,7 @@ public class ListMessagesResponse {
   private Integer limit;
   private Integer offset;
   private Long totalCount;
+  private String nextCursor;
 
   public List<MessageInfo> messages() {
     return messages;
@@ -47,6 +48,15 @@ public ListMessagesResponse totalCount(Long totalCount) {
     return this;
   }
 
+  public String nextCursor() {
+    return nextCursor;
+  }
+
+  public ListMessagesResponse nextCursor(String nextCursor) {
+    this.nextCursor = nextCursor;
+    return this;
+  }
+
   @Override
   public String toString() {
     return new StringJoiner(", ", ListMessagesResponse.class.getSimpleName() + "[", "]")
@@ -54,6 +64,7 @@ public String toString() {
         .add("limit=" + limit)
         .add("offset=" + offset)
         .add("totalCount=" + totalCount)
+        .add("nextCursor='" + nextCursor + "'")
         .toString();
   }
 }
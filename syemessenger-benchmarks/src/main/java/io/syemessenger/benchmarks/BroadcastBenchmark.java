@@ -0,0 +1,96 @@
+package io.syemessenger.benchmarks;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.syemessenger.JsonMappers;
+import io.syemessenger.SbeMessageCodec;
+import io.syemessenger.SubscriptionRegistry;
+import io.syemessenger.api.ServiceMessage;
+import io.syemessenger.api.message.MessageInfo;
+import io.syemessenger.websocket.OutboundMetrics;
+import io.syemessenger.websocket.OverflowPolicy;
+import io.syemessenger.websocket.SessionContext;
+import io.syemessenger.websocket.SubProtocol;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of delivering one chat message to a room, as room size grows. {@code broadcast} encodes the
+ * push once per message, {@code encodePerSubscriber} encodes it for every subscriber.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class BroadcastBenchmark {
+
+  private static final long ROOM_ID = 1L;
+
+  @Param({"1", "100", "1000", "5000"})
+  private int roomSize;
+
+  @Param({"JSON", "SBE"})
+  private SubProtocol subProtocol;
+
+  private SubscriptionRegistry subscriptionRegistry;
+  private List<SessionContext> sessions;
+  private MessageInfo messageInfo;
+
+  @Setup
+  public void setup() {
+    final var jsonMapper = JsonMappers.jsonMapper();
+    final var sbeMessageCodec = new SbeMessageCodec();
+    final var outboundMetrics = new OutboundMetrics(new SimpleMeterRegistry());
+
+    subscriptionRegistry = new SubscriptionRegistry();
+    sessions = new ArrayList<>(roomSize);
+    for (int i = 0; i < roomSize; i++) {
+      final var sessionContext =
+          new SessionContext(
+              NoopSession.newSession(),
+              jsonMapper,
+              sbeMessageCodec,
+              subProtocol,
+              1024,
+              OverflowPolicy.DROP_OLDEST,
+              outboundMetrics);
+      sessionContext.accountId((long) i);
+      subscriptionRegistry.subscribe(ROOM_ID, sessionContext);
+      sessions.add(sessionContext);
+    }
+
+    messageInfo =
+        new MessageInfo()
+            .id(1L)
+            .roomId(ROOM_ID)
+            .senderId(1L)
+            .message("Hello, this is a typical chat message of moderate length")
+            .timestamp(LocalDateTime.now());
+  }
+
+  @Benchmark
+  public void broadcast() {
+    subscriptionRegistry.onRoomMessage(messageInfo);
+  }
+
+  @Benchmark
+  public void encodePerSubscriber() {
+    for (var sessionContext : sessions) {
+      sessionContext.send(new ServiceMessage().qualifier("messages").data(messageInfo));
+    }
+  }
+}
@@ -0,0 +1,94 @@
+package io.syemessenger.benchmarks;
+
+import io.syemessenger.RequestInvoker;
+import io.syemessenger.api.ServiceMessage;
+import io.syemessenger.websocket.SessionContext;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Request handler dispatch: reflective {@link Method#invoke} against {@link RequestInvoker}.
+ * Several handlers are called in turn so that both call sites see more than one target, like the
+ * real service registry does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DispatchBenchmark {
+
+  private final ServiceMessage message = new ServiceMessage().qualifier("test").data(42L);
+
+  private Object[] targets;
+  private Method[] methods;
+  private RequestInvoker[] invokers;
+
+  @Setup
+  public void setup() throws NoSuchMethodException {
+    targets = new Object[] {new FirstController(), new SecondController(), new ThirdController()};
+    methods = new Method[targets.length];
+    invokers = new RequestInvoker[targets.length];
+    for (int i = 0; i < targets.length; i++) {
+      methods[i] =
+          targets[i]
+              .getClass()
+              .getDeclaredMethod("handle", SessionContext.class, ServiceMessage.class);
+      invokers[i] = RequestInvoker.create(methods[i], targets[i]);
+    }
+  }
+
+  @Benchmark
+  public void reflection() throws Exception {
+    for (int i = 0; i < methods.length; i++) {
+      methods[i].invoke(targets[i], null, message);
+    }
+  }
+
+  @Benchmark
+  public void requestInvoker() {
+    for (var invoker : invokers) {
+      invoker.invoke(null, message);
+    }
+  }
+
+  public static class FirstController {
+
+    private long sum;
+
+    public void handle(SessionContext sessionContext, ServiceMessage message) {
+      sum += (Long) message.data();
+    }
+  }
+
+  public static class SecondController {
+
+    private long sum;
+
+    public void handle(SessionContext sessionContext, ServiceMessage message) {
+      sum ^= (Long) message.data();
+    }
+  }
+
+  public static class ThirdController {
+
+    private long count;
+
+    public void handle(SessionContext sessionContext, ServiceMessage message) {
+      if (message.data() != null) {
+        count++;
+      }
+    }
+  }
+}
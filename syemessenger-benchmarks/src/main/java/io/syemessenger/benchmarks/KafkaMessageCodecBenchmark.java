@@ -0,0 +1,84 @@
+package io.syemessenger.benchmarks;
+
+import io.syemessenger.api.message.MessageInfo;
+import io.syemessenger.kafka.KafkaMessageCodec;
+import io.syemessenger.kafka.dto.BlockMembersEvent;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encode/decode throughput of {@link KafkaMessageCodec}. Run with {@code -prof gc} to see bytes
+ * allocated per operation. Several threads are used on purpose, the codec is shared by request,
+ * outbox and listener threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Threads(4)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class KafkaMessageCodecBenchmark {
+
+  @Param({"32", "500"})
+  private int messageLength;
+
+  @Param({"10", "500"})
+  private int memberCount;
+
+  private MessageInfo messageInfo;
+  private ByteBuffer encodedRoomMessage;
+  private BlockMembersEvent blockMembersEvent;
+  private ByteBuffer encodedBlockMembersEvent;
+
+  @Setup
+  public void setup() {
+    messageInfo =
+        new MessageInfo()
+            .roomId(1L)
+            .senderId(2L)
+            .message("ж".repeat(messageLength))
+            .timestamp(LocalDateTime.now());
+    encodedRoomMessage = KafkaMessageCodec.encodeRoomMessage(messageInfo);
+
+    blockMembersEvent =
+        new BlockMembersEvent()
+            .roomId(1L)
+            .memberIds(LongStream.range(0, memberCount).boxed().toList());
+    encodedBlockMembersEvent = KafkaMessageCodec.encodeBlockMembersEvent(blockMembersEvent);
+  }
+
+  @Benchmark
+  public ByteBuffer encodeRoomMessage() {
+    return KafkaMessageCodec.encodeRoomMessage(messageInfo);
+  }
+
+  @Benchmark
+  public MessageInfo decodeRoomMessage() {
+    return KafkaMessageCodec.decodeRoomMessage(encodedRoomMessage);
+  }
+
+  @Benchmark
+  public ByteBuffer encodeBlockMembersEvent() {
+    return KafkaMessageCodec.encodeBlockMembersEvent(blockMembersEvent);
+  }
+
+  @Benchmark
+  public BlockMembersEvent decodeBlockMembersEvent() {
+    return KafkaMessageCodec.decodeBlockMembersEvent(encodedBlockMembersEvent);
+  }
+}
@@ -0,0 +1,34 @@
+package io.syemessenger.benchmarks;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import org.eclipse.jetty.websocket.api.Callback;
+import org.eclipse.jetty.websocket.api.Session;
+
+/** Jetty session stub which completes every write immediately. */
+public final class NoopSession {
+
+  private NoopSession() {
+    // Do not instantiate
+  }
+
+  public static Session newSession() {
+    return (Session)
+        Proxy.newProxyInstance(
+            Session.class.getClassLoader(), new Class<?>[] {Session.class}, NoopSession::invoke);
+  }
+
+  private static Object invoke(Object proxy, Method method, Object[] args) {
+    return switch (method.getName()) {
+      case "sendText", "sendBinary" -> {
+        ((Callback) args[1]).succeed();
+        yield null;
+      }
+      case "isOpen" -> true;
+      case "hashCode" -> System.identityHashCode(proxy);
+      case "equals" -> proxy == args[0];
+      case "toString" -> "NoopSession@" + System.identityHashCode(proxy);
+      default -> null;
+    };
+  }
+}
@@ -0,0 +1,18 @@
+package io.syemessenger;
+
+/** Background worker run by {@link AgentRunner} in duty cycles. */
+public interface Agent {
+
+  /**
+   * Performs one duty cycle.
+   *
+   * @return amount of work done, 0 if there was nothing to do
+   */
+  int doWork() throws Exception;
+
+  /** Name of the agent, also used as name of its thread. */
+  String roleName();
+
+  /** Invoked on agent thread once runner is stopped. */
+  default void onClose() {}
+}
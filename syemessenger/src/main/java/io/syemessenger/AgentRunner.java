@@ -0,0 +1,77 @@
+package io.syemessenger;
+
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs {@link Agent} on dedicated thread: duty cycles follow each other while they find work, and
+ * {@link IdleStrategy} is applied only when they come back empty. Exception thrown by duty cycle is
+ * logged and treated as cycle without work, so failing agent backs off instead of spinning.
+ */
+public class AgentRunner implements Runnable, AutoCloseable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AgentRunner.class);
+
+  private static final long CLOSE_TIMEOUT = TimeUnit.SECONDS.toMillis(5);
+
+  private final IdleStrategy idleStrategy;
+  private final Agent agent;
+
+  private volatile boolean isRunning = true;
+  private volatile Thread thread;
+
+  public AgentRunner(IdleStrategy idleStrategy, Agent agent) {
+    this.idleStrategy = idleStrategy;
+    this.agent = agent;
+  }
+
+  public static Thread startOnThread(AgentRunner agentRunner) {
+    final var thread = new Thread(agentRunner, agentRunner.agent.roleName());
+    agentRunner.thread = thread;
+    thread.start();
+    return thread;
+  }
+
+  @Override
+  public void run() {
+    thread = Thread.currentThread();
+    try {
+      while (isRunning && !thread.isInterrupted()) {
+        int workCount;
+        try {
+          workCount = agent.doWork();
+        } catch (Exception ex) {
+          LOGGER.error("[{}][doWork] Exception occurred", agent.roleName(), ex);
+          workCount = 0;
+        }
+        idleStrategy.idle(workCount);
+      }
+    } finally {
+      agent.onClose();
+    }
+  }
+
+  public boolean isRunning() {
+    return isRunning;
+  }
+
+  @Override
+  public void close() {
+    isRunning = false;
+    final var thread = this.thread;
+    if (thread == null || thread == Thread.currentThread()) {
+      return;
+    }
+    try {
+      thread.join(CLOSE_TIMEOUT);
+      if (thread.isAlive()) {
+        LOGGER.warn("[{}] Agent did not stop in time, interrupting", agent.roleName());
+        thread.interrupt();
+        thread.join(CLOSE_TIMEOUT);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -3,14 +3,20 @@
 import com.fasterxml.jackson.databind.json.JsonMapper;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import io.syemessenger.api.room.outbox.OutboxNotifyIdleStrategy;
+import io.syemessenger.api.room.outbox.OutboxRoomProcessor;
 import io.syemessenger.websocket.WebSocketServer;
 import io.syemessenger.websocket.WebSocketServlet;
 import jakarta.persistence.EntityManagerFactory;
+import java.util.concurrent.TimeUnit;
 import javax.sql.DataSource;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
 import org.springframework.orm.jpa.vendor.Database;
@@ -24,6 +30,10 @@
 @EnableTransactionManagement
 public class AppConfiguration {
 
+  private static final long BACKOFF_MAX_SPINS = 100;
+  private static final long BACKOFF_MAX_YIELDS = 10;
+  private static final long BACKOFF_MIN_PARK_PERIOD_NS = TimeUnit.MICROSECONDS.toNanos(10);
+
   @Bean
   public WebSocketServer webSocketServer(ServiceConfig config, WebSocketServlet servlet) {
     return WebSocketServer.launch(config.port(), servlet);
@@ -34,6 +44,38 @@ public JsonMapper jsonMapper() {
     return JsonMappers.jsonMapper();
   }
 
+  /**
+   * Idle strategy of {@link OutboxRoomProcessor}, {@code roomOutboxProcessorRunDelay} bounds the
+   * longest idle period.
+   */
+  @Bean
+  public IdleStrategy outboxIdleStrategy(ServiceConfig config) {
+    final long periodMillis = config.roomOutboxProcessorRunDelay();
+    return switch (config.roomOutboxIdleStrategy()) {
+      case NO_OP -> new NoOpIdleStrategy();
+      case BUSY_SPIN -> new BusySpinIdleStrategy();
+      case YIELDING -> new YieldingIdleStrategy();
+      case BACKOFF ->
+          new BackoffIdleStrategy(
+              BACKOFF_MAX_SPINS,
+              BACKOFF_MAX_YIELDS,
+              BACKOFF_MIN_PARK_PERIOD_NS,
+              TimeUnit.MILLISECONDS.toNanos(periodMillis));
+      case SLEEP -> new SleepIdleStrategy(periodMillis);
+      case NOTIFY -> new OutboxNotifyIdleStrategy(config);
+    };
+  }
+
+  @Bean
+  public PrometheusMeterRegistry meterRegistry() {
+    return new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+  }
+
+  @Bean
+  public MetricsServer metricsServer(ServiceConfig config, PrometheusMeterRegistry meterRegistry) {
+    return MetricsServer.launch(config.metricsPort(), meterRegistry);
+  }
+
   @Bean
   public LocalContainerEntityManagerFactoryBean entityManagerFactory(DataSource dataSource) {
     HibernateJpaVendorAdapter vendorAdapter = new HibernateJpaVendorAdapter();
@@ -54,9 +96,15 @@ public DataSource dataSource(ServiceConfig config) {
     hikariConfig.setPassword(config.dbPassword());
     hikariConfig.setConnectionInitSql("CREATE SCHEMA IF NOT EXISTS syemessenger");
     hikariConfig.setSchema("syemessenger");
+    hikariConfig.addDataSourceProperty("reWriteBatchedInserts", "true");
     return new HikariDataSource(hikariConfig);
   }
 
+  @Bean
+  public JdbcTemplate jdbcTemplate(DataSource dataSource) {
+    return new JdbcTemplate(dataSource);
+  }
+
   @Bean
   public PlatformTransactionManager transactionManager(EntityManagerFactory entityManagerFactory) {
     JpaTransactionManager txManager = new JpaTransactionManager();
@@ -0,0 +1,93 @@
+package io.syemessenger;
+
+import java.util.StringJoiner;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Idle strategy which backs off progressively: first it spins for {@code maxSpins} steps, then
+ * yields for {@code maxYields} steps, then parks starting from {@code minParkPeriodNs} and doubling
+ * the period up to {@code maxParkPeriodNs}. Worker stays responsive right after the work and
+ * consumes almost no CPU when there is none for a while.
+ */
+public class BackoffIdleStrategy implements IdleStrategy {
+
+  private static final int NOT_IDLE = 0;
+  private static final int SPINNING = 1;
+  private static final int YIELDING = 2;
+  private static final int PARKING = 3;
+
+  private final long maxSpins;
+  private final long maxYields;
+  private final long minParkPeriodNs;
+  private final long maxParkPeriodNs;
+
+  private int state = NOT_IDLE;
+  private long spins;
+  private long yields;
+  private long parkPeriodNs;
+
+  public BackoffIdleStrategy(
+      long maxSpins, long maxYields, long minParkPeriodNs, long maxParkPeriodNs) {
+    this.maxSpins = maxSpins;
+    this.maxYields = maxYields;
+    this.minParkPeriodNs = minParkPeriodNs;
+    this.maxParkPeriodNs = maxParkPeriodNs;
+    this.parkPeriodNs = minParkPeriodNs;
+  }
+
+  @Override
+  public void idle() {
+    switch (state) {
+      case NOT_IDLE:
+        state = SPINNING;
+        spins++;
+        break;
+      case SPINNING:
+        Thread.onSpinWait();
+        if (++spins > maxSpins) {
+          state = YIELDING;
+          yields = 0;
+        }
+        break;
+      case YIELDING:
+        if (++yields > maxYields) {
+          state = PARKING;
+          parkPeriodNs = minParkPeriodNs;
+        } else {
+          Thread.yield();
+        }
+        break;
+      case PARKING:
+      default:
+        LockSupport.parkNanos(parkPeriodNs);
+        parkPeriodNs = Math.min(parkPeriodNs << 1, maxParkPeriodNs);
+        break;
+    }
+  }
+
+  @Override
+  public void reset() {
+    spins = 0;
+    yields = 0;
+    parkPeriodNs = minParkPeriodNs;
+    state = NOT_IDLE;
+  }
+
+  long parkPeriodNs() {
+    return parkPeriodNs;
+  }
+
+  boolean isParking() {
+    return state == PARKING;
+  }
+
+  @Override
+  public String toString() {
+    return new StringJoiner(", ", BackoffIdleStrategy.class.getSimpleName() + "[", "]")
+        .add("maxSpins=" + maxSpins)
+        .add("maxYields=" + maxYields)
+        .add("minParkPeriodNs=" + minParkPeriodNs)
+        .add("maxParkPeriodNs=" + maxParkPeriodNs)
+        .toString();
+  }
+}
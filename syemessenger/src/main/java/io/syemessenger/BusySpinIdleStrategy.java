@@ -0,0 +1,9 @@
+package io.syemessenger;
+
+public class BusySpinIdleStrategy implements IdleStrategy {
+
+  @Override
+  public void idle() {
+    Thread.onSpinWait();
+  }
+}
@@ -0,0 +1,7 @@
+package io.syemessenger;
+
+public enum DispatchMode {
+  INLINE,
+  PLATFORM,
+  VIRTUAL
+}
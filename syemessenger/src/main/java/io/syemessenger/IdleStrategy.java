@@ -1,8 +1,28 @@
 package io.syemessenger;
 
-import jakarta.inject.Named;
-
+/**
+ * Strategy of background worker (see {@link AgentRunner}) to wait between duty cycles. Worker keeps
+ * going while duty cycles find work, and the strategy backs off only once they come back empty.
+ */
 public interface IdleStrategy {
 
-  void idle(long value);
+  /**
+   * Idles after duty cycle: resets the strategy if any work was done, otherwise takes next idle
+   * step.
+   *
+   * @param workCount amount of work done by the last duty cycle
+   */
+  default void idle(int workCount) {
+    if (workCount > 0) {
+      reset();
+    } else {
+      idle();
+    }
+  }
+
+  /** Takes next idle step. */
+  void idle();
+
+  /** Resets internal state, e.g. back-off progress, once work is found. */
+  default void reset() {}
 }
@@ -0,0 +1,16 @@
+package io.syemessenger;
+
+public enum IdleStrategyType {
+  /** Duty cycles back to back, without any pause. */
+  NO_OP,
+  /** Spins with {@link Thread#onSpinWait()}. */
+  BUSY_SPIN,
+  /** Yields the CPU with {@link Thread#yield()}. */
+  YIELDING,
+  /** Spins, then yields, then parks for exponentially growing period. */
+  BACKOFF,
+  /** Sleeps for fixed period. */
+  SLEEP,
+  /** Waits for PostgreSQL notification or fixed period (room outbox only). */
+  NOTIFY
+}
@@ -3,8 +3,9 @@
 import io.syemessenger.api.ServiceException;
 import io.syemessenger.api.ServiceMessage;
 import io.syemessenger.websocket.SessionContext;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -12,36 +13,57 @@ public class InvocationHandler {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(InvocationHandler.class);
 
-  private final Method method;
-  private final Object target;
+  private final String methodName;
+  private final RequestInvoker requestInvoker;
   private final MessageCodec messageCodec;
 
-  public InvocationHandler(Method method, Object target, MessageCodec messageCodec) {
-    this.method = method;
-    this.target = target;
+  public InvocationHandler(
+      String methodName, RequestInvoker requestInvoker, MessageCodec messageCodec) {
+    this.methodName = methodName;
+    this.requestInvoker = requestInvoker;
     this.messageCodec = messageCodec;
   }
 
-  public void invoke(SessionContext sessionContext, ServiceMessage message) {
+  /**
+   * Invokes request handler and sends its reply.
+   *
+   * @return stage which completes once reply is sent, or {@code null} if reply is already sent
+   */
+  public CompletionStage<?> invoke(SessionContext sessionContext, ServiceMessage message) {
     try {
       ServiceMessage data = message.data(messageCodec.decode(message));
       LOGGER.debug(
           "Invoke controller method: {}, with session context: {} and ServiceMessage: {}",
-          method.getName(),
+          methodName,
           sessionContext,
           data);
-      method.invoke(target, sessionContext, data);
-    } catch (InvocationTargetException e) {
-      final var cause = e.getCause();
-      LOGGER.error("Exception occurred", cause);
-      if (cause instanceof ServiceException ex) {
-        sessionContext.sendError(message.cid(), ex.errorCode(), ex.getMessage());
-      } else {
-        sessionContext.sendError(message.cid(), 500, "Internal service error: " + cause);
+      final var result = requestInvoker.invoke(sessionContext, data);
+      if (result instanceof CompletionStage<?> stage) {
+        return stage.whenComplete((value, th) -> onComplete(sessionContext, data, value, th));
       }
     } catch (Exception ex) {
-      LOGGER.error("Exception occurred", ex);
-      sessionContext.sendError(message.cid(), 500, "Internal service error: " + ex);
+      onError(sessionContext, message.cid(), ex);
+    }
+    return null;
+  }
+
+  private static void onComplete(
+      SessionContext sessionContext, ServiceMessage message, Object value, Throwable th) {
+    if (th != null) {
+      onError(sessionContext, message.cid(), th);
+      return;
+    }
+    sessionContext.send(message.clone().data(value));
+  }
+
+  private static void onError(SessionContext sessionContext, UUID cid, Throwable th) {
+    final var cause =
+        th instanceof CompletionException && th.getCause() != null ? th.getCause() : th;
+    LOGGER.error("Exception occurred", cause);
+    if (cause instanceof ServiceException ex) {
+      sessionContext.sendError(cid, ex.errorCode(), ex.getMessage());
+    } else {
+      sessionContext.sendError(cid, 500, "Internal service error: " + cause);
     }
   }
 }
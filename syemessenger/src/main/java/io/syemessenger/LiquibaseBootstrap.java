@@ -1,5 +1,6 @@
 package io.syemessenger;
 
+import io.syemessenger.api.room.outbox.repository.RoomEventRepository;
 import jakarta.annotation.PostConstruct;
 import jakarta.inject.Named;
 import java.sql.Connection;
@@ -26,6 +27,8 @@ public void init() throws Exception {
               .findCorrectDatabaseImplementation(new JdbcConnection(connection));
       final var liquibase =
           new Liquibase("dbchangelog/dbchangelog.xml", new ClassLoaderResourceAccessor(), database);
+      // Outbox partitioning in schema must match the one in queries
+      liquibase.setChangeLogParameter("outboxPartitions", RoomEventRepository.PARTITIONS);
 
       liquibase.update();
     }
@@ -1,20 +1,115 @@
 package io.syemessenger;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DatabindException;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import io.syemessenger.api.ServiceMessage;
 import jakarta.inject.Named;
+import java.io.IOException;
 import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 @Named
 public class MessageCodec {
 
+  private static final Logger LOGGER = LoggerFactory.getLogger(MessageCodec.class);
+
+  private static final String QUALIFIER_PREFIX = "v1/syemessenger/";
+
   private final JsonMapper jsonMapper;
+  private final ObjectReader cidReader;
+  private final ObjectReader genericReader;
 
   private final Map<String, Class<?>> qualifierMap = new ConcurrentHashMap<>();
+  private final Map<String, ObjectReader> readerMap = new ConcurrentHashMap<>();
 
   public MessageCodec(JsonMapper jsonMapper) {
     this.jsonMapper = jsonMapper;
+    this.cidReader = jsonMapper.readerFor(UUID.class);
+    this.genericReader = jsonMapper.readerFor(Object.class);
+  }
+
+  /**
+   * Decodes text frame in a single pass: {@code data} is bound straight into the type registered
+   * for the qualifier, without going through intermediate {@code Map}. If {@code data} comes before
+   * {@code qualifier} it is buffered as tokens and bound at the end. Frames that cannot be decoded
+   * this way (unprefixed qualifier, {@code data} not matching registered type, etc.) are read as
+   * generic {@link ServiceMessage}, so that errors are reported the same way as before.
+   *
+   * @param text text frame
+   * @return decoded message
+   */
+  public ServiceMessage decode(String text) throws IOException {
+    try (JsonParser parser = jsonMapper.createParser(text)) {
+      final var message = decode(parser);
+      if (message != null) {
+        return message;
+      }
+    } catch (DatabindException e) {
+      LOGGER.debug("Cannot decode message in a single pass, falling back: {}", e.getMessage());
+    }
+    return jsonMapper.readValue(text, ServiceMessage.class);
+  }
+
+  private ServiceMessage decode(JsonParser parser) throws IOException {
+    if (parser.nextToken() != JsonToken.START_OBJECT) {
+      return null;
+    }
+
+    UUID cid = null;
+    String qualifier = null;
+    Object data = null;
+    TokenBuffer pendingData = null;
+
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      final var name = parser.currentName();
+      final var token = parser.nextToken();
+      switch (name) {
+        case "cid" -> cid = cidReader.readValue(parser);
+        case "qualifier" -> {
+          if (token == JsonToken.VALUE_NULL) {
+            qualifier = null;
+          } else if (token == JsonToken.VALUE_STRING) {
+            qualifier = parser.getText();
+          } else {
+            return null;
+          }
+        }
+        case "data" -> {
+          if (qualifier != null) {
+            data = readerFor(qualifier).readValue(parser);
+            pendingData = null;
+          } else {
+            pendingData = new TokenBuffer(parser);
+            pendingData.copyCurrentStructure(parser);
+          }
+        }
+        default -> parser.skipChildren();
+      }
+    }
+
+    if (qualifier != null && !qualifier.startsWith(QUALIFIER_PREFIX)) {
+      return null;
+    }
+
+    if (pendingData != null) {
+      try (JsonParser dataParser = pendingData.asParserOnFirstToken()) {
+        final var reader = qualifier != null ? readerFor(qualifier) : genericReader;
+        data = reader.readValue(dataParser);
+      }
+    }
+
+    final var message = new ServiceMessage().cid(cid).data(data);
+    if (qualifier != null) {
+      message.qualifier(qualifier.substring(QUALIFIER_PREFIX.length()));
+    }
+    return message;
   }
 
   public Object decode(ServiceMessage message) {
@@ -24,10 +119,19 @@ public Object decode(ServiceMessage message) {
     if (type == null) {
       throw new IllegalArgumentException("Cannot find qualifier: " + qualifier);
     }
+    if (data == null || type.isInstance(data)) {
+      return data;
+    }
     return jsonMapper.convertValue(data, type);
   }
 
   public void register(String qualifier, Class<?> dataType) {
     qualifierMap.put(qualifier, dataType);
+    readerMap.put(qualifier, jsonMapper.readerFor(dataType));
+  }
+
+  private ObjectReader readerFor(String qualifier) {
+    final var reader = readerMap.get(qualifier);
+    return reader != null ? reader : genericReader;
   }
 }
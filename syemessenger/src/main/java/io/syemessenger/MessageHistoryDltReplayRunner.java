@@ -0,0 +1,13 @@
+package io.syemessenger;
+
+import io.syemessenger.kafka.MessageHistoryDltReplayer;
+
+public class MessageHistoryDltReplayRunner {
+
+  public static void main(String[] args) {
+    try (final var serviceBootstrap = new ServiceBootstrap(ServiceConfig.fromSystemProperties())) {
+      serviceBootstrap.start();
+      serviceBootstrap.applicationContext().getBean(MessageHistoryDltReplayer.class).replay();
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package io.syemessenger;
+
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.io.Content;
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.NetworkConnector;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Response;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.Callback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Serves meters in Prometheus text format on {@code GET /metrics} of {@code metricsPort}. */
+public class MetricsServer implements AutoCloseable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(MetricsServer.class);
+
+  private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  private final Server server;
+
+  private MetricsServer(Server server) {
+    this.server = server;
+  }
+
+  public static MetricsServer launch(int port, PrometheusMeterRegistry meterRegistry) {
+    Server server = new Server(port);
+
+    try {
+      server.setHandler(new ScrapeHandler(meterRegistry));
+      server.start();
+
+      LOGGER.info("Metrics server started on port {}", localPort(server));
+    } catch (Exception ex) {
+      LOGGER.error("Exception occurred on server start", ex);
+      try {
+        server.stop();
+      } catch (Exception e) {
+        LOGGER.error("Exception occurred on server stop", e);
+      }
+      throw new RuntimeException(ex);
+    }
+
+    return new MetricsServer(server);
+  }
+
+  public int port() {
+    return localPort(server);
+  }
+
+  private static int localPort(Server server) {
+    return ((NetworkConnector) server.getConnectors()[0]).getLocalPort();
+  }
+
+  @Override
+  public void close() {
+    try {
+      server.stop();
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static class ScrapeHandler extends Handler.Abstract {
+
+    private final PrometheusMeterRegistry meterRegistry;
+
+    private ScrapeHandler(PrometheusMeterRegistry meterRegistry) {
+      this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public boolean handle(Request request, Response response, Callback callback) {
+      if (!"GET".equals(request.getMethod())
+          || !"/metrics".equals(Request.getPathInContext(request))) {
+        return false;
+      }
+      response.getHeaders().put(HttpHeader.CONTENT_TYPE, CONTENT_TYPE);
+      Content.Sink.write(response, true, meterRegistry.scrape(), callback);
+      return true;
+    }
+  }
+}
@@ -0,0 +1,9 @@
+package io.syemessenger;
+
+public class NoOpIdleStrategy implements IdleStrategy {
+
+  @Override
+  public void idle() {
+    // No-op
+  }
+}
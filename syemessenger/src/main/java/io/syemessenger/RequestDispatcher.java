@@ -0,0 +1,81 @@
+package io.syemessenger;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Named;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+@Named
+public class RequestDispatcher {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(RequestDispatcher.class);
+
+  private final DispatchMode dispatchMode;
+  private final ExecutorService executorService;
+  private final ExecutorService resumeExecutorService;
+
+  public RequestDispatcher(ServiceConfig serviceConfig) {
+    dispatchMode = serviceConfig.dispatchMode();
+    executorService = newExecutorService(serviceConfig);
+    resumeExecutorService = newResumeExecutorService(serviceConfig);
+    LOGGER.info("Dispatch mode: {}", dispatchMode);
+  }
+
+  private static ExecutorService newExecutorService(ServiceConfig serviceConfig) {
+    return switch (serviceConfig.dispatchMode()) {
+      case INLINE -> null;
+      case PLATFORM ->
+          Executors.newFixedThreadPool(
+              serviceConfig.dispatchPoolSize(),
+              Thread.ofPlatform().name("syemessenger-dispatch-", 0).factory());
+      case VIRTUAL ->
+          Executors.newThreadPerTaskExecutor(
+              Thread.ofVirtual().name("syemessenger-dispatch-", 0).factory());
+    };
+  }
+
+  private static ExecutorService newResumeExecutorService(ServiceConfig serviceConfig) {
+    if (serviceConfig.dispatchMode() != DispatchMode.INLINE) {
+      return null;
+    }
+    return Executors.newFixedThreadPool(
+        serviceConfig.dispatchPoolSize(),
+        Thread.ofPlatform().name("syemessenger-resume-", 0).factory());
+  }
+
+  public SerialExecutor newSessionExecutor() {
+    if (executorService == null) {
+      // Requests run on the I/O thread, and ones queued behind pending reply run on resume pool
+      return new SerialExecutor(Runnable::run, resumeExecutorService);
+    }
+    return new SerialExecutor(executorService);
+  }
+
+  public DispatchMode dispatchMode() {
+    return dispatchMode;
+  }
+
+  @PreDestroy
+  public void close() {
+    shutdown(executorService);
+    shutdown(resumeExecutorService);
+  }
+
+  private static void shutdown(ExecutorService executorService) {
+    if (executorService == null) {
+      return;
+    }
+    executorService.shutdown();
+    try {
+      if (!executorService.awaitTermination(5, TimeUnit.SECONDS)) {
+        executorService.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      executorService.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,71 @@
+package io.syemessenger;
+
+import io.syemessenger.api.ServiceMessage;
+import io.syemessenger.websocket.SessionContext;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+
+/** Direct call site of a {@code @RequestHandler} method, bound to its controller instance. */
+@FunctionalInterface
+public interface RequestInvoker {
+
+  /**
+   * Calls handler method.
+   *
+   * @param sessionContext sessionContext
+   * @param message message
+   * @return value returned by handler method, or {@code null} if method is {@code void}
+   */
+  Object invoke(SessionContext sessionContext, ServiceMessage message);
+
+  /**
+   * Spins a {@link RequestInvoker} implementation which calls given method on given target
+   * directly, without reflection. {@code void} methods are bound to {@link VoidInvoker} first,
+   * since they cannot be adapted to {@code Object} return type by the metafactory.
+   *
+   * @param method handler method
+   * @param target controller instance
+   * @return invoker
+   */
+  static RequestInvoker create(Method method, Object target) {
+    if (method.getReturnType() == void.class) {
+      final var voidInvoker = bind(method, target, VoidInvoker.class, void.class);
+      return (sessionContext, message) -> {
+        voidInvoker.invoke(sessionContext, message);
+        return null;
+      };
+    }
+    return bind(method, target, RequestInvoker.class, Object.class);
+  }
+
+  private static <T> T bind(Method method, Object target, Class<T> type, Class<?> returnType) {
+    final var targetClass = target.getClass();
+    try {
+      final var lookup = MethodHandles.privateLookupIn(targetClass, MethodHandles.lookup());
+      final var methodHandle = lookup.unreflect(method);
+      final var invokedType = MethodType.methodType(type, targetClass);
+      final var samType =
+          MethodType.methodType(returnType, SessionContext.class, ServiceMessage.class);
+      final var callSite =
+          LambdaMetafactory.metafactory(
+              lookup,
+              "invoke",
+              invokedType,
+              samType,
+              methodHandle,
+              methodHandle.type().dropParameterTypes(0, 1));
+      return type.cast(callSite.getTarget().invoke(target));
+    } catch (Throwable th) {
+      throw new IllegalArgumentException("Cannot bind request handler: " + method, th);
+    }
+  }
+
+  /** Call site of {@code void} handler method. */
+  @FunctionalInterface
+  interface VoidInvoker {
+
+    void invoke(SessionContext sessionContext, ServiceMessage message);
+  }
+}
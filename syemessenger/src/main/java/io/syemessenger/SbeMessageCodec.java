@@ -0,0 +1,303 @@
+package io.syemessenger;
+
+import io.syemessenger.api.ErrorData;
+import io.syemessenger.api.OrderBy;
+import io.syemessenger.api.ServiceException;
+import io.syemessenger.api.ServiceMessage;
+import io.syemessenger.api.message.MessageInfo;
+import io.syemessenger.api.messagehistory.ListMessagesRequest;
+import io.syemessenger.api.messagehistory.ListMessagesResponse;
+import io.syemessenger.sbe.Direction;
+import io.syemessenger.sbe.ErrorResponseEncoder;
+import io.syemessenger.sbe.ListMessagesRequestDecoder;
+import io.syemessenger.sbe.ListMessagesResponseEncoder;
+import io.syemessenger.sbe.MessageHeaderDecoder;
+import io.syemessenger.sbe.MessageHeaderEncoder;
+import io.syemessenger.sbe.MessagesPushEncoder;
+import io.syemessenger.sbe.SendRequestDecoder;
+import io.syemessenger.sbe.SendResponseEncoder;
+import io.syemessenger.sbe.SubscribeRequestDecoder;
+import io.syemessenger.sbe.SubscribeResponseEncoder;
+import io.syemessenger.sbe.UuidDecoder;
+import io.syemessenger.sbe.UuidEncoder;
+import jakarta.inject.Named;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.UUID;
+import org.agrona.ExpandableArrayBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+
+/**
+ * Binary (SBE) representation of the hot client qualifiers. Requests are decoded straight into
+ * typed {@link ServiceMessage}s, replies and pushes are encoded from them. Qualifiers without a
+ * binary mapping are reported as unsupported so that callers can fall back to JSON.
+ */
+@Named
+public class SbeMessageCodec {
+
+  public static final String SUBSCRIBE = "v1/syemessenger/subscribe";
+  public static final String SEND = "v1/syemessenger/send";
+  public static final String MESSAGES = "v1/syemessenger/messages";
+  public static final String LIST_MESSAGES = "v1/syemessenger/listMessages";
+  public static final String ERROR = "v1/syemessenger/error";
+
+  private static final ThreadLocal<Flyweights> FLYWEIGHTS =
+      ThreadLocal.withInitial(Flyweights::new);
+
+  public ServiceMessage decode(ByteBuffer byteBuffer) {
+    try {
+      return decode0(byteBuffer);
+    } catch (IndexOutOfBoundsException e) {
+      throw new ServiceException(400, "Wrong message: malformed binary frame");
+    }
+  }
+
+  private static ServiceMessage decode0(ByteBuffer byteBuffer) {
+    final var flyweights = FLYWEIGHTS.get();
+    final var buffer = flyweights.readBuffer;
+    buffer.wrap(byteBuffer);
+
+    final var headerDecoder = flyweights.headerDecoder.wrap(buffer, 0);
+    if (headerDecoder.schemaId() != MessageHeaderDecoder.SCHEMA_ID) {
+      throw new ServiceException(400, "Wrong message: schemaId " + headerDecoder.schemaId());
+    }
+
+    return switch (headerDecoder.templateId()) {
+      case SubscribeRequestDecoder.TEMPLATE_ID -> {
+        final var decoder = flyweights.subscribeRequestDecoder;
+        decoder.wrapAndApplyHeader(buffer, 0, headerDecoder);
+        yield new ServiceMessage()
+            .cid(toUuid(decoder.cid()))
+            .qualifier("subscribe")
+            .data(decoder.roomId());
+      }
+      case SendRequestDecoder.TEMPLATE_ID -> {
+        final var decoder = flyweights.sendRequestDecoder;
+        decoder.wrapAndApplyHeader(buffer, 0, headerDecoder);
+        final var cid = toUuid(decoder.cid());
+        yield new ServiceMessage().cid(cid).qualifier("send").data(decoder.message());
+      }
+      case ListMessagesRequestDecoder.TEMPLATE_ID -> {
+        final var decoder = flyweights.listMessagesRequestDecoder;
+        decoder.wrapAndApplyHeader(buffer, 0, headerDecoder);
+        yield new ServiceMessage()
+            .cid(toUuid(decoder.cid()))
+            .qualifier("listMessages")
+            .data(toListMessagesRequest(decoder));
+      }
+      default ->
+          throw new ServiceException(
+              400, "Wrong message: templateId " + headerDecoder.templateId());
+    };
+  }
+
+  /**
+   * Encodes message into exactly sized buffer.
+   *
+   * @param message message
+   * @return encoded frame, or {@code null} if qualifier (or its data) has no binary mapping
+   */
+  public ByteBuffer encode(ServiceMessage message) {
+    final var qualifier = message.qualifier();
+    final var data = message.data();
+    if (qualifier == null) {
+      return null;
+    }
+
+    final var flyweights = FLYWEIGHTS.get();
+    final var buffer = flyweights.writeBuffer;
+    final var headerEncoder = flyweights.headerEncoder;
+
+    final int length;
+    switch (qualifier) {
+      case ERROR -> {
+        if (!(data instanceof ErrorData errorData)) {
+          return null;
+        }
+        final var encoder = flyweights.errorResponseEncoder;
+        encoder.wrapAndApplyHeader(buffer, 0, headerEncoder);
+        putUuid(encoder.cid(), message.cid());
+        encoder.errorCode(errorData.errorCode());
+        encoder.errorMessage(errorData.errorMessage());
+        length = encoder.encodedLength();
+      }
+      case SUBSCRIBE -> {
+        if (!(data instanceof Long roomId)) {
+          return null;
+        }
+        final var encoder = flyweights.subscribeResponseEncoder;
+        encoder.wrapAndApplyHeader(buffer, 0, headerEncoder);
+        putUuid(encoder.cid(), message.cid());
+        encoder.roomId(roomId);
+        length = encoder.encodedLength();
+      }
+      case SEND -> {
+        if (!(data instanceof Long roomId)) {
+          return null;
+        }
+        final var encoder = flyweights.sendResponseEncoder;
+        encoder.wrapAndApplyHeader(buffer, 0, headerEncoder);
+        putUuid(encoder.cid(), message.cid());
+        encoder.roomId(roomId);
+        length = encoder.encodedLength();
+      }
+      case MESSAGES -> {
+        if (!(data instanceof MessageInfo messageInfo)) {
+          return null;
+        }
+        final var encoder = flyweights.messagesPushEncoder;
+        encoder
+            .wrapAndApplyHeader(buffer, 0, headerEncoder)
+            .id(toNullable(messageInfo.id(), MessagesPushEncoder.idNullValue()))
+            .roomId(messageInfo.roomId())
+            .senderId(messageInfo.senderId())
+            .timestamp(toEpochMilli(messageInfo.timestamp()))
+            .message(messageInfo.message());
+        length = encoder.encodedLength();
+      }
+      case LIST_MESSAGES -> {
+        if (!(data instanceof ListMessagesResponse response)) {
+          return null;
+        }
+        length = encodeListMessagesResponse(flyweights, message.cid(), response);
+      }
+      default -> {
+        return null;
+      }
+    }
+
+    final var totalLength = headerEncoder.encodedLength() + length;
+    return ByteBuffer.wrap(Arrays.copyOf(buffer.byteArray(), totalLength));
+  }
+
+  private static int encodeListMessagesResponse(
+      Flyweights flyweights, UUID cid, ListMessagesResponse response) {
+    final var encoder = flyweights.listMessagesResponseEncoder;
+    encoder.wrapAndApplyHeader(flyweights.writeBuffer, 0, flyweights.headerEncoder);
+    putUuid(encoder.cid(), cid);
+    encoder
+        .pageLimit(toNullable(response.limit(), ListMessagesResponseEncoder.pageLimitNullValue()))
+        .pageOffset(
+            toNullable(response.offset(), ListMessagesResponseEncoder.pageOffsetNullValue()))
+        .totalCount(
+            toNullable(response.totalCount(), ListMessagesResponseEncoder.totalCountNullValue()));
+
+    final var messages = response.messages();
+    final var messagesEncoder = encoder.messagesCount(messages != null ? messages.size() : 0);
+    if (messages != null) {
+      final var idNullValue = ListMessagesResponseEncoder.MessagesEncoder.idNullValue();
+      for (var messageInfo : messages) {
+        messagesEncoder
+            .next()
+            .id(toNullable(messageInfo.id(), idNullValue))
+            .roomId(messageInfo.roomId())
+            .senderId(messageInfo.senderId())
+            .timestamp(toEpochMilli(messageInfo.timestamp()))
+            .message(messageInfo.message());
+      }
+    }
+    encoder.nextCursor(response.nextCursor());
+    return encoder.encodedLength();
+  }
+
+  private static ListMessagesRequest toListMessagesRequest(ListMessagesRequestDecoder decoder) {
+    final var request =
+        new ListMessagesRequest()
+            .roomId(decoder.roomId())
+            .from(toLocalDateTime(decoder.from(), ListMessagesRequestDecoder.fromNullValue()))
+            .to(toLocalDateTime(decoder.to(), ListMessagesRequestDecoder.toNullValue()))
+            .limit(toInteger(decoder.pageLimit(), ListMessagesRequestDecoder.pageLimitNullValue()))
+            .offset(
+                toInteger(decoder.pageOffset(), ListMessagesRequestDecoder.pageOffsetNullValue()));
+
+    final var direction = decoder.orderDirection();
+    final var orderField = emptyToNull(decoder.orderField());
+    if (orderField != null || direction != Direction.NULL_VAL) {
+      request.orderBy(
+          new OrderBy()
+              .field(orderField)
+              .direction(
+                  switch (direction) {
+                    case ASC -> OrderBy.Direction.ASC;
+                    case DESC -> OrderBy.Direction.DESC;
+                    case NULL_VAL -> null;
+                  }));
+    }
+
+    return request
+        .timezone(emptyToNull(decoder.timezone()))
+        .keyword(emptyToNull(decoder.keyword()))
+        .cursor(emptyToNull(decoder.cursor()));
+  }
+
+  private static UUID toUuid(UuidDecoder decoder) {
+    final var mostSigBits = decoder.mostSigBits();
+    final var leastSigBits = decoder.leastSigBits();
+    if (mostSigBits == 0 && leastSigBits == 0) {
+      return null;
+    }
+    return new UUID(mostSigBits, leastSigBits);
+  }
+
+  private static void putUuid(UuidEncoder encoder, UUID uuid) {
+    if (uuid == null) {
+      encoder.mostSigBits(0).leastSigBits(0);
+    } else {
+      encoder
+          .mostSigBits(uuid.getMostSignificantBits())
+          .leastSigBits(uuid.getLeastSignificantBits());
+    }
+  }
+
+  private static long toEpochMilli(LocalDateTime localDateTime) {
+    return localDateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+  }
+
+  private static LocalDateTime toLocalDateTime(long epochMilli, long nullValue) {
+    if (epochMilli == nullValue) {
+      return null;
+    }
+    return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMilli), ZoneOffset.UTC);
+  }
+
+  private static long toNullable(Long value, long nullValue) {
+    return value != null ? value : nullValue;
+  }
+
+  private static int toNullable(Integer value, int nullValue) {
+    return value != null ? value : nullValue;
+  }
+
+  private static Integer toInteger(int value, int nullValue) {
+    return value != nullValue ? value : null;
+  }
+
+  private static String emptyToNull(String value) {
+    return value == null || value.isEmpty() ? null : value;
+  }
+
+  private static class Flyweights {
+
+    private final UnsafeBuffer readBuffer = new UnsafeBuffer(0, 0);
+    private final ExpandableArrayBuffer writeBuffer = new ExpandableArrayBuffer(512);
+
+    private final MessageHeaderDecoder headerDecoder = new MessageHeaderDecoder();
+    private final MessageHeaderEncoder headerEncoder = new MessageHeaderEncoder();
+
+    private final SubscribeRequestDecoder subscribeRequestDecoder = new SubscribeRequestDecoder();
+    private final SendRequestDecoder sendRequestDecoder = new SendRequestDecoder();
+    private final ListMessagesRequestDecoder listMessagesRequestDecoder =
+        new ListMessagesRequestDecoder();
+
+    private final SubscribeResponseEncoder subscribeResponseEncoder =
+        new SubscribeResponseEncoder();
+    private final SendResponseEncoder sendResponseEncoder = new SendResponseEncoder();
+    private final MessagesPushEncoder messagesPushEncoder = new MessagesPushEncoder();
+    private final ListMessagesResponseEncoder listMessagesResponseEncoder =
+        new ListMessagesResponseEncoder();
+    private final ErrorResponseEncoder errorResponseEncoder = new ErrorResponseEncoder();
+  }
+}
@@ -0,0 +1,81 @@
+package io.syemessenger;
+
+import java.util.Queue;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs submitted tasks one at a time, in submission order, on top of the shared delegate. At most
+ * one task of this executor is in the delegate at any moment. Task submitted with {@link
+ * #executeAsync(Supplier)} holds next tasks until its stage completes, without holding a thread of
+ * the delegate, then next tasks are resumed on the resume executor, never on the thread which
+ * completed the stage (Kafka producer thread, timeout scheduler and alike).
+ */
+public class SerialExecutor implements Executor {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SerialExecutor.class);
+
+  private final Executor delegate;
+  private final Executor resumeExecutor;
+  private final Queue<Supplier<? extends CompletionStage<?>>> tasks =
+      new ConcurrentLinkedQueue<>();
+  private final AtomicInteger wip = new AtomicInteger();
+
+  public SerialExecutor(Executor delegate) {
+    this(delegate, delegate);
+  }
+
+  public SerialExecutor(Executor delegate, Executor resumeExecutor) {
+    this.delegate = delegate;
+    this.resumeExecutor = resumeExecutor;
+  }
+
+  @Override
+  public void execute(Runnable task) {
+    executeAsync(
+        () -> {
+          task.run();
+          return null;
+        });
+  }
+
+  /**
+   * Submits task which completes asynchronously: next tasks wait for returned stage (if any).
+   *
+   * @param task task, returns stage or {@code null} if it has completed synchronously
+   */
+  public void executeAsync(Supplier<? extends CompletionStage<?>> task) {
+    tasks.offer(task);
+    if (wip.getAndIncrement() == 0) {
+      delegate.execute(this::drain);
+    }
+  }
+
+  private void drain() {
+    do {
+      final var task = tasks.poll();
+      CompletionStage<?> stage = null;
+      try {
+        stage = task.get();
+      } catch (Throwable th) {
+        LOGGER.error("Exception occurred", th);
+      }
+      if (stage != null && !(stage instanceof Future<?> future && future.isDone())) {
+        stage.whenComplete((value, th) -> resume());
+        return;
+      }
+    } while (wip.decrementAndGet() != 0);
+  }
+
+  private void resume() {
+    if (wip.decrementAndGet() != 0) {
+      resumeExecutor.execute(this::drain);
+    }
+  }
+}
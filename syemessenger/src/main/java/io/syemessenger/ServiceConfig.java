@@ -1,42 +1,135 @@
 package io.syemessenger;
 
+import io.syemessenger.kafka.ProducerProfile;
+import io.syemessenger.websocket.OverflowPolicy;
 import java.util.StringJoiner;
 
 public class ServiceConfig {
 
   private int port = 8080;
+  private int metricsPort = 8081;
   private String dbUrl;
   private String dbUser;
   private String dbPassword;
   private String kafkaBootstrapServers;
   private String kafkaConsumerGroup;
+  private ProducerProfile kafkaProducerProfile = ProducerProfile.LOW_LATENCY;
+  private int kafkaMessagesPartitions = 12;
+  private int kafkaListenerConcurrency = 4;
+  private int kafkaHistoryListenerConcurrency = 2;
+  private int kafkaHistoryMaxRetries = 10;
   private boolean shouldRunRoomOutboxProcessor;
-  private int roomOutboxProcessorRunDelay = 300;
+  private int roomOutboxProcessorRunDelay = 1000;
+  private IdleStrategyType roomOutboxIdleStrategy = IdleStrategyType.NOTIFY;
+  private int roomOutboxCompactionInterval = 1000;
+  private int roomOutboxCompactionBatchSize = 1000;
+  private int messagesPartitionInterval = 3_600_000;
+  private int messagesPartitionsAhead = 3;
+  private int messagesRetentionMonths;
+  private int recentMessagesPerRoom = 100;
+  private int recentMessagesCapacity = 100_000;
+  private int recentMessagesTtl = 1000;
+  private DispatchMode dispatchMode = DispatchMode.VIRTUAL;
+  private int dispatchPoolSize = 64;
+  private int outboundQueueCapacity = 1024;
+  private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST;
 
   public ServiceConfig() {}
 
   public static ServiceConfig fromSystemProperties() {
     final var port = getProperty("port");
+    final var metricsPort = getOptionalProperty("metricsPort");
     final var dbUrl = getProperty("dbUrl");
     final var dbUser = getProperty("dbUser");
     final var dbPassword = getProperty("dbPassword");
     final var kafkaBootstrapServers = getProperty("kafkaBootstrapServers");
     final var kafkaConsumerGroup = getProperty("kafkaConsumerGroup");
+    final var kafkaProducerProfile = getOptionalProperty("kafkaProducerProfile");
+    final var kafkaMessagesPartitions = getOptionalProperty("kafkaMessagesPartitions");
+    final var kafkaListenerConcurrency = getOptionalProperty("kafkaListenerConcurrency");
+    final var kafkaHistoryListenerConcurrency =
+        getOptionalProperty("kafkaHistoryListenerConcurrency");
+    final var kafkaHistoryMaxRetries = getOptionalProperty("kafkaHistoryMaxRetries");
     final var shouldRunRoomOutboxProcessor = getOptionalProperty("shouldRunRoomOutboxProcessor");
     final var roomOutboxProcessorRunDelay = getOptionalProperty("roomOutboxProcessorRunDelay");
+    final var roomOutboxIdleStrategy = getOptionalProperty("roomOutboxIdleStrategy");
+    final var roomOutboxCompactionInterval = getOptionalProperty("roomOutboxCompactionInterval");
+    final var roomOutboxCompactionBatchSize =
+        getOptionalProperty("roomOutboxCompactionBatchSize");
+    final var messagesPartitionInterval = getOptionalProperty("messagesPartitionInterval");
+    final var messagesPartitionsAhead = getOptionalProperty("messagesPartitionsAhead");
+    final var messagesRetentionMonths = getOptionalProperty("messagesRetentionMonths");
+    final var recentMessagesPerRoom = getOptionalProperty("recentMessagesPerRoom");
+    final var recentMessagesCapacity = getOptionalProperty("recentMessagesCapacity");
+    final var recentMessagesTtl = getOptionalProperty("recentMessagesTtl");
+    final var dispatchMode = getOptionalProperty("dispatchMode");
+    final var dispatchPoolSize = getOptionalProperty("dispatchPoolSize");
+    final var outboundQueueCapacity = getOptionalProperty("outboundQueueCapacity");
+    final var overflowPolicy = getOptionalProperty("overflowPolicy");
 
     return new ServiceConfig()
         .port(Integer.parseInt(port))
+        .metricsPort(metricsPort != null ? Integer.parseInt(metricsPort) : 8081)
         .dbUrl(dbUrl)
         .dbUser(dbUser)
         .dbPassword(dbPassword)
         .kafkaBootstrapServers(kafkaBootstrapServers)
         .kafkaConsumerGroup(kafkaConsumerGroup)
+        .kafkaProducerProfile(
+            kafkaProducerProfile != null
+                ? ProducerProfile.valueOf(kafkaProducerProfile.toUpperCase())
+                : ProducerProfile.LOW_LATENCY)
+        .kafkaMessagesPartitions(
+            kafkaMessagesPartitions != null ? Integer.parseInt(kafkaMessagesPartitions) : 12)
+        .kafkaListenerConcurrency(
+            kafkaListenerConcurrency != null ? Integer.parseInt(kafkaListenerConcurrency) : 4)
+        .kafkaHistoryListenerConcurrency(
+            kafkaHistoryListenerConcurrency != null
+                ? Integer.parseInt(kafkaHistoryListenerConcurrency)
+                : 2)
+        .kafkaHistoryMaxRetries(
+            kafkaHistoryMaxRetries != null ? Integer.parseInt(kafkaHistoryMaxRetries) : 10)
         .shouldRunRoomOutboxProcessor(Boolean.parseBoolean(shouldRunRoomOutboxProcessor))
         .roomOutboxProcessorRunDelay(
             roomOutboxProcessorRunDelay != null
                 ? Integer.parseInt(roomOutboxProcessorRunDelay)
-                : 300);
+                : 1000)
+        .roomOutboxIdleStrategy(
+            roomOutboxIdleStrategy != null
+                ? IdleStrategyType.valueOf(roomOutboxIdleStrategy.toUpperCase())
+                : IdleStrategyType.NOTIFY)
+        .roomOutboxCompactionInterval(
+            roomOutboxCompactionInterval != null
+                ? Integer.parseInt(roomOutboxCompactionInterval)
+                : 1000)
+        .roomOutboxCompactionBatchSize(
+            roomOutboxCompactionBatchSize != null
+                ? Integer.parseInt(roomOutboxCompactionBatchSize)
+                : 1000)
+        .messagesPartitionInterval(
+            messagesPartitionInterval != null
+                ? Integer.parseInt(messagesPartitionInterval)
+                : 3_600_000)
+        .messagesPartitionsAhead(
+            messagesPartitionsAhead != null ? Integer.parseInt(messagesPartitionsAhead) : 3)
+        .messagesRetentionMonths(
+            messagesRetentionMonths != null ? Integer.parseInt(messagesRetentionMonths) : 0)
+        .recentMessagesPerRoom(
+            recentMessagesPerRoom != null ? Integer.parseInt(recentMessagesPerRoom) : 100)
+        .recentMessagesCapacity(
+            recentMessagesCapacity != null ? Integer.parseInt(recentMessagesCapacity) : 100_000)
+        .recentMessagesTtl(recentMessagesTtl != null ? Integer.parseInt(recentMessagesTtl) : 1000)
+        .dispatchMode(
+            dispatchMode != null
+                ? DispatchMode.valueOf(dispatchMode.toUpperCase())
+                : DispatchMode.VIRTUAL)
+        .dispatchPoolSize(dispatchPoolSize != null ? Integer.parseInt(dispatchPoolSize) : 64)
+        .outboundQueueCapacity(
+            outboundQueueCapacity != null ? Integer.parseInt(outboundQueueCapacity) : 1024)
+        .overflowPolicy(
+            overflowPolicy != null
+                ? OverflowPolicy.valueOf(overflowPolicy.toUpperCase())
+                : OverflowPolicy.DROP_OLDEST);
   }
 
   public ServiceConfig port(int port) {
@@ -48,6 +141,15 @@ public int port() {
     return port;
   }
 
+  public int metricsPort() {
+    return metricsPort;
+  }
+
+  public ServiceConfig metricsPort(int metricsPort) {
+    this.metricsPort = metricsPort;
+    return this;
+  }
+
   public String dbUrl() {
     return dbUrl;
   }
@@ -93,6 +195,51 @@ public ServiceConfig kafkaConsumerGroup(String kafkaConsumerGroup) {
     return this;
   }
 
+  public ProducerProfile kafkaProducerProfile() {
+    return kafkaProducerProfile;
+  }
+
+  public ServiceConfig kafkaProducerProfile(ProducerProfile kafkaProducerProfile) {
+    this.kafkaProducerProfile = kafkaProducerProfile;
+    return this;
+  }
+
+  public int kafkaMessagesPartitions() {
+    return kafkaMessagesPartitions;
+  }
+
+  public ServiceConfig kafkaMessagesPartitions(int kafkaMessagesPartitions) {
+    this.kafkaMessagesPartitions = kafkaMessagesPartitions;
+    return this;
+  }
+
+  public int kafkaListenerConcurrency() {
+    return kafkaListenerConcurrency;
+  }
+
+  public ServiceConfig kafkaListenerConcurrency(int kafkaListenerConcurrency) {
+    this.kafkaListenerConcurrency = kafkaListenerConcurrency;
+    return this;
+  }
+
+  public int kafkaHistoryListenerConcurrency() {
+    return kafkaHistoryListenerConcurrency;
+  }
+
+  public ServiceConfig kafkaHistoryListenerConcurrency(int kafkaHistoryListenerConcurrency) {
+    this.kafkaHistoryListenerConcurrency = kafkaHistoryListenerConcurrency;
+    return this;
+  }
+
+  public int kafkaHistoryMaxRetries() {
+    return kafkaHistoryMaxRetries;
+  }
+
+  public ServiceConfig kafkaHistoryMaxRetries(int kafkaHistoryMaxRetries) {
+    this.kafkaHistoryMaxRetries = kafkaHistoryMaxRetries;
+    return this;
+  }
+
   public boolean shouldRunRoomOutboxProcessor() {
     return shouldRunRoomOutboxProcessor;
   }
@@ -111,6 +258,123 @@ public ServiceConfig roomOutboxProcessorRunDelay(int roomOutboxProcessorRunDelay
     return this;
   }
 
+  public IdleStrategyType roomOutboxIdleStrategy() {
+    return roomOutboxIdleStrategy;
+  }
+
+  public ServiceConfig roomOutboxIdleStrategy(IdleStrategyType roomOutboxIdleStrategy) {
+    this.roomOutboxIdleStrategy = roomOutboxIdleStrategy;
+    return this;
+  }
+
+  public int roomOutboxCompactionInterval() {
+    return roomOutboxCompactionInterval;
+  }
+
+  public ServiceConfig roomOutboxCompactionInterval(int roomOutboxCompactionInterval) {
+    this.roomOutboxCompactionInterval = roomOutboxCompactionInterval;
+    return this;
+  }
+
+  public int roomOutboxCompactionBatchSize() {
+    return roomOutboxCompactionBatchSize;
+  }
+
+  public ServiceConfig roomOutboxCompactionBatchSize(int roomOutboxCompactionBatchSize) {
+    this.roomOutboxCompactionBatchSize = roomOutboxCompactionBatchSize;
+    return this;
+  }
+
+  public int messagesPartitionInterval() {
+    return messagesPartitionInterval;
+  }
+
+  public ServiceConfig messagesPartitionInterval(int messagesPartitionInterval) {
+    this.messagesPartitionInterval = messagesPartitionInterval;
+    return this;
+  }
+
+  public int messagesPartitionsAhead() {
+    return messagesPartitionsAhead;
+  }
+
+  public ServiceConfig messagesPartitionsAhead(int messagesPartitionsAhead) {
+    this.messagesPartitionsAhead = messagesPartitionsAhead;
+    return this;
+  }
+
+  public int messagesRetentionMonths() {
+    return messagesRetentionMonths;
+  }
+
+  public ServiceConfig messagesRetentionMonths(int messagesRetentionMonths) {
+    this.messagesRetentionMonths = messagesRetentionMonths;
+    return this;
+  }
+
+  public int recentMessagesPerRoom() {
+    return recentMessagesPerRoom;
+  }
+
+  public ServiceConfig recentMessagesPerRoom(int recentMessagesPerRoom) {
+    this.recentMessagesPerRoom = recentMessagesPerRoom;
+    return this;
+  }
+
+  public int recentMessagesCapacity() {
+    return recentMessagesCapacity;
+  }
+
+  public ServiceConfig recentMessagesCapacity(int recentMessagesCapacity) {
+    this.recentMessagesCapacity = recentMessagesCapacity;
+    return this;
+  }
+
+  public int recentMessagesTtl() {
+    return recentMessagesTtl;
+  }
+
+  public ServiceConfig recentMessagesTtl(int recentMessagesTtl) {
+    this.recentMessagesTtl = recentMessagesTtl;
+    return this;
+  }
+
+  public DispatchMode dispatchMode() {
+    return dispatchMode;
+  }
+
+  public ServiceConfig dispatchMode(DispatchMode dispatchMode) {
+    this.dispatchMode = dispatchMode;
+    return this;
+  }
+
+  public int dispatchPoolSize() {
+    return dispatchPoolSize;
+  }
+
+  public ServiceConfig dispatchPoolSize(int dispatchPoolSize) {
+    this.dispatchPoolSize = dispatchPoolSize;
+    return this;
+  }
+
+  public int outboundQueueCapacity() {
+    return outboundQueueCapacity;
+  }
+
+  public ServiceConfig outboundQueueCapacity(int outboundQueueCapacity) {
+    this.outboundQueueCapacity = outboundQueueCapacity;
+    return this;
+  }
+
+  public OverflowPolicy overflowPolicy() {
+    return overflowPolicy;
+  }
+
+  public ServiceConfig overflowPolicy(OverflowPolicy overflowPolicy) {
+    this.overflowPolicy = overflowPolicy;
+    return this;
+  }
+
   private static String getOptionalProperty(String property) {
     return getProperty(property, true);
   }
@@ -131,13 +395,32 @@ private static String getProperty(String property, boolean isOptional) {
   public String toString() {
     return new StringJoiner(", ", ServiceConfig.class.getSimpleName() + "[", "]")
         .add("port=" + port)
+        .add("metricsPort=" + metricsPort)
         .add("dbUrl='" + dbUrl + "'")
         .add("dbUser='" + dbUser + "'")
         .add("dbPassword='" + dbPassword + "'")
         .add("kafkaBootstrapServers='" + kafkaBootstrapServers + "'")
         .add("kafkaConsumerGroup='" + kafkaConsumerGroup + "'")
+        .add("kafkaProducerProfile=" + kafkaProducerProfile)
+        .add("kafkaMessagesPartitions=" + kafkaMessagesPartitions)
+        .add("kafkaListenerConcurrency=" + kafkaListenerConcurrency)
+        .add("kafkaHistoryListenerConcurrency=" + kafkaHistoryListenerConcurrency)
+        .add("kafkaHistoryMaxRetries=" + kafkaHistoryMaxRetries)
         .add("shouldRunRoomOutboxProcessor=" + shouldRunRoomOutboxProcessor)
         .add("roomOutboxProcessorRunDelay=" + roomOutboxProcessorRunDelay)
+        .add("roomOutboxIdleStrategy=" + roomOutboxIdleStrategy)
+        .add("roomOutboxCompactionInterval=" + roomOutboxCompactionInterval)
+        .add("roomOutboxCompactionBatchSize=" + roomOutboxCompactionBatchSize)
+        .add("messagesPartitionInterval=" + messagesPartitionInterval)
+        .add("messagesPartitionsAhead=" + messagesPartitionsAhead)
+        .add("messagesRetentionMonths=" + messagesRetentionMonths)
+        .add("recentMessagesPerRoom=" + recentMessagesPerRoom)
+        .add("recentMessagesCapacity=" + recentMessagesCapacity)
+        .add("recentMessagesTtl=" + recentMessagesTtl)
+        .add("dispatchMode=" + dispatchMode)
+        .add("dispatchPoolSize=" + dispatchPoolSize)
+        .add("outboundQueueCapacity=" + outboundQueueCapacity)
+        .add("overflowPolicy=" + overflowPolicy)
         .toString();
   }
 }
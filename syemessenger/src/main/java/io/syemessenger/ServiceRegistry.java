@@ -2,11 +2,13 @@
 
 import io.syemessenger.annotations.RequestController;
 import io.syemessenger.annotations.RequestHandler;
+import io.syemessenger.api.ServiceMessage;
 import io.syemessenger.websocket.SessionContext;
 import jakarta.annotation.PostConstruct;
 import jakarta.inject.Named;
 import java.lang.reflect.Method;
 import java.util.Map;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentHashMap;
 import org.springframework.context.ApplicationContext;
 
@@ -37,8 +39,11 @@ private void processBean(Object bean) {
       final var annotation = method.getAnnotation(RequestHandler.class);
       if (annotation != null) {
         final var qualifier = annotation.value();
-        handlers.put(qualifier, new InvocationHandler(method, bean, messageCodec));
         registerDataType(qualifier, method, annotation.requestType());
+        handlers.put(
+            qualifier,
+            new InvocationHandler(
+                method.getName(), RequestInvoker.create(method, bean), messageCodec));
       }
     }
   }
@@ -55,6 +60,13 @@ private void registerDataType(String qualifier, Method method, Class<?> requestT
     if (!parameterTypes[0].isAssignableFrom(SessionContext.class)) {
       throw new IllegalArgumentException("Wrong method arguments: " + method.getName());
     }
+    if (!parameterTypes[1].isAssignableFrom(ServiceMessage.class)) {
+      throw new IllegalArgumentException("Wrong method arguments: " + method.getName());
+    }
+    final var returnType = method.getReturnType();
+    if (returnType != void.class && !CompletionStage.class.isAssignableFrom(returnType)) {
+      throw new IllegalArgumentException("Wrong method return type: " + method.getName());
+    }
     messageCodec.register(qualifier, requestType);
   }
 }
@@ -1,17 +1,21 @@
 package io.syemessenger;
 
-import jakarta.inject.Named;
+import java.util.concurrent.locks.LockSupport;
 
-@Named
 public class SleepIdleStrategy implements IdleStrategy {
 
+  private final long sleepPeriodMillis;
+
+  public SleepIdleStrategy(long sleepPeriodMillis) {
+    this.sleepPeriodMillis = sleepPeriodMillis;
+  }
+
+  /**
+   * Sleeps for the period. Interruption ends the sleep early and is left set on the thread, so
+   * {@link AgentRunner} can observe it.
+   */
   @Override
-  public void idle(long value) {
-    try {
-      Thread.sleep(value);
-    } catch (InterruptedException e) {
-      // TODO Oleh: maybe to addition of rethrowing we need to do more with InterruptedException?
-      throw new RuntimeException(e);
-    }
+  public void idle() {
+    LockSupport.parkNanos(sleepPeriodMillis * 1_000_000);
   }
 }
@@ -3,24 +3,42 @@
 import io.syemessenger.api.ServiceException;
 import io.syemessenger.api.ServiceMessage;
 import io.syemessenger.api.message.MessageInfo;
+import io.syemessenger.websocket.BroadcastFrame;
 import io.syemessenger.websocket.SessionContext;
 import jakarta.inject.Named;
 import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import org.agrona.collections.Long2ObjectHashMap;
+import org.agrona.collections.LongArrayList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Room subscriptions of locally connected sessions. Writers are serialized by a lock and publish
+ * immutable per-room subscriber arrays, so {@link #onRoomMessage(MessageInfo)} iterates a stable
+ * snapshot without locking or copying.
+ */
 @Named
 public class SubscriptionRegistry {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(SubscriptionRegistry.class);
 
-  private final Map<Long, List<SessionContext>> registry = new ConcurrentHashMap<>();
+  private static final SessionContext[] EMPTY = new SessionContext[0];
+
+  private final Map<Long, SessionContext[]> registry = new ConcurrentHashMap<>();
   private final Map<SessionContext, Long> sessions = new ConcurrentHashMap<>();
+  private final ReentrantLock lock = new ReentrantLock();
+
+  // Guarded by lock
+  private final Long2ObjectHashMap<SessionContext[]> accountSessions = new Long2ObjectHashMap<>();
+  private final Map<SessionContext, Long> sessionAccounts = new HashMap<>();
 
-  public Map<Long, List<SessionContext>> registry() {
+  public Map<Long, SessionContext[]> registry() {
     return registry;
   }
 
@@ -30,91 +48,91 @@ public Map<SessionContext, Long> sessions() {
 
   public void subscribe(Long roomId, SessionContext sessionContext) {
     LOGGER.debug("Subscribe: session: {} on room: {}", sessionContext, roomId);
-    sessions.compute(
-        sessionContext,
-        (k, currentRoomId) -> {
-          List<SessionContext> list;
-          if (currentRoomId != null) {
-            list = registry.get(currentRoomId);
-            list.remove(sessionContext);
-          } else {
-            list = registry.computeIfAbsent(roomId, l -> new ArrayList<>());
-          }
-          list.add(sessionContext);
-          return roomId;
-        });
+    lock.lock();
+    try {
+      final var currentRoomId = sessions.put(sessionContext, roomId);
+      if (roomId.equals(currentRoomId)) {
+        return;
+      }
+      if (currentRoomId != null) {
+        registry.computeIfPresent(currentRoomId, (k, array) -> remove(array, sessionContext));
+      } else {
+        indexAccount(sessionContext);
+      }
+      registry.put(roomId, add(registry.getOrDefault(roomId, EMPTY), sessionContext));
+    } finally {
+      lock.unlock();
+    }
   }
 
   public Long unsubscribe(SessionContext sessionContext) {
     final var roomId = roomId(sessionContext);
     LOGGER.debug("Unsubscribe: {} from room: {}", sessionContext, roomId);
-    sessions.compute(
-        sessionContext,
-        (k, currentRoomId) -> {
-          if (currentRoomId != null) {
-            registry.get(currentRoomId).remove(sessionContext);
-          }
-          return null;
-        });
+    lock.lock();
+    try {
+      final var currentRoomId = sessions.remove(sessionContext);
+      if (currentRoomId != null) {
+        registry.computeIfPresent(currentRoomId, (k, array) -> remove(array, sessionContext));
+        unindexAccount(sessionContext);
+      }
+    } finally {
+      lock.unlock();
+    }
     return roomId;
   }
 
   public void onRoomMessage(MessageInfo messageInfo) {
-    final var list = registry.get(messageInfo.roomId());
+    final var array = registry.get(messageInfo.roomId());
     LOGGER.debug("Send to subscribers message: {}", messageInfo);
-    if (list != null) {
-      for (var sessionContext : list) {
-        sessionContext.send(new ServiceMessage().qualifier("messages").data(messageInfo));
+    if (array != null && array.length > 0) {
+      final var broadcastFrame =
+          new BroadcastFrame(new ServiceMessage().qualifier("messages").data(messageInfo));
+      for (var sessionContext : array) {
+        sessionContext.sendBroadcast(broadcastFrame);
       }
     }
   }
 
+  public boolean hasSubscribers(long roomId) {
+    final var array = registry.get(roomId);
+    return array != null && array.length > 0;
+  }
+
   public void leaveRoom(Long roomId, Long accountId, Boolean isOwner) {
     LOGGER.debug(
         "Received leaveRoomEvent: roomId: {}, accountId: {}, isOwner: {}",
         roomId,
         accountId,
         isOwner);
-    final var sessionContext = sessionContext(accountId);
-    if (sessionContext == null) {
+    if (!isOwner) {
+      final var accountIds = new LongArrayList();
+      accountIds.addLong(accountId);
+      removeSessions(roomId, accountIds);
       return;
     }
-    if (isOwner) {
-      registry.remove(roomId);
-      sessions.entrySet().removeIf(pair -> roomId.equals(pair.getValue()));
-    } else {
-      unsubscribe(sessionContext);
+    lock.lock();
+    try {
+      final var array = registry.remove(roomId);
+      if (array != null) {
+        for (var sessionContext : array) {
+          if (sessions.remove(sessionContext, roomId)) {
+            unindexAccount(sessionContext);
+          }
+        }
+      }
+    } finally {
+      lock.unlock();
     }
   }
 
-  public void removeMembers(Long roomId, List<Long> memberIds) {
+  public void removeMembers(Long roomId, LongArrayList memberIds) {
     LOGGER.debug("Received removeMembersEvent: roomId: {}, memberIds: {}", roomId, memberIds);
-    registry.computeIfPresent(
-        roomId,
-        (k, list) ->
-            new ArrayList<>(
-                list.stream().filter(e -> !memberIds.contains(e.accountId())).toList()));
-    for (Long memberId : memberIds) {
-      final var sessionContext = sessionContext(memberId);
-      if (sessionContext != null) {
-        sessions.remove(sessionContext, roomId);
-      }
-    }
+    removeSessions(roomId, memberIds);
   }
 
-  public void blockMembers(Long roomId, List<Long> memberIds) {
+  public void blockMembers(Long roomId, LongArrayList memberIds) {
     LOGGER.debug("Received blockMembersEvent: roomId: {}, memberIds: {}", roomId, memberIds);
-    registry.computeIfPresent(
-        roomId,
-        (k, list) ->
-            new ArrayList<>(
-                list.stream().filter(e -> !memberIds.contains(e.accountId())).toList()));
-    for (Long memberId : memberIds) {
-      final var sessionContext = sessionContext(memberId);
-      if (sessionContext != null) {
-        sessions.remove(sessionContext, roomId);
-      }
-    }
+    removeSessions(roomId, memberIds);
   }
 
   public boolean isSubscribed(SessionContext sessionContext) {
@@ -129,10 +147,91 @@ public Long roomId(SessionContext sessionContext) {
     return roomId;
   }
 
-  private SessionContext sessionContext(Long accountId) {
-    return sessions.keySet().stream()
-        .filter(e -> accountId.equals(e.accountId()))
-        .findFirst()
-        .orElse(null);
+  public SessionContext[] accountSessions(long accountId) {
+    lock.lock();
+    try {
+      return accountSessions.getOrDefault(accountId, EMPTY);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void removeSessions(Long roomId, LongArrayList accountIds) {
+    lock.lock();
+    try {
+      final var array = registry.get(roomId);
+      if (array == null) {
+        return;
+      }
+      final var removed = new HashSet<SessionContext>();
+      for (int i = 0; i < accountIds.size(); i++) {
+        final var accountId = accountIds.getLong(i);
+        for (var sessionContext : accountSessions.getOrDefault(accountId, EMPTY)) {
+          if (sessions.remove(sessionContext, roomId)) {
+            removed.add(sessionContext);
+          }
+        }
+      }
+      if (removed.isEmpty()) {
+        return;
+      }
+      for (var sessionContext : removed) {
+        unindexAccount(sessionContext);
+      }
+      final var retained = new ArrayList<SessionContext>(array.length - removed.size());
+      for (var sessionContext : array) {
+        if (!removed.contains(sessionContext)) {
+          retained.add(sessionContext);
+        }
+      }
+      registry.put(roomId, retained.toArray(EMPTY));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void indexAccount(SessionContext sessionContext) {
+    final var accountId = sessionContext.accountId();
+    if (accountId == null) {
+      return;
+    }
+    final long key = accountId;
+    sessionAccounts.put(sessionContext, accountId);
+    accountSessions.put(key, add(accountSessions.getOrDefault(key, EMPTY), sessionContext));
+  }
+
+  private void unindexAccount(SessionContext sessionContext) {
+    final var accountId = sessionAccounts.remove(sessionContext);
+    if (accountId == null) {
+      return;
+    }
+    final long key = accountId;
+    final var array = remove(accountSessions.getOrDefault(key, EMPTY), sessionContext);
+    if (array.length == 0) {
+      accountSessions.remove(key);
+    } else {
+      accountSessions.put(key, array);
+    }
+  }
+
+  private static SessionContext[] add(SessionContext[] array, SessionContext sessionContext) {
+    final var newArray = Arrays.copyOf(array, array.length + 1);
+    newArray[array.length] = sessionContext;
+    return newArray;
+  }
+
+  private static SessionContext[] remove(SessionContext[] array, SessionContext sessionContext) {
+    for (int i = 0; i < array.length; i++) {
+      if (array[i] == sessionContext) {
+        if (array.length == 1) {
+          return EMPTY;
+        }
+        final var newArray = new SessionContext[array.length - 1];
+        System.arraycopy(array, 0, newArray, 0, i);
+        System.arraycopy(array, i + 1, newArray, i, array.length - i - 1);
+        return newArray;
+      }
+    }
+    return array;
   }
 }
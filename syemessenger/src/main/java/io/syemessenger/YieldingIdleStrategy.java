@@ -0,0 +1,9 @@
+package io.syemessenger;
+
+public class YieldingIdleStrategy implements IdleStrategy {
+
+  @Override
+  public void idle() {
+    Thread.yield();
+  }
+}
@@ -6,6 +6,11 @@
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+/**
+ * Marks request handler method: {@code (SessionContext, ServiceMessage)}. Method either returns
+ * {@code void} and replies by itself, or returns {@link java.util.concurrent.CompletionStage}, in
+ * which case the reply (with completion value as data) or error is sent once the stage completes.
+ */
 @Documented
 @Retention(RetentionPolicy.RUNTIME)
 @Target(ElementType.METHOD)
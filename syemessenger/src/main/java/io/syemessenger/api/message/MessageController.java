@@ -6,6 +6,7 @@
 import io.syemessenger.api.ServiceMessage;
 import io.syemessenger.websocket.SessionContext;
 import jakarta.inject.Named;
+import java.util.concurrent.CompletableFuture;
 
 @Named
 @RequestController
@@ -49,7 +50,8 @@ public void unsubscribe(SessionContext sessionContext, ServiceMessage serviceMes
   }
 
   @RequestHandler(value = "v1/syemessenger/send", requestType = String.class)
-  public void send(SessionContext sessionContext, ServiceMessage serviceMessage) {
+  public CompletableFuture<Long> send(
+      SessionContext sessionContext, ServiceMessage serviceMessage) {
     if (!sessionContext.isLoggedIn()) {
       throw new ServiceException(401, "Not authenticated");
     }
@@ -63,8 +65,6 @@ public void send(SessionContext sessionContext, ServiceMessage serviceMessage) {
       throw new ServiceException(400, "Missing or invalid: messageText");
     }
 
-    final var roomId = messageService.send(sessionContext, messageText);
-
-    sessionContext.send(serviceMessage.clone().data(roomId));
+    return messageService.send(sessionContext, messageText);
   }
 }
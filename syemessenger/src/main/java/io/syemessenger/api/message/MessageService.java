@@ -9,6 +9,7 @@
 import io.syemessenger.websocket.SessionContext;
 import java.nio.ByteBuffer;
 import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -64,7 +65,7 @@ public Long unsubscribe(SessionContext sessionContext) {
     return subscriptionRegistry.unsubscribe(sessionContext);
   }
 
-  public Long send(SessionContext sessionContext, String messageText) {
+  public CompletableFuture<Long> send(SessionContext sessionContext, String messageText) {
     LOGGER.debug("Send: {}", messageText);
     final var roomId = subscriptionRegistry.roomId(sessionContext);
 
@@ -80,14 +81,15 @@ public Long send(SessionContext sessionContext, String messageText) {
             .senderId(sessionContext.accountId())
             .timestamp(LocalDateTime.now());
 
-    try {
-      kafkaTemplate
-          .send("messages", roomId, KafkaMessageCodec.encodeRoomMessage(messageInfo))
-          .get(3, TimeUnit.SECONDS);
-    } catch (Exception ex) {
-      throw new RuntimeException("Failed to send message", ex);
-    }
-
-    return roomId;
+    return kafkaTemplate
+        .send("messages", roomId, KafkaMessageCodec.encodeRoomMessage(messageInfo))
+        .orTimeout(3, TimeUnit.SECONDS)
+        .handle(
+            (result, ex) -> {
+              if (ex != null) {
+                throw new RuntimeException("Failed to send message", ex);
+              }
+              return roomId;
+            });
   }
 }
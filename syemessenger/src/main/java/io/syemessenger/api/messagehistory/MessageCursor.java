@@ -0,0 +1,123 @@
+package io.syemessenger.api.messagehistory;
+
+import io.syemessenger.api.OrderBy.Direction;
+import io.syemessenger.api.ServiceException;
+import io.syemessenger.api.messagehistory.repository.HistoryMessage;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.StringJoiner;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Position in room history for keyset pagination: {@code (timestamp, id)} of the last returned
+ * message and direction of scrolling. Clients get it as opaque url-safe string in {@link
+ * ListMessagesResponse#nextCursor()} and pass it back in {@link ListMessagesRequest#cursor()}.
+ */
+public class MessageCursor {
+
+  /** Keyset orders of history, as in {@code (room_id, timestamp, id)} index. */
+  public static final Sort ASC_ORDER = Sort.by(Sort.Direction.ASC, "timestamp", "id");
+
+  public static final Sort DESC_ORDER = Sort.by(Sort.Direction.DESC, "timestamp", "id");
+
+  private static final String SEPARATOR = ":";
+  private static final LocalDateTime EPOCH = LocalDateTime.ofEpochSecond(0, 0, ZoneOffset.UTC);
+
+  private final LocalDateTime timestamp;
+  private final long id;
+  private final Direction direction;
+
+  public MessageCursor(LocalDateTime timestamp, long id, Direction direction) {
+    this.timestamp = timestamp;
+    this.id = id;
+    this.direction = direction;
+  }
+
+  /**
+   * Cursor of the page which follows given one.
+   *
+   * @param messages page of messages (either offset {@link Page}, or keyset {@link Slice})
+   * @return encoded cursor, or {@code null} if there are no more messages, or messages are not in
+   *     keyset order
+   */
+  public static String next(Slice<HistoryMessage> messages) {
+    final Direction direction;
+    if (ASC_ORDER.equals(messages.getSort())) {
+      direction = Direction.ASC;
+    } else if (DESC_ORDER.equals(messages.getSort())) {
+      direction = Direction.DESC;
+    } else {
+      return null;
+    }
+
+    final boolean hasNext;
+    if (messages instanceof Page<HistoryMessage> page) {
+      hasNext =
+          page.getPageable().getOffset() + page.getNumberOfElements() < page.getTotalElements();
+    } else {
+      hasNext = messages.hasNext();
+    }
+    if (!hasNext || messages.isEmpty()) {
+      return null;
+    }
+
+    final var last = messages.getContent().getLast();
+    return new MessageCursor(last.timestamp(), last.id(), direction).encode();
+  }
+
+  public LocalDateTime timestamp() {
+    return timestamp;
+  }
+
+  public long id() {
+    return id;
+  }
+
+  public Direction direction() {
+    return direction;
+  }
+
+  public String encode() {
+    final var epochMicros = ChronoUnit.MICROS.between(EPOCH, timestamp);
+    final var value = direction.name() + SEPARATOR + epochMicros + SEPARATOR + id;
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Decodes cursor string.
+   *
+   * @param cursor cursor string, as returned by {@link #encode()}
+   * @return cursor
+   * @throws ServiceException with 400 code if cursor is malformed
+   */
+  public static MessageCursor decode(String cursor) {
+    try {
+      final var value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+      final var parts = value.split(SEPARATOR);
+      if (parts.length != 3) {
+        throw new IllegalArgumentException("Wrong number of parts: " + parts.length);
+      }
+      final var direction = Direction.valueOf(parts[0]);
+      final var timestamp = EPOCH.plus(Long.parseLong(parts[1]), ChronoUnit.MICROS);
+      return new MessageCursor(timestamp, Long.parseLong(parts[2]), direction);
+    } catch (IllegalArgumentException e) {
+      throw new ServiceException(400, "Missing or invalid: cursor");
+    }
+  }
+
+  @Override
+  public String toString() {
+    return new StringJoiner(", ", MessageCursor.class.getSimpleName() + "[", "]")
+        .add("timestamp=" + timestamp)
+        .add("id=" + id)
+        .add("direction=" + direction)
+        .toString();
+  }
+}
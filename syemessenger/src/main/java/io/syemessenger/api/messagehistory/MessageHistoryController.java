@@ -4,8 +4,10 @@
 import io.syemessenger.annotations.RequestHandler;
 import io.syemessenger.api.ServiceException;
 import io.syemessenger.api.ServiceMessage;
+import io.syemessenger.api.messagehistory.repository.HistoryMessage;
 import io.syemessenger.websocket.SessionContext;
 import jakarta.inject.Named;
+import org.springframework.data.domain.Page;
 
 @Named
 @RequestController
@@ -57,18 +59,31 @@ public void listMessages(SessionContext sessionContext, ServiceMessage message)
     if (keyword != null && (keyword.length() < 3 || keyword.length() > 64)) {
       throw new ServiceException(400, "Missing or invalid: keyword");
     }
+    if (keyword == null && MessageHistoryService.isRelevanceOrder(request.orderBy())) {
+      throw new ServiceException(400, "Missing or invalid: keyword");
+    }
 
-    final var messagePage = messageHistoryService.listMessages(sessionContext, request);
+    final var cursor = request.cursor();
+    if (cursor != null && (offset != null || request.orderBy() != null)) {
+      throw new ServiceException(400, "Missing or invalid: cursor");
+    }
+
+    final var messages = messageHistoryService.listMessages(sessionContext, request);
 
     final var messageInfos =
-        messagePage.getContent().stream().map(MessageMappers::toMessageInfo).toList();
+        messages.getContent().stream().map(MessageMappers::toMessageInfo).toList();
+
+    // Keyset pages (requested with cursor) skip the count
+    final Long totalCount =
+        messages instanceof Page<HistoryMessage> page ? page.getTotalElements() : null;
 
     final var response =
         new ListMessagesResponse()
             .messages(messageInfos)
             .limit(limit)
             .offset(offset)
-            .totalCount(messagePage.getTotalElements());
+            .totalCount(totalCount)
+            .nextCursor(MessageCursor.next(messages));
 
     sessionContext.send(message.clone().data(response));
   }
@@ -3,6 +3,9 @@
 import static io.syemessenger.api.Pageables.toPageable;
 
 import io.syemessenger.LocalDateTimeConverter;
+import io.syemessenger.api.OffsetPageable;
+import io.syemessenger.api.OrderBy;
+import io.syemessenger.api.OrderBy.Direction;
 import io.syemessenger.api.ServiceException;
 import io.syemessenger.api.message.MessageInfo;
 import io.syemessenger.api.messagehistory.repository.HistoryMessage;
@@ -16,43 +19,72 @@
 import java.time.ZoneId;
 import java.time.ZoneOffset;
 import java.time.temporal.ChronoUnit;
+import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class MessageHistoryService {
 
+  /** Order by similarity of message to the keyword, most similar first. */
+  public static final String RELEVANCE = "relevance";
+
   private static final Logger LOGGER = LoggerFactory.getLogger(MessageHistoryService.class);
 
+  private static final String INSERT_MESSAGE =
+      "INSERT INTO messages (sender_id, room_id, message, timestamp) VALUES (?, ?, ?, ?)";
+
+  private static final int DEFAULT_LIMIT = 50;
+
   private final RoomRepository roomRepository;
   private final HistoryMessageRepository historyMessageRepository;
+  private final JdbcTemplate jdbcTemplate;
+  private final RecentMessagesCache recentMessagesCache;
 
   public MessageHistoryService(
-      RoomRepository roomRepository, HistoryMessageRepository historyMessageRepository) {
+      RoomRepository roomRepository,
+      HistoryMessageRepository historyMessageRepository,
+      JdbcTemplate jdbcTemplate,
+      RecentMessagesCache recentMessagesCache) {
     this.roomRepository = roomRepository;
     this.historyMessageRepository = historyMessageRepository;
+    this.jdbcTemplate = jdbcTemplate;
+    this.recentMessagesCache = recentMessagesCache;
   }
 
   @Transactional
-  public void saveMessage(MessageInfo messageInfo) {
-    LOGGER.debug("Save message: {}", messageInfo);
+  public void saveMessages(List<MessageInfo> messages) {
+    LOGGER.debug("Save messages: {}", messages.size());
     final var now = LocalDateTime.now(Clock.systemUTC()).truncatedTo(ChronoUnit.MILLIS);
-    try {
-      historyMessageRepository.save(
-          new HistoryMessage()
-              .roomId(messageInfo.roomId())
-              .senderId(messageInfo.senderId())
-              .message(messageInfo.message())
-              .timestamp(now));
-    } catch (Exception ex) {
-      throw new RuntimeException(ex.getMessage());
-    }
+    jdbcTemplate.batchUpdate(
+        INSERT_MESSAGE,
+        messages,
+        messages.size(),
+        (ps, messageInfo) -> {
+          ps.setLong(1, messageInfo.senderId());
+          ps.setLong(2, messageInfo.roomId());
+          ps.setString(3, messageInfo.message());
+          ps.setObject(4, now);
+        });
   }
 
-  public Page<HistoryMessage> listMessages(
+  /**
+   * Lists room history. Request with {@link ListMessagesRequest#cursor()} gets keyset page which
+   * follows the cursor, without total count. Otherwise it gets offset page with total count, in
+   * keyset order unless other is requested, so it can be continued with {@link
+   * MessageCursor#next(Slice)}. Head pages are served from {@link RecentMessagesCache}.
+   */
+  public Slice<HistoryMessage> listMessages(
       SessionContext sessionContext, ListMessagesRequest request) {
     LOGGER.debug("List: {}", request);
     final var room = roomRepository.findById(request.roomId()).orElse(null);
@@ -66,13 +98,20 @@ public Page<HistoryMessage> listMessages(
       throw new ServiceException(403, "Not a room member");
     }
 
-    final var pageable = toPageable(request.offset(), request.limit(), request.orderBy());
+    final var keysetOrder = keysetOrder(request.orderBy());
+    var pageable = toPageable(request.offset(), request.limit(), request.orderBy());
+    if (keysetOrder != null) {
+      pageable =
+          new OffsetPageable((int) pageable.getOffset(), pageable.getPageSize(), keysetOrder);
+    }
 
-    var keyword = request.keyword();
-    if (keyword == null) {
-      keyword = "";
+    final var recentMessages = recentMessages(request, pageable);
+    if (recentMessages != null) {
+      return recentMessages;
     }
 
+    final var keyword = request.keyword();
+
     final var localDateTimeConverter = new LocalDateTimeConverter();
 
     Timestamp fromTimestamp;
@@ -90,8 +129,118 @@ public Page<HistoryMessage> listMessages(
       toTimestamp = toUTCTimestamp(localDateTimeConverter, request.to(), timezone);
     }
 
-    return historyMessageRepository.findByKeywordAndTimestamp(
-        keyword, fromTimestamp, toTimestamp, pageable);
+    final var roomId = request.roomId();
+
+    if (request.cursor() != null) {
+      final var cursor = MessageCursor.decode(request.cursor());
+      final var limit = request.limit() != null ? request.limit() : DEFAULT_LIMIT;
+      final var timestamp = localDateTimeConverter.convertToDatabaseColumn(cursor.timestamp());
+      final var id = cursor.id();
+      // One extra message tells whether there is a next page
+      final List<HistoryMessage> messages;
+      if (cursor.direction() == Direction.ASC) {
+        messages =
+            keyword == null
+                ? historyMessageRepository.findAfter(
+                    roomId, fromTimestamp, toTimestamp, timestamp, id, limit + 1)
+                : historyMessageRepository.findAfter(
+                    roomId, keyword, fromTimestamp, toTimestamp, timestamp, id, limit + 1);
+      } else {
+        messages =
+            keyword == null
+                ? historyMessageRepository.findBefore(
+                    roomId, fromTimestamp, toTimestamp, timestamp, id, limit + 1)
+                : historyMessageRepository.findBefore(
+                    roomId, keyword, fromTimestamp, toTimestamp, timestamp, id, limit + 1);
+      }
+      final var hasNext = messages.size() > limit;
+      return new SliceImpl<>(
+          hasNext ? messages.subList(0, limit) : messages,
+          PageRequest.of(0, limit, keysetOrder(cursor.direction())),
+          hasNext);
+    }
+
+    if (keyword == null) {
+      return historyMessageRepository.findByRoomIdAndTimestamp(
+          roomId, fromTimestamp, toTimestamp, pageable);
+    }
+
+    if (isRelevanceOrder(request.orderBy())) {
+      return historyMessageRepository.findByRoomIdAndKeywordAndTimestampOrderByRelevance(
+          roomId,
+          keyword,
+          fromTimestamp,
+          toTimestamp,
+          new OffsetPageable((int) pageable.getOffset(), pageable.getPageSize(), Sort.unsorted()));
+    }
+
+    return historyMessageRepository.findByRoomIdAndKeywordAndTimestamp(
+        roomId, keyword, fromTimestamp, toTimestamp, pageable);
+  }
+
+  /**
+   * Returns page of unfiltered history in keyset order if it is within recent messages of the
+   * room: newest messages, or any messages of room which fits in recent messages. Otherwise
+   * returns {@code null}.
+   */
+  private Page<HistoryMessage> recentMessages(ListMessagesRequest request, Pageable pageable) {
+    if (!recentMessagesCache.isEnabled()
+        || request.cursor() != null
+        || request.keyword() != null
+        || request.from() != null
+        || request.to() != null) {
+      return null;
+    }
+
+    final var isDesc = MessageCursor.DESC_ORDER.equals(pageable.getSort());
+    if (!isDesc && !MessageCursor.ASC_ORDER.equals(pageable.getSort())) {
+      return null;
+    }
+
+    final var recent = recentMessagesCache.get(request.roomId(), this::loadRecentMessages);
+    final var messages = recent.getContent();
+    final var isWholeRoom = messages.size() == recent.getTotalElements();
+    final var offset = pageable.getOffset();
+    final var end = offset + pageable.getPageSize();
+    if (!isWholeRoom && (!isDesc || end > messages.size())) {
+      return null;
+    }
+
+    final var ordered = isDesc ? messages : messages.reversed();
+    final var content =
+        ordered.subList(
+            (int) Math.min(offset, ordered.size()), (int) Math.min(end, ordered.size()));
+    return new PageImpl<>(content, pageable, recent.getTotalElements());
+  }
+
+  private Page<HistoryMessage> loadRecentMessages(long roomId) {
+    return historyMessageRepository.findByRoomIdAndTimestamp(
+        roomId,
+        Timestamp.from(Instant.EPOCH),
+        Timestamp.valueOf(LocalDateTime.now(Clock.systemUTC())),
+        new OffsetPageable(0, recentMessagesCache.perRoom(), MessageCursor.DESC_ORDER));
+  }
+
+  static boolean isRelevanceOrder(OrderBy orderBy) {
+    return orderBy != null && RELEVANCE.equals(orderBy.field());
+  }
+
+  /**
+   * Returns keyset order if requested order is the default one: by timestamp, ascending or
+   * descending.
+   */
+  private static Sort keysetOrder(OrderBy orderBy) {
+    if (orderBy == null) {
+      return MessageCursor.ASC_ORDER;
+    }
+    if (orderBy.field() != null && !orderBy.field().equals("timestamp")) {
+      return null;
+    }
+    return keysetOrder(orderBy.direction());
+  }
+
+  private static Sort keysetOrder(Direction direction) {
+    return direction == Direction.DESC ? MessageCursor.DESC_ORDER : MessageCursor.ASC_ORDER;
   }
 
   private static Timestamp toUTCTimestamp(
@@ -0,0 +1,118 @@
+package io.syemessenger.api.messagehistory;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.syemessenger.Agent;
+import io.syemessenger.AgentRunner;
+import io.syemessenger.ServiceConfig;
+import io.syemessenger.SleepIdleStrategy;
+import io.syemessenger.api.messagehistory.repository.HistoryMessageRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.inject.Named;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Maintains monthly partitions of {@code messages}: every {@code messagesPartitionInterval} makes
+ * sure that partitions of the current month and of {@code messagesPartitionsAhead} next months
+ * exist, so new messages never fall into the default partition, and detaches partitions older than
+ * {@code messagesRetentionMonths} (if set), so they are not vacuumed and indexed with live history.
+ * Messages which landed in the default partition are moved to the partition of their month when it
+ * is created. Runs on every node, partition functions serialize concurrent runs.
+ */
+@Named
+public class MessagePartitionManager implements Agent, AutoCloseable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(MessagePartitionManager.class);
+
+  private final ServiceConfig config;
+  private final HistoryMessageRepository historyMessageRepository;
+  private final Counter created;
+  private final Counter detached;
+  private final Counter failed;
+
+  private long deadlineNs;
+  private AgentRunner agentRunner;
+
+  public MessagePartitionManager(
+      ServiceConfig config,
+      HistoryMessageRepository historyMessageRepository,
+      MeterRegistry meterRegistry) {
+    this.config = config;
+    this.historyMessageRepository = historyMessageRepository;
+    deadlineNs = System.nanoTime();
+    created =
+        Counter.builder("messages.partitions.created")
+            .description("Monthly partitions of messages created ahead")
+            .register(meterRegistry);
+    detached =
+        Counter.builder("messages.partitions.detached")
+            .description("Monthly partitions of messages detached after retention period")
+            .register(meterRegistry);
+    failed =
+        Counter.builder("messages.partitions.failed")
+            .description("Monthly partitions of messages which could not be created")
+            .register(meterRegistry);
+  }
+
+  @PostConstruct
+  public void init() {
+    agentRunner =
+        new AgentRunner(new SleepIdleStrategy(config.messagesPartitionInterval()), this);
+    AgentRunner.startOnThread(agentRunner);
+  }
+
+  @Override
+  public int doWork() {
+    final var now = System.nanoTime();
+    if (now - deadlineNs < 0) {
+      return 0;
+    }
+    deadlineNs = now + TimeUnit.MILLISECONDS.toNanos(config.messagesPartitionInterval());
+
+    final var month = LocalDate.now(ZoneOffset.UTC).withDayOfMonth(1);
+    int workCount = 0;
+
+    for (int i = 0; i <= config.messagesPartitionsAhead(); i++) {
+      final var partitionMonth = month.plusMonths(i);
+      try {
+        if (historyMessageRepository.createPartition(partitionMonth)) {
+          LOGGER.info("Created partition of messages for {}", partitionMonth);
+          created.increment();
+          workCount++;
+        }
+      } catch (Exception ex) {
+        // Messages of the month go to the default partition until it is created
+        LOGGER.error("Failed to create partition of messages for {}", partitionMonth, ex);
+        failed.increment();
+      }
+    }
+
+    if (config.messagesRetentionMonths() > 0) {
+      final var before = month.minusMonths(config.messagesRetentionMonths());
+      final var count = historyMessageRepository.detachPartitions(before);
+      if (count > 0) {
+        LOGGER.info("Detached {} partitions of messages before {}", count, before);
+        detached.increment(count);
+        workCount += count;
+      }
+    }
+
+    return workCount;
+  }
+
+  @Override
+  public String roleName() {
+    return "message-partition-manager";
+  }
+
+  @Override
+  public void close() {
+    if (agentRunner != null) {
+      agentRunner.close();
+    }
+  }
+}
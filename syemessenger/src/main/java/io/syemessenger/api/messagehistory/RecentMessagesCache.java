@@ -0,0 +1,170 @@
+package io.syemessenger.api.messagehistory;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.syemessenger.ServiceConfig;
+import io.syemessenger.api.messagehistory.repository.HistoryMessage;
+import jakarta.inject.Named;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
+import org.springframework.data.domain.Page;
+
+/**
+ * Newest messages of recently read rooms, so head pages of history are not read from the database
+ * on every request. Ring of a room is its newest {@code recentMessagesPerRoom} messages with total
+ * count of room messages, as of one query, and concurrent requests for a room wait for the same
+ * query.
+ *
+ * <p>Ring of a room is dropped once history batch with messages of the room is committed (on every
+ * node, see {@code KafkaMessageListener#handleMessageHistory}), and is reloaded once it is older
+ * than {@code recentMessagesTtl}, which bounds staleness when that notification is lost. Once all
+ * rings hold more than {@code recentMessagesCapacity} messages, least recently read rooms are
+ * evicted.
+ */
+@Named
+public class RecentMessagesCache {
+
+  private final int perRoom;
+  private final int capacity;
+  private final long ttlNs;
+  private final Map<Long, Ring> rings = new LinkedHashMap<>(16, 0.75f, true);
+  private final Counter hits;
+  private final Counter loads;
+
+  private int size;
+
+  public RecentMessagesCache(ServiceConfig config, MeterRegistry meterRegistry) {
+    perRoom = config.recentMessagesPerRoom();
+    capacity = config.recentMessagesCapacity();
+    ttlNs = TimeUnit.MILLISECONDS.toNanos(config.recentMessagesTtl());
+    hits =
+        Counter.builder("history.recent.hits")
+            .description("History requests served from recent messages")
+            .register(meterRegistry);
+    loads =
+        Counter.builder("history.recent.loads")
+            .description("Recent messages of a room loaded from database")
+            .register(meterRegistry);
+    Gauge.builder("history.recent.size", this, RecentMessagesCache::size)
+        .description("Messages held in recent messages of all rooms")
+        .register(meterRegistry);
+  }
+
+  public boolean isEnabled() {
+    return perRoom > 0;
+  }
+
+  public int perRoom() {
+    return perRoom;
+  }
+
+  /**
+   * Returns recent messages of the room, loading them if there are none or they are expired.
+   *
+   * @param roomId room id
+   * @param loader loads newest {@link #perRoom()} messages of the room, newest first, with total
+   *     count of room messages
+   * @return newest messages of the room, newest first
+   */
+  public Page<HistoryMessage> get(long roomId, LongFunction<Page<HistoryMessage>> loader) {
+    final var now = System.nanoTime();
+    final Ring ring;
+    final boolean isOwner;
+
+    synchronized (this) {
+      final var existing = rings.get(roomId);
+      if (existing != null && !existing.isExpired(now)) {
+        ring = existing;
+        isOwner = false;
+      } else {
+        if (existing != null) {
+          size -= existing.size;
+        }
+        ring = new Ring(now);
+        rings.put(roomId, ring);
+        isOwner = true;
+      }
+    }
+
+    if (!isOwner) {
+      hits.increment();
+      try {
+        return ring.messages.join();
+      } catch (CompletionException ex) {
+        if (ex.getCause() instanceof RuntimeException cause) {
+          throw cause;
+        }
+        throw ex;
+      }
+    }
+
+    loads.increment();
+    final Page<HistoryMessage> messages;
+    try {
+      messages = loader.apply(roomId);
+    } catch (RuntimeException ex) {
+      synchronized (this) {
+        rings.remove(roomId, ring);
+      }
+      ring.messages.completeExceptionally(ex);
+      throw ex;
+    }
+
+    synchronized (this) {
+      // Ring could be dropped or evicted while loading
+      if (rings.get(roomId) == ring) {
+        ring.size = messages.getNumberOfElements();
+        size += ring.size;
+        evict();
+      }
+    }
+    ring.messages.complete(messages);
+    return messages;
+  }
+
+  /** Drops recent messages of the room, so next request reads them from database. */
+  public synchronized void invalidate(long roomId) {
+    final var ring = rings.remove(roomId);
+    if (ring != null) {
+      size -= ring.size;
+    }
+  }
+
+  /** Drops recent messages of all rooms. */
+  public synchronized void invalidateAll() {
+    rings.clear();
+    size = 0;
+  }
+
+  public synchronized int size() {
+    return size;
+  }
+
+  private void evict() {
+    final var iterator = rings.values().iterator();
+    while (size > capacity && iterator.hasNext()) {
+      size -= iterator.next().size;
+      iterator.remove();
+    }
+  }
+
+  private class Ring {
+
+    private final CompletableFuture<Page<HistoryMessage>> messages = new CompletableFuture<>();
+    private final long createdNs;
+    private int size;
+
+    private Ring(long createdNs) {
+      this.createdNs = createdNs;
+    }
+
+    private boolean isExpired(long now) {
+      return messages.isDone() && now - createdNs > ttlNs;
+    }
+  }
+}
@@ -1,6 +1,8 @@
 package io.syemessenger.api.messagehistory.repository;
 
 import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.List;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.NativeQuery;
@@ -11,16 +13,126 @@
 @Transactional
 public interface HistoryMessageRepository extends CrudRepository<HistoryMessage, Long> {
 
+  /**
+   * History of one room, served from {@code (room_id, timestamp, id)} index: only messages of the
+   * room within time bounds are read, in {@code timestamp, id} order, whatever the table size.
+   * Bounds are on {@code timestamp}, partition key of {@code messages}, so monthly partitions out
+   * of bounds are pruned.
+   */
+  String LIST_MESSAGES =
+      "SELECT * FROM messages m WHERE m.room_id = :roomId AND m.timestamp BETWEEN :from AND :to";
+
+  /**
+   * Keyword filter, served from {@code pg_trgm} GIN index on {@code lower(message)}. It is added
+   * only when there is a keyword: pattern without trigrams ({@code '%%'}) would scan whole index.
+   */
+  String KEYWORD = " AND lower(m.message) LIKE '%' || lower(:keyword) || '%'";
+
+  /**
+   * Keyset conditions. Row comparison alone does not prune partitions, hence plain bound on {@code
+   * timestamp} next to it.
+   */
+  String AFTER =
+      " AND m.timestamp >= :timestamp AND (m.timestamp, m.id) > (:timestamp, :id)"
+          + " ORDER BY m.timestamp, m.id";
+
+  String BEFORE =
+      " AND m.timestamp <= :timestamp AND (m.timestamp, m.id) < (:timestamp, :id)"
+          + " ORDER BY m.timestamp DESC, m.id DESC";
+
+  String LIMIT = " LIMIT :limit";
+
+  /** Most similar messages first, see {@code word_similarity} of {@code pg_trgm}. */
+  String RELEVANCE =
+      " ORDER BY word_similarity(lower(:keyword), lower(m.message)) DESC,"
+          + " m.timestamp DESC, m.id DESC";
+
   @NativeQuery("SELECT * FROM messages")
   Page<HistoryMessage> findAll(Pageable pageable);
 
+  @NativeQuery(LIST_MESSAGES)
+  Page<HistoryMessage> findByRoomIdAndTimestamp(
+      @Param("roomId") Long roomId,
+      @Param("from") Timestamp from,
+      @Param("to") Timestamp to,
+      Pageable pageable);
+
+  @NativeQuery(LIST_MESSAGES + KEYWORD)
+  Page<HistoryMessage> findByRoomIdAndKeywordAndTimestamp(
+      @Param("roomId") Long roomId,
+      @Param("keyword") String keyword,
+      @Param("from") Timestamp from,
+      @Param("to") Timestamp to,
+      Pageable pageable);
+
   @NativeQuery(
-      "SELECT * FROM messages m "
-          + "WHERE lower(m.message) LIKE '%' || lower(:keyword) || '%' "
-          + "AND m.timestamp BETWEEN :from AND :to")
-  Page<HistoryMessage> findByKeywordAndTimestamp(
+      value = LIST_MESSAGES + KEYWORD + RELEVANCE,
+      countQuery =
+          "SELECT count(*) FROM messages m "
+              + "WHERE m.room_id = :roomId AND m.timestamp BETWEEN :from AND :to"
+              + KEYWORD)
+  Page<HistoryMessage> findByRoomIdAndKeywordAndTimestampOrderByRelevance(
+      @Param("roomId") Long roomId,
       @Param("keyword") String keyword,
       @Param("from") Timestamp from,
       @Param("to") Timestamp to,
       Pageable pageable);
+
+  /** Keyset page of room history: messages following {@code (timestamp, id)}, oldest first. */
+  @NativeQuery(LIST_MESSAGES + AFTER + LIMIT)
+  List<HistoryMessage> findAfter(
+      @Param("roomId") Long roomId,
+      @Param("from") Timestamp from,
+      @Param("to") Timestamp to,
+      @Param("timestamp") Timestamp timestamp,
+      @Param("id") long id,
+      @Param("limit") int limit);
+
+  @NativeQuery(LIST_MESSAGES + KEYWORD + AFTER + LIMIT)
+  List<HistoryMessage> findAfter(
+      @Param("roomId") Long roomId,
+      @Param("keyword") String keyword,
+      @Param("from") Timestamp from,
+      @Param("to") Timestamp to,
+      @Param("timestamp") Timestamp timestamp,
+      @Param("id") long id,
+      @Param("limit") int limit);
+
+  /** Keyset page of room history: messages preceding {@code (timestamp, id)}, newest first. */
+  @NativeQuery(LIST_MESSAGES + BEFORE + LIMIT)
+  List<HistoryMessage> findBefore(
+      @Param("roomId") Long roomId,
+      @Param("from") Timestamp from,
+      @Param("to") Timestamp to,
+      @Param("timestamp") Timestamp timestamp,
+      @Param("id") long id,
+      @Param("limit") int limit);
+
+  @NativeQuery(LIST_MESSAGES + KEYWORD + BEFORE + LIMIT)
+  List<HistoryMessage> findBefore(
+      @Param("roomId") Long roomId,
+      @Param("keyword") String keyword,
+      @Param("from") Timestamp from,
+      @Param("to") Timestamp to,
+      @Param("timestamp") Timestamp timestamp,
+      @Param("id") long id,
+      @Param("limit") int limit);
+
+  /**
+   * Creates monthly partition of {@code messages}, see {@code messages-partitioning.xml}.
+   *
+   * @param month any day of the month
+   * @return {@code true} if partition was created, {@code false} if it already exists
+   */
+  @NativeQuery("SELECT create_messages_partition(:month)")
+  boolean createPartition(@Param("month") LocalDate month);
+
+  /**
+   * Detaches monthly partitions of {@code messages} which end not later than given date. Detached
+   * tables are kept, to be archived or dropped by operator.
+   *
+   * @return number of detached partitions
+   */
+  @NativeQuery("SELECT detach_messages_partitions(:before)")
+  int detachPartitions(@Param("before") LocalDate before);
 }
@@ -0,0 +1,129 @@
+package io.syemessenger.api.room.outbox;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.syemessenger.Agent;
+import io.syemessenger.AgentRunner;
+import io.syemessenger.ServiceConfig;
+import io.syemessenger.SleepIdleStrategy;
+import io.syemessenger.api.room.outbox.repository.RoomEventRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.inject.Named;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Deletes published room events from the outbox, so the table does not grow without bound. Runs
+ * next to {@link OutboxRoomProcessor}, at most one compaction per {@code
+ * roomOutboxCompactionInterval}, deleting at most {@code roomOutboxCompactionBatchSize} oldest
+ * events of every partition per compaction, which caps the rate of deletes regardless of the
+ * backlog. Payloads of deleted events are already in Kafka, so they are not archived.
+ *
+ * <p>Each compaction also reports outbox lag: unpublished events, and events held back by a
+ * running transaction older than them (see {@link RoomEventRepository#LIST_EVENTS}), with a warning
+ * once the same oldest event is held for longer than {@link #HELD_WARN_MILLIS}.
+ */
+@Named
+public class OutboxCompactor implements Agent, AutoCloseable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(OutboxCompactor.class);
+
+  private static final long HELD_WARN_MILLIS = 10_000;
+
+  private final ServiceConfig config;
+  private final RoomEventRepository roomEventRepository;
+  private final Counter pruned;
+  private final AtomicLong tableSize = new AtomicLong();
+  private final AtomicLong unpublished = new AtomicLong();
+  private final AtomicLong held = new AtomicLong();
+
+  private long deadlineNs;
+  private long heldXid;
+  private long heldSinceNs;
+  private AgentRunner agentRunner;
+
+  public OutboxCompactor(
+      ServiceConfig config, RoomEventRepository roomEventRepository, MeterRegistry meterRegistry) {
+    this.config = config;
+    this.roomEventRepository = roomEventRepository;
+    deadlineNs = System.nanoTime();
+    pruned =
+        Counter.builder("outbox.compaction.pruned")
+            .description("Published room events deleted from outbox")
+            .register(meterRegistry);
+    Gauge.builder("outbox.table.size", tableSize, AtomicLong::get)
+        .description("Size of outbox table in bytes, as of the last compaction")
+        .baseUnit("bytes")
+        .register(meterRegistry);
+    Gauge.builder("outbox.events.unpublished", unpublished, AtomicLong::get)
+        .description("Room events not published yet, as of the last compaction")
+        .register(meterRegistry);
+    Gauge.builder("outbox.events.held", held, AtomicLong::get)
+        .description("Committed room events held back by an older running transaction")
+        .register(meterRegistry);
+  }
+
+  @PostConstruct
+  public void init() {
+    if (config.shouldRunRoomOutboxProcessor()) {
+      agentRunner =
+          new AgentRunner(new SleepIdleStrategy(config.roomOutboxCompactionInterval()), this);
+      AgentRunner.startOnThread(agentRunner);
+    }
+  }
+
+  @Override
+  public int doWork() {
+    final var now = System.nanoTime();
+    if (now - deadlineNs < 0) {
+      return 0;
+    }
+    deadlineNs = now + TimeUnit.MILLISECONDS.toNanos(config.roomOutboxCompactionInterval());
+
+    int workCount = 0;
+    for (int partition = 0; partition < RoomEventRepository.PARTITIONS; partition++) {
+      workCount +=
+          roomEventRepository.deletePublishedEvents(
+              partition, config.roomOutboxCompactionBatchSize());
+    }
+    pruned.increment(workCount);
+    tableSize.set(roomEventRepository.tableSize());
+    unpublished.set(roomEventRepository.countUnpublishedEvents());
+    held.set(roomEventRepository.countHeldEvents());
+    checkHeldEvents(now, roomEventRepository.oldestHeldXid());
+    return workCount;
+  }
+
+  private void checkHeldEvents(long now, Long oldestHeldXid) {
+    if (oldestHeldXid == null || oldestHeldXid != heldXid) {
+      // Events of short concurrent transactions are held only briefly, each by another xmin
+      heldXid = oldestHeldXid != null ? oldestHeldXid : 0;
+      heldSinceNs = now;
+      return;
+    }
+    final var heldMillis = TimeUnit.NANOSECONDS.toMillis(now - heldSinceNs);
+    if (heldMillis >= HELD_WARN_MILLIS) {
+      LOGGER.warn(
+          "[{}] {} room events are held for {} ms by a long-running transaction "
+              + "(see xact_start in pg_stat_activity), they are published once it ends",
+          roleName(),
+          held.get(),
+          heldMillis);
+    }
+  }
+
+  @Override
+  public String roleName() {
+    return "outbox-compactor";
+  }
+
+  @Override
+  public void close() {
+    if (agentRunner != null) {
+      agentRunner.close();
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package io.syemessenger.api.room.outbox;
+
+import io.syemessenger.IdleStrategy;
+import io.syemessenger.ServiceConfig;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Idle strategy of {@link OutboxRoomProcessor} which returns as soon as new room events are
+ * committed. Inserts into {@code outbox_room_events} raise {@code NOTIFY outbox_room_events} (see
+ * {@code outbox-notify.xml}), and the strategy waits for it on dedicated {@code LISTEN} connection
+ * for at most {@code roomOutboxProcessorRunDelay}, so periodic polling remains only as a safety
+ * net. Notifications arrived while processor was busy are kept by the connection and end the next
+ * idle immediately. If connection is lost, strategy falls back to plain sleep and reconnects on the
+ * next idle.
+ */
+public class OutboxNotifyIdleStrategy implements IdleStrategy, AutoCloseable {
+
+  public static final String CHANNEL = "outbox_room_events";
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(OutboxNotifyIdleStrategy.class);
+
+  private final ServiceConfig config;
+
+  private volatile Connection connection;
+
+  public OutboxNotifyIdleStrategy(ServiceConfig config) {
+    this.config = config;
+  }
+
+  @Override
+  public void idle() {
+    final long periodMillis = config.roomOutboxProcessorRunDelay();
+    if (periodMillis <= 0) {
+      return;
+    }
+
+    try {
+      var connection = this.connection;
+      if (connection == null) {
+        connection = listen();
+        this.connection = connection;
+      }
+      connection.unwrap(PGConnection.class).getNotifications((int) periodMillis);
+    } catch (SQLException ex) {
+      LOGGER.warn("[idle] Failed to wait for notifications, falling back to sleep", ex);
+      close();
+      LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(periodMillis));
+    }
+  }
+
+  private Connection listen() throws SQLException {
+    final var connection =
+        DriverManager.getConnection(config.dbUrl(), config.dbUser(), config.dbPassword());
+    try (final var statement = connection.createStatement()) {
+      statement.execute("LISTEN " + CHANNEL);
+    } catch (SQLException ex) {
+      connection.close();
+      throw ex;
+    }
+    return connection;
+  }
+
+  @Override
+  public void close() {
+    final var connection = this.connection;
+    this.connection = null;
+    if (connection != null) {
+      try {
+        connection.close();
+      } catch (SQLException ex) {
+        LOGGER.warn("[close] Failed to close connection", ex);
+      }
+    }
+  }
+}
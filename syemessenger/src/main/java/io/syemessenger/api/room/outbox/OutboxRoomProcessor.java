@@ -1,96 +1,170 @@
 package io.syemessenger.api.room.outbox;
 
+import io.syemessenger.Agent;
+import io.syemessenger.AgentRunner;
 import io.syemessenger.IdleStrategy;
 import io.syemessenger.ServiceConfig;
+import io.syemessenger.api.room.outbox.repository.OutboxPositionRepository;
 import io.syemessenger.api.room.outbox.repository.OutboxRoomEvent;
 import io.syemessenger.api.room.outbox.repository.RoomEventRepository;
+import io.syemessenger.kafka.KafkaConfiguration;
 import jakarta.annotation.PostConstruct;
 import jakarta.inject.Named;
 import java.nio.ByteBuffer;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+/**
+ * Publishes room events from the outbox to Kafka. Outbox is split into {@link
+ * RoomEventRepository#PARTITIONS} partitions by room id, and processors of all nodes visit every
+ * partition on each duty cycle. Partition is claimed and leased in a short transaction (see {@link
+ * OutboxPositionRepository}), events are sent outside of it, and position is saved in another
+ * short transaction. Partition taken by another node is skipped, so any number of nodes can run the
+ * processor, and events of one room are still published by one processor at a time, in order.
+ * Lease of a crashed node expires after {@link #LEASE_MILLIS}, and sends of a batch start only in
+ * the first third of it, so the batch is acknowledged before the lease expires even if every send
+ * blocks for {@link KafkaConfiguration#MAX_BLOCK_MILLIS}.
+ */
 @Named
-public class OutboxRoomProcessor implements AutoCloseable {
+public class OutboxRoomProcessor implements Agent, AutoCloseable {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(OutboxRoomProcessor.class);
 
+  private static final long SEND_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+  // Send blocks for metadata or buffer space, then waits for acknowledgement
+  private static final long SEND_MILLIS = KafkaConfiguration.MAX_BLOCK_MILLIS + SEND_TIMEOUT_MILLIS;
+  private static final long LEASE_MILLIS = SEND_MILLIS * 3;
+
   private final ServiceConfig config;
-  private final IdleStrategy sleepStrategy;
+  private final IdleStrategy idleStrategy;
   private final RoomEventRepository roomEventRepository;
+  private final OutboxPositionRepository outboxPositionRepository;
   private final KafkaTemplate<Long, ByteBuffer> kafkaTemplate;
+  private final TransactionTemplate transactionTemplate;
 
-  private ExecutorService executorService;
-  private boolean isStopped;
+  private AgentRunner agentRunner;
 
   public OutboxRoomProcessor(
       ServiceConfig config,
-      IdleStrategy sleepStrategy,
+      @Named("outboxIdleStrategy") IdleStrategy idleStrategy,
       RoomEventRepository roomEventRepository,
-      KafkaTemplate<Long, ByteBuffer> kafkaTemplate) {
+      OutboxPositionRepository outboxPositionRepository,
+      KafkaTemplate<Long, ByteBuffer> kafkaTemplate,
+      PlatformTransactionManager transactionManager) {
     this.config = config;
-    this.sleepStrategy = sleepStrategy;
+    this.idleStrategy = idleStrategy;
     this.roomEventRepository = roomEventRepository;
+    this.outboxPositionRepository = outboxPositionRepository;
     this.kafkaTemplate = kafkaTemplate;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
   }
 
   @PostConstruct
   public void init() {
     if (config.shouldRunRoomOutboxProcessor()) {
-      executorService = Executors.newSingleThreadExecutor();
-      executorService.execute(this::run);
+      agentRunner = new AgentRunner(idleStrategy, this);
+      AgentRunner.startOnThread(agentRunner);
     }
   }
 
-  void doWork() {
-    long delay;
-    try {
-      handleEvents();
-      delay = config.roomOutboxProcessorRunDelay();
-    } catch (Exception ex) {
-      LOGGER.error("[doWork] Exception occurred", ex);
-      delay = config.roomOutboxProcessorRunDelay() * 10L;
+  @Override
+  public int doWork() {
+    int workCount = 0;
+    for (int partition = 0; partition < RoomEventRepository.PARTITIONS; partition++) {
+      workCount += handleEvents(partition);
     }
-    sleepStrategy.idle(delay);
+    return workCount;
   }
 
-  private void run() {
-    while (!isStopped) {
-      doWork();
-    }
+  @Override
+  public String roleName() {
+    return "outbox-room-processor";
   }
 
-  private void handleEvents() {
-    Long position = roomEventRepository.getPosition();
-    if (position == null) {
-      position = 0L;
+  /**
+   * Publishes next batch of events of the partition, see {@link RoomEventRepository#LIST_EVENTS}.
+   * All events of the batch are sent at once, and position is advanced to the last of them only
+   * after every send is acknowledged. If any send fails, position stays and the whole batch is
+   * published again on the next run (at-least-once). Once the lease runs low, rest of the batch is
+   * left for the next run.
+   *
+   * @return number of published events
+   */
+  private int handleEvents(int partition) {
+    final var leaseId = ThreadLocalRandom.current().nextLong();
+    // Taken before the lease, so it is never later than the lease start
+    final var sendDeadlineNs =
+        System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(LEASE_MILLIS - SEND_MILLIS * 2);
+    final var events = transactionTemplate.execute(status -> claimEvents(partition, leaseId));
+    if (events.isEmpty()) {
+      return 0;
+    }
+
+    final var futures = new CompletableFuture<?>[events.size()];
+    int count = 0;
+    try {
+      for (; count < futures.length; count++) {
+        if (count > 0 && System.nanoTime() - sendDeadlineNs > 0) {
+          LOGGER.warn(
+              "[{}] Lease of partition {} runs low, sent {} of {} events",
+              roleName(),
+              partition,
+              count,
+              futures.length);
+          break;
+        }
+        final var event = events.get(count);
+        futures[count] =
+            kafkaTemplate.send("messages", event.roomId(), ByteBuffer.wrap(event.data()));
+      }
+      CompletableFuture.allOf(Arrays.copyOf(futures, count))
+          .orTimeout(SEND_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
+          .join();
+    } catch (RuntimeException ex) {
+      outboxPositionRepository.releasePosition(partition, leaseId);
+      throw ex;
     }
-    final var events = roomEventRepository.listEvents(position);
-    for (var event : events) {
-      onEvent(event);
+
+    final var last = events.get(count - 1);
+    if (outboxPositionRepository.savePosition(partition, leaseId, last.xid(), last.id()) == 0) {
+      LOGGER.warn(
+          "[{}] Lease of partition {} has expired, events will be published again",
+          roleName(),
+          partition);
     }
+    return count;
   }
 
-  private void onEvent(OutboxRoomEvent event) {
-    try {
-      kafkaTemplate
-          .send("messages", event.roomId(), ByteBuffer.wrap(event.data()))
-          .get(3, TimeUnit.SECONDS);
-      roomEventRepository.savePosition(event.id());
-    } catch (Exception e) {
-      throw new RuntimeException(e);
+  /**
+   * Claims the partition and reads next batch of its events. Partition is leased only if there are
+   * events to publish.
+   */
+  private List<OutboxRoomEvent> claimEvents(int partition, long leaseId) {
+    final var position = outboxPositionRepository.claimPosition(partition);
+    if (position == null) {
+      return List.of();
+    }
+
+    final var events =
+        roomEventRepository.listEvents(partition, position.positionXid(), position.position());
+    if (!events.isEmpty()) {
+      outboxPositionRepository.leasePosition(partition, leaseId, LEASE_MILLIS);
     }
+    return events;
   }
 
   @Override
   public void close() {
-    isStopped = true;
-    if (executorService != null) {
-      executorService.close();
+    if (agentRunner != null) {
+      agentRunner.close();
     }
   }
 }
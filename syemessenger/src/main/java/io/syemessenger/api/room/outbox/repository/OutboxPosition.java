@@ -0,0 +1,47 @@
+package io.syemessenger.api.room.outbox.repository;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Position of outbox partition: {@code (xid, id)} of the last published event of the partition.
+ */
+@Entity
+@Table(name = "outbox_position")
+public class OutboxPosition {
+  @Id private Integer id;
+
+  private Long position;
+
+  @Column(name = "position_xid")
+  private Long positionXid;
+
+  public Integer id() {
+    return id;
+  }
+
+  public OutboxPosition id(Integer id) {
+    this.id = id;
+    return this;
+  }
+
+  public Long position() {
+    return position;
+  }
+
+  public OutboxPosition position(Long position) {
+    this.position = position;
+    return this;
+  }
+
+  public Long positionXid() {
+    return positionXid;
+  }
+
+  public OutboxPosition positionXid(Long positionXid) {
+    this.positionXid = positionXid;
+    return this;
+  }
+}
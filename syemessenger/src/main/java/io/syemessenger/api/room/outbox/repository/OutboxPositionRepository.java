@@ -0,0 +1,61 @@
+package io.syemessenger.api.room.outbox.repository;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.NativeQuery;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Positions of outbox partitions. Partition is published by one processor at a time: processor
+ * claims position row with {@code FOR UPDATE SKIP LOCKED}, leases it with {@link
+ * #leasePosition(int, long, long)} and commits, so no row lock is held while events are sent to
+ * Kafka. Position is then saved only if the lease still belongs to the processor. Lease of a
+ * crashed processor expires.
+ */
+@Transactional
+public interface OutboxPositionRepository extends CrudRepository<OutboxPosition, Integer> {
+
+  /**
+   * Locks position row of the partition until the end of current transaction, unless it is
+   * locked, or leased by another processor.
+   *
+   * @return position of the partition, or {@code null} if it is taken by another processor
+   */
+  @NativeQuery(
+      "SELECT * FROM outbox_position WHERE id = :partition "
+          + "AND (locked_until IS NULL OR locked_until < now()) FOR UPDATE SKIP LOCKED")
+  OutboxPosition claimPosition(@Param("partition") int partition);
+
+  @Modifying
+  @NativeQuery(
+      "UPDATE outbox_position SET lease_id = :leaseId, "
+          + "locked_until = now() + :leaseMillis * interval '1 millisecond' WHERE id = :partition")
+  int leasePosition(
+      @Param("partition") int partition,
+      @Param("leaseId") long leaseId,
+      @Param("leaseMillis") long leaseMillis);
+
+  /**
+   * Advances position of the partition and releases the lease.
+   *
+   * @return 1 if position is saved, or 0 if the lease has expired and was taken by another
+   *     processor
+   */
+  @Modifying
+  @NativeQuery(
+      "UPDATE outbox_position SET position = :position, position_xid = :positionXid, "
+          + "lease_id = NULL, locked_until = NULL WHERE id = :partition AND lease_id = :leaseId")
+  int savePosition(
+      @Param("partition") int partition,
+      @Param("leaseId") long leaseId,
+      @Param("positionXid") long positionXid,
+      @Param("position") long position);
+
+  /** Releases the lease, position stays. */
+  @Modifying
+  @NativeQuery(
+      "UPDATE outbox_position SET lease_id = NULL, locked_until = NULL "
+          + "WHERE id = :partition AND lease_id = :leaseId")
+  int releasePosition(@Param("partition") int partition, @Param("leaseId") long leaseId);
+}
@@ -19,6 +19,10 @@ public class OutboxRoomEvent {
 
   private byte[] data;
 
+  /** Id of inserting transaction, assigned by database. */
+  @Column(insertable = false, updatable = false)
+  private Long xid;
+
   public Long id() {
     return id;
   }
@@ -45,4 +49,13 @@ public OutboxRoomEvent data(byte[] data) {
     this.data = data;
     return this;
   }
+
+  public Long xid() {
+    return xid;
+  }
+
+  public OutboxRoomEvent xid(Long xid) {
+    this.xid = xid;
+    return this;
+  }
 }
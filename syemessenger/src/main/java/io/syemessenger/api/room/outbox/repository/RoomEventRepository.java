@@ -1,6 +1,7 @@
 package io.syemessenger.api.room.outbox.repository;
 
 import java.util.List;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.NativeQuery;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
@@ -9,14 +10,91 @@
 @Transactional
 public interface RoomEventRepository extends CrudRepository<OutboxRoomEvent, Long> {
 
-  @NativeQuery("SELECT * FROM outbox_room_events ORDER BY id ASC OFFSET :position LIMIT 500")
-  List<OutboxRoomEvent> listEvents(@Param("position") long position);
+  int BATCH_SIZE = 500;
 
+  /**
+   * Number of outbox partitions. Events go to partition {@code mod(room_id, PARTITIONS)}, and every
+   * partition has its own row in {@code outbox_position}. Migrations get it as {@code
+   * outboxPartitions} parameter.
+   */
+  int PARTITIONS = 16;
+
+  /**
+   * Keyset read of the outbox partition: events following given position, in order of {@code
+   * (xid, id)}, served from the partition index regardless of how many events precede it. Ids are
+   * taken from sequence before commit, so event with lower id can commit after event with higher
+   * id was published. Hence events are read only from transactions older than the oldest running
+   * one ({@code xmin} of current snapshot): such transactions are all finished, and no event can
+   * appear before position later.
+   */
+  String LIST_EVENTS =
+      "SELECT * FROM outbox_room_events "
+          + "WHERE mod(room_id, "
+          + PARTITIONS
+          + ") = :partition AND (xid, id) > (:positionXid, :position) "
+          + "AND xid < pg_snapshot_xmin(pg_current_snapshot())::text::bigint "
+          + "ORDER BY xid ASC, id ASC LIMIT "
+          + BATCH_SIZE;
+
+  static int partition(long roomId) {
+    return (int) (roomId % PARTITIONS);
+  }
+
+  @NativeQuery(LIST_EVENTS)
+  List<OutboxRoomEvent> listEvents(
+      @Param("partition") int partition,
+      @Param("positionXid") long positionXid,
+      @Param("position") long position);
+
+  /**
+   * Deletes up to {@code limit} oldest events of the partition which are already published: not
+   * above the partition position in {@code (xid, id)} order of {@link #LIST_EVENTS}, and so
+   * committed before it. Rows deleted concurrently by another node are skipped.
+   *
+   * @return number of deleted events
+   */
+  @Modifying
+  @NativeQuery(
+      "DELETE FROM outbox_room_events WHERE id IN ("
+          + "SELECT e.id FROM outbox_room_events e, outbox_position p "
+          + "WHERE p.id = :partition AND mod(e.room_id, "
+          + PARTITIONS
+          + ") = :partition "
+          + "AND (e.xid, e.id) <= (p.position_xid, p.position) "
+          + "ORDER BY e.xid ASC, e.id ASC LIMIT :limit FOR UPDATE OF e SKIP LOCKED)")
+  int deletePublishedEvents(@Param("partition") int partition, @Param("limit") int limit);
+
+  /** Number of events above position of their partition, including held ones. */
+  @NativeQuery(
+      "SELECT count(*) FROM outbox_room_events e JOIN outbox_position p "
+          + "ON p.id = mod(e.room_id, "
+          + PARTITIONS
+          + ") WHERE (e.xid, e.id) > (p.position_xid, p.position)")
+  long countUnpublishedEvents();
+
+  /**
+   * Number of committed events above position of their partition which {@link #LIST_EVENTS} does
+   * not return yet, because a transaction older than them is still running anywhere in the
+   * database.
+   */
+  @NativeQuery(
+      "SELECT count(*) FROM outbox_room_events e JOIN outbox_position p "
+          + "ON p.id = mod(e.room_id, "
+          + PARTITIONS
+          + ") WHERE (e.xid, e.id) > (p.position_xid, p.position) "
+          + "AND e.xid >= pg_snapshot_xmin(pg_current_snapshot())::text::bigint")
+  long countHeldEvents();
+
+  /** Xid of the oldest held event (see {@link #countHeldEvents()}), or {@code null} if none. */
   @NativeQuery(
-      "INSERT INTO outbox_position VALUES (1, :position) "
-          + "ON CONFLICT (id) DO UPDATE SET position = :position")
-  void savePosition(@Param("position") long position);
+      "SELECT min(e.xid) FROM outbox_room_events e JOIN outbox_position p "
+          + "ON p.id = mod(e.room_id, "
+          + PARTITIONS
+          + ") WHERE (e.xid, e.id) > (p.position_xid, p.position) "
+          + "AND e.xid >= pg_snapshot_xmin(pg_current_snapshot())::text::bigint")
+  Long oldestHeldXid();
 
-  @NativeQuery("SELECT position FROM outbox_position WHERE id = 1")
-  Long getPosition();
+  /** Total size of the outbox table with its indexes and TOAST data, in bytes. */
+  @NativeQuery("SELECT pg_total_relation_size('outbox_room_events')")
+  long tableSize();
 }
@@ -0,0 +1,27 @@
+package io.syemessenger.kafka;
+
+import org.agrona.DirectBuffer;
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * Serializer of records consumed with {@link SbeDeserializer}, used to forward them (e.g. to the
+ * dead-letter topic) as is. Buffer that wraps whole fetched array is handed back without copying.
+ */
+public class DirectBufferSerializer implements Serializer<DirectBuffer> {
+
+  @Override
+  public byte[] serialize(String topic, DirectBuffer data) {
+    if (data == null) {
+      return null;
+    }
+
+    final var array = data.byteArray();
+    if (array != null && data.wrapAdjustment() == 0 && data.capacity() == array.length) {
+      return array;
+    }
+
+    final var bytes = new byte[data.capacity()];
+    data.getBytes(0, bytes);
+    return bytes;
+  }
+}
@@ -1,14 +1,16 @@
 package io.syemessenger.kafka;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import io.syemessenger.ServiceConfig;
 import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
-import org.apache.kafka.clients.consumer.Consumer;
+import org.agrona.DirectBuffer;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
-import org.apache.kafka.common.serialization.ByteBufferDeserializer;
-import org.apache.kafka.common.serialization.ByteBufferSerializer;
+import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.serialization.LongDeserializer;
 import org.apache.kafka.common.serialization.LongSerializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
@@ -17,16 +19,61 @@
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaAdmin;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.MicrometerProducerListener;
 import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.listener.ContainerProperties.AckMode;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.support.ExponentialBackOffWithMaxRetries;
 
 @Configuration
 @EnableKafka
 public class KafkaConfiguration {
 
+  public static final String MESSAGES_HISTORY_DLT = "messages.history.dlt";
+
+  /** Longest time {@code send} of the producer blocks for metadata or buffer space. */
+  public static final long MAX_BLOCK_MILLIS = 5_000;
+
+  private static final long HISTORY_RETRY_INITIAL_INTERVAL = 500;
+  private static final long HISTORY_RETRY_MAX_INTERVAL = 30_000;
+
+  @Bean
+  public KafkaAdmin kafkaAdmin(ServiceConfig serviceConfig) {
+    return new KafkaAdmin(
+        Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, serviceConfig.kafkaBootstrapServers()));
+  }
+
+  /**
+   * Topic of room events. Records are keyed by roomId, so all events of a room land on the same
+   * partition and are consumed in order by a single listener thread, while different rooms are
+   * spread over partitions and handled in parallel. Number of partitions bounds listener
+   * concurrency, and it can be only increased later (which would remap rooms to partitions).
+   */
+  @Bean
+  public NewTopic messagesTopic(ServiceConfig serviceConfig) {
+    return TopicBuilder.name("messages")
+        .partitions(serviceConfig.kafkaMessagesPartitions())
+        .build();
+  }
+
+  /**
+   * Dead-letter topic of history persistence. Record keeps its key and partition number, see
+   * {@link MessageHistoryDltReplayer} for putting it back into history.
+   */
+  @Bean
+  public NewTopic messagesHistoryDltTopic(ServiceConfig serviceConfig) {
+    return TopicBuilder.name(MESSAGES_HISTORY_DLT)
+        .partitions(serviceConfig.kafkaMessagesPartitions())
+        .build();
+  }
+
   @Bean
   public KafkaTemplate<Long, ByteBuffer> kafkaTemplate(
       ProducerFactory<Long, ByteBuffer> producerFactory) {
@@ -34,29 +81,93 @@ public KafkaTemplate<Long, ByteBuffer> kafkaTemplate(
   }
 
   @Bean
-  public ProducerFactory<Long, ByteBuffer> producerFactory(ServiceConfig serviceConfig) {
-    Map<String, Object> config = new HashMap<>();
+  public ProducerFactory<Long, ByteBuffer> producerFactory(
+      ServiceConfig serviceConfig, MeterRegistry meterRegistry) {
+    Map<String, Object> config = new HashMap<>(serviceConfig.kafkaProducerProfile().config());
     config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, serviceConfig.kafkaBootstrapServers());
     config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, LongSerializer.class);
-    config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteBufferSerializer.class);
-    return new DefaultKafkaProducerFactory<>(config);
+    config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, SbeSerializer.class);
+    config.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, MAX_BLOCK_MILLIS);
+    final var producerFactory = new DefaultKafkaProducerFactory<Long, ByteBuffer>(config);
+    producerFactory.addListener(new MicrometerProducerListener<>(meterRegistry));
+    return producerFactory;
   }
 
   @Bean
-  public ConsumerFactory<Long, ByteBuffer> consumerFactory(ServiceConfig serviceConfig) {
+  public KafkaTemplate<Long, DirectBuffer> deadLetterKafkaTemplate(ServiceConfig serviceConfig) {
+    Map<String, Object> config = new HashMap<>(ProducerProfile.LOW_LATENCY.config());
+    config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, serviceConfig.kafkaBootstrapServers());
+    return new KafkaTemplate<>(
+        new DefaultKafkaProducerFactory<>(
+            config, new LongSerializer(), new DirectBufferSerializer()));
+  }
+
+  @Bean
+  public MessageHistoryRetryMetrics messageHistoryRetryMetrics(MeterRegistry meterRegistry) {
+    return new MessageHistoryRetryMetrics(meterRegistry);
+  }
+
+  @Bean
+  public ConsumerFactory<Long, DirectBuffer> consumerFactory(ServiceConfig serviceConfig) {
     Map<String, Object> config = new HashMap<>();
     config.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, serviceConfig.kafkaBootstrapServers());
     config.put(ConsumerConfig.GROUP_ID_CONFIG, serviceConfig.kafkaConsumerGroup());
     config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, LongDeserializer.class);
-    config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteBufferDeserializer.class);
+    config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, SbeDeserializer.class);
+    config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
     return new DefaultKafkaConsumerFactory<>(config);
   }
 
   @Bean
-  public ConcurrentKafkaListenerContainerFactory<Long, ByteBuffer> kafkaListenerContainerFactory(
+  public ConcurrentKafkaListenerContainerFactory<Long, DirectBuffer> kafkaListenerContainerFactory(
       ServiceConfig serviceConfig) {
-    final var factory = new ConcurrentKafkaListenerContainerFactory<Long, ByteBuffer>();
+    final var factory = new ConcurrentKafkaListenerContainerFactory<Long, DirectBuffer>();
+    factory.setConsumerFactory(consumerFactory(serviceConfig));
+    factory.setConcurrency(serviceConfig.kafkaListenerConcurrency());
+    return factory;
+  }
+
+  @Bean
+  public ConcurrentKafkaListenerContainerFactory<Long, DirectBuffer>
+      batchKafkaListenerContainerFactory(
+          ServiceConfig serviceConfig,
+          KafkaTemplate<Long, DirectBuffer> deadLetterKafkaTemplate,
+          MessageHistoryRetryMetrics messageHistoryRetryMetrics) {
+    final var factory = new ConcurrentKafkaListenerContainerFactory<Long, DirectBuffer>();
     factory.setConsumerFactory(consumerFactory(serviceConfig));
+    factory.setConcurrency(serviceConfig.kafkaHistoryListenerConcurrency());
+    factory.setBatchListener(true);
+    factory.getContainerProperties().setAckMode(AckMode.BATCH);
+    factory.setCommonErrorHandler(
+        historyErrorHandler(serviceConfig, deadLetterKafkaTemplate, messageHistoryRetryMetrics));
     return factory;
   }
+
+  /**
+   * Error handler of history listener. Failed batch is retried with exponential backoff, meanwhile
+   * consumer is paused (and keeps polling), so it neither blocks in sleep nor exceeds {@code
+   * max.poll.interval.ms}. Once retries are exhausted records are published to {@link
+   * #MESSAGES_HISTORY_DLT} and their offsets are committed. Records that cannot be decoded are not
+   * retried at all.
+   */
+  static DefaultErrorHandler historyErrorHandler(
+      ServiceConfig serviceConfig,
+      KafkaTemplate<Long, DirectBuffer> deadLetterKafkaTemplate,
+      MessageHistoryRetryMetrics messageHistoryRetryMetrics) {
+    final var recoverer =
+        new DeadLetterPublishingRecoverer(
+            deadLetterKafkaTemplate,
+            (record, ex) -> new TopicPartition(MESSAGES_HISTORY_DLT, record.partition()));
+
+    final var backOff =
+        new ExponentialBackOffWithMaxRetries(serviceConfig.kafkaHistoryMaxRetries());
+    backOff.setInitialInterval(HISTORY_RETRY_INITIAL_INTERVAL);
+    backOff.setMultiplier(2);
+    backOff.setMaxInterval(HISTORY_RETRY_MAX_INTERVAL);
+
+    final var errorHandler = new DefaultErrorHandler(recoverer, backOff);
+    errorHandler.addNotRetryableExceptions(IllegalArgumentException.class);
+    errorHandler.setRetryListeners(messageHistoryRetryMetrics);
+    return errorHandler;
+  }
 }
@@ -7,6 +7,7 @@
 import io.syemessenger.sbe.BlockMembersEventDecoder;
 import io.syemessenger.sbe.BlockMembersEventEncoder;
 import io.syemessenger.sbe.BooleanType;
+import io.syemessenger.sbe.HistorySavedEventEncoder;
 import io.syemessenger.sbe.LeaveRoomEventDecoder;
 import io.syemessenger.sbe.LeaveRoomEventEncoder;
 import io.syemessenger.sbe.MessageHeaderDecoder;
@@ -20,135 +21,284 @@
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
+import org.agrona.ExpandableArrayBuffer;
+import org.agrona.collections.LongHashSet;
 import org.agrona.concurrent.UnsafeBuffer;
 
+/**
+ * SBE codec of Kafka events. Encoders and decoders are flyweights held per thread, so the codec can
+ * be used concurrently from request, outbox and listener threads. Encoded length is computed up
+ * front and every event is written into exactly sized buffer, which then belongs to the caller;
+ * variable length parts are staged in per-thread scratch buffer which grows on demand.
+ */
 public class KafkaMessageCodec {
 
-  private static final MessageHeaderEncoder headerEncoder = new MessageHeaderEncoder();
-  private static final MessageHeaderDecoder headerDecoder = new MessageHeaderDecoder();
-  private static final LeaveRoomEventEncoder leaveRoomEncoder = new LeaveRoomEventEncoder();
-  private static final LeaveRoomEventDecoder leaveRoomDecoder = new LeaveRoomEventDecoder();
-  private static final RemoveMembersEventEncoder removeMembersEncoder =
-      new RemoveMembersEventEncoder();
-  private static final RemoveMembersEventDecoder removeMembersDecoder =
-      new RemoveMembersEventDecoder();
-  private static final BlockMembersEventEncoder blockMembersEncoder =
-      new BlockMembersEventEncoder();
-  private static final BlockMembersEventDecoder blockMembersDecoder =
-      new BlockMembersEventDecoder();
-  private static final RoomMessageEncoder roomMessageEncoder = new RoomMessageEncoder();
-  private static final RoomMessageDecoder roomMessageDecoder = new RoomMessageDecoder();
+  private static final int HEADER_LENGTH = MessageHeaderEncoder.ENCODED_LENGTH;
+
+  private static final ThreadLocal<Flyweights> FLYWEIGHTS =
+      ThreadLocal.withInitial(Flyweights::new);
+
+  private KafkaMessageCodec() {
+    // Do not instantiate
+  }
 
   public static ByteBuffer encodeLeaveRoomEvent(LeaveRoomEvent leaveRoomEvent) {
-    final var byteBuffer = ByteBuffer.allocate(512);
-    final var directBuffer = new UnsafeBuffer(byteBuffer);
+    final var flyweights = FLYWEIGHTS.get();
+    final var buffer = flyweights.wrapForWrite(HEADER_LENGTH + LeaveRoomEventEncoder.BLOCK_LENGTH);
 
-    leaveRoomEncoder
-        .wrapAndApplyHeader(directBuffer, 0, headerEncoder)
+    flyweights
+        .leaveRoomEncoder
+        .wrapAndApplyHeader(buffer, 0, flyweights.headerEncoder)
         .roomId(leaveRoomEvent.roomId())
         .accountId(leaveRoomEvent.accountId())
         .isOwner(leaveRoomEvent.isOwner() ? BooleanType.TRUE : BooleanType.FALSE);
 
-    byteBuffer.limit(leaveRoomEncoder.encodedLength() + headerEncoder.encodedLength());
-    return byteBuffer;
+    return flyweights.releaseWritten();
   }
 
   public static LeaveRoomEvent decodeLeaveRoomEvent(ByteBuffer byteBuffer) {
-    final var directBuffer = new UnsafeBuffer(byteBuffer);
-
-    leaveRoomDecoder.wrapAndApplyHeader(directBuffer, 0, headerDecoder);
+    final var flyweights = FLYWEIGHTS.get();
+    final var decoder =
+        flyweights.leaveRoomDecoder.wrapAndApplyHeader(
+            flyweights.wrapForRead(byteBuffer), 0, flyweights.headerDecoder);
 
     return new LeaveRoomEvent()
-        .roomId(leaveRoomDecoder.roomId())
-        .accountId(leaveRoomDecoder.accountId())
-        .isOwner(leaveRoomDecoder.isOwner() == BooleanType.TRUE);
+        .roomId(decoder.roomId())
+        .accountId(decoder.accountId())
+        .isOwner(decoder.isOwner() == BooleanType.TRUE);
   }
 
   public static ByteBuffer encodeRemoveMembersEvent(RemoveMembersEvent removeMembersEvent) {
-    final var byteBuffer = ByteBuffer.allocate(512);
-    final var directBuffer = new UnsafeBuffer(byteBuffer);
-
-    removeMembersEncoder
-        .wrapAndApplyHeader(directBuffer, 0, headerEncoder)
-        .roomId(removeMembersEvent.roomId());
+    final var flyweights = FLYWEIGHTS.get();
+    final var memberIds = removeMembersEvent.memberIds();
+    final var buffer =
+        flyweights.wrapForWrite(
+            HEADER_LENGTH
+                + RemoveMembersEventEncoder.BLOCK_LENGTH
+                + RemoveMembersEventEncoder.MemberIdsEncoder.sbeHeaderSize()
+                + RemoveMembersEventEncoder.MemberIdsEncoder.sbeBlockLength() * memberIds.size());
 
-    final var memberIdsEncoder =
-        removeMembersEncoder.memberIdsCount(removeMembersEvent.memberIds().size());
+    final var encoder =
+        flyweights
+            .removeMembersEncoder
+            .wrapAndApplyHeader(buffer, 0, flyweights.headerEncoder)
+            .roomId(removeMembersEvent.roomId());
 
-    for (var i : removeMembersEvent.memberIds()) {
-      memberIdsEncoder.next().memberId(i);
+    final var memberIdsEncoder = encoder.memberIdsCount(memberIds.size());
+    for (var memberId : memberIds) {
+      memberIdsEncoder.next().memberId(memberId);
     }
-    byteBuffer.limit(removeMembersEncoder.encodedLength() + headerEncoder.encodedLength());
-    return byteBuffer;
+
+    return flyweights.releaseWritten();
   }
 
   public static RemoveMembersEvent decodeRemoveMembersEvent(ByteBuffer byteBuffer) {
-    final var directBuffer = new UnsafeBuffer(byteBuffer);
-
-    removeMembersDecoder.wrapAndApplyHeader(directBuffer, 0, headerDecoder);
+    final var flyweights = FLYWEIGHTS.get();
+    final var decoder =
+        flyweights.removeMembersDecoder.wrapAndApplyHeader(
+            flyweights.wrapForRead(byteBuffer), 0, flyweights.headerDecoder);
 
-    final var memberIds = new ArrayList<Long>();
-    for (var memberId : removeMembersDecoder.memberIds()) {
+    final var roomId = decoder.roomId();
+    final var memberIdsDecoder = decoder.memberIds();
+    final var memberIds = new ArrayList<Long>(memberIdsDecoder.count());
+    for (var memberId : memberIdsDecoder) {
       memberIds.add(memberId.memberId());
     }
 
-    return new RemoveMembersEvent().roomId(removeMembersDecoder.roomId()).memberIds(memberIds);
+    return new RemoveMembersEvent().roomId(roomId).memberIds(memberIds);
   }
 
   public static ByteBuffer encodeBlockMembersEvent(BlockMembersEvent blockMembersEvent) {
-    final var byteBuffer = ByteBuffer.allocate(512);
-    final var directBuffer = new UnsafeBuffer(byteBuffer);
+    final var flyweights = FLYWEIGHTS.get();
+    final var memberIds = blockMembersEvent.memberIds();
+    final var buffer =
+        flyweights.wrapForWrite(
+            HEADER_LENGTH
+                + BlockMembersEventEncoder.BLOCK_LENGTH
+                + BlockMembersEventEncoder.MemberIdsEncoder.sbeHeaderSize()
+                + BlockMembersEventEncoder.MemberIdsEncoder.sbeBlockLength() * memberIds.size());
 
-    blockMembersEncoder
-        .wrapAndApplyHeader(directBuffer, 0, headerEncoder)
-        .roomId(blockMembersEvent.roomId());
+    final var encoder =
+        flyweights
+            .blockMembersEncoder
+            .wrapAndApplyHeader(buffer, 0, flyweights.headerEncoder)
+            .roomId(blockMembersEvent.roomId());
 
-    var memberIdsEncoder = blockMembersEncoder.memberIdsCount(blockMembersEvent.memberIds().size());
-
-    for (var i : blockMembersEvent.memberIds()) {
-      memberIdsEncoder.next().memberId(i);
+    final var memberIdsEncoder = encoder.memberIdsCount(memberIds.size());
+    for (var memberId : memberIds) {
+      memberIdsEncoder.next().memberId(memberId);
     }
-    byteBuffer.limit(blockMembersEncoder.encodedLength() + headerEncoder.encodedLength());
-    return byteBuffer;
+
+    return flyweights.releaseWritten();
   }
 
   public static BlockMembersEvent decodeBlockMembersEvent(ByteBuffer byteBuffer) {
-    final var directBuffer = new UnsafeBuffer(byteBuffer);
+    final var flyweights = FLYWEIGHTS.get();
+    final var decoder =
+        flyweights.blockMembersDecoder.wrapAndApplyHeader(
+            flyweights.wrapForRead(byteBuffer), 0, flyweights.headerDecoder);
 
-    blockMembersDecoder.wrapAndApplyHeader(directBuffer, 0, headerDecoder);
-
-    final var memberIds = new ArrayList<Long>();
-    for (var memberId : blockMembersDecoder.memberIds()) {
+    final var roomId = decoder.roomId();
+    final var memberIdsDecoder = decoder.memberIds();
+    final var memberIds = new ArrayList<Long>(memberIdsDecoder.count());
+    for (var memberId : memberIdsDecoder) {
       memberIds.add(memberId.memberId());
     }
 
-    return new BlockMembersEvent().roomId(blockMembersDecoder.roomId()).memberIds(memberIds);
+    return new BlockMembersEvent().roomId(roomId).memberIds(memberIds);
+  }
+
+  public static ByteBuffer encodeHistorySavedEvent(LongHashSet roomIds) {
+    final var flyweights = FLYWEIGHTS.get();
+    final var buffer =
+        flyweights.wrapForWrite(
+            HEADER_LENGTH
+                + HistorySavedEventEncoder.BLOCK_LENGTH
+                + HistorySavedEventEncoder.RoomIdsEncoder.sbeHeaderSize()
+                + HistorySavedEventEncoder.RoomIdsEncoder.sbeBlockLength() * roomIds.size());
+
+    final var roomIdsEncoder =
+        flyweights
+            .historySavedEncoder
+            .wrapAndApplyHeader(buffer, 0, flyweights.headerEncoder)
+            .roomIdsCount(roomIds.size());
+    final var iterator = roomIds.iterator();
+    while (iterator.hasNext()) {
+      roomIdsEncoder.next().roomId(iterator.nextValue());
+    }
+
+    return flyweights.releaseWritten();
   }
 
   public static ByteBuffer encodeRoomMessage(MessageInfo messageInfo) {
-    final var byteBuffer = ByteBuffer.allocate(512);
-    final var directBuffer = new UnsafeBuffer(byteBuffer);
+    final var flyweights = FLYWEIGHTS.get();
+    final var scratchBuffer = flyweights.scratchBuffer;
+    final var messageLength = putUtf8(scratchBuffer, messageInfo.message());
+    final var buffer =
+        flyweights.wrapForWrite(
+            HEADER_LENGTH
+                + RoomMessageEncoder.BLOCK_LENGTH
+                + RoomMessageEncoder.messageHeaderLength()
+                + messageLength);
 
-    roomMessageEncoder
-        .wrapAndApplyHeader(directBuffer, 0, headerEncoder)
+    flyweights
+        .roomMessageEncoder
+        .wrapAndApplyHeader(buffer, 0, flyweights.headerEncoder)
         .roomId(messageInfo.roomId())
-        .message(messageInfo.message())
         .senderId(messageInfo.senderId())
-        .timestamp(messageInfo.timestamp().toInstant(ZoneOffset.UTC).toEpochMilli());
-    byteBuffer.limit(roomMessageEncoder.encodedLength() + headerEncoder.encodedLength());
-    return byteBuffer;
+        .timestamp(messageInfo.timestamp().toInstant(ZoneOffset.UTC).toEpochMilli())
+        .putMessage(scratchBuffer, 0, messageLength);
+
+    return flyweights.releaseWritten();
   }
 
   public static MessageInfo decodeRoomMessage(ByteBuffer byteBuffer) {
-    final var unsafeBuffer = new UnsafeBuffer(byteBuffer);
-    roomMessageDecoder.wrapAndApplyHeader(unsafeBuffer, 0, headerDecoder);
+    final var flyweights = FLYWEIGHTS.get();
+    final var decoder =
+        flyweights.roomMessageDecoder.wrapAndApplyHeader(
+            flyweights.wrapForRead(byteBuffer), 0, flyweights.headerDecoder);
+
+    return toMessageInfo(decoder);
+  }
 
+  /**
+   * Reads {@link MessageInfo} from already wrapped decoder. Var data ({@code message}) is consumed.
+   *
+   * @param decoder decoder
+   * @return messageInfo
+   */
+  public static MessageInfo toMessageInfo(RoomMessageDecoder decoder) {
     return new MessageInfo()
-        .message(roomMessageDecoder.message())
-        .roomId(roomMessageDecoder.roomId())
-        .senderId(roomMessageDecoder.senderId())
+        .roomId(decoder.roomId())
+        .senderId(decoder.senderId())
         .timestamp(
-            LocalDateTime.ofInstant(
-                Instant.ofEpochMilli(roomMessageDecoder.timestamp()), ZoneOffset.UTC));
+            LocalDateTime.ofInstant(Instant.ofEpochMilli(decoder.timestamp()), ZoneOffset.UTC))
+        .message(decoder.message());
+  }
+
+  /**
+   * Writes UTF-8 bytes of the string into scratch buffer (growing it if needed), the same way as
+   * {@link String#getBytes(java.nio.charset.Charset)} would, but without allocating.
+   *
+   * @return number of bytes written
+   */
+  private static int putUtf8(ExpandableArrayBuffer buffer, String value) {
+    if (value == null) {
+      return 0;
+    }
+
+    final var length = value.length();
+    buffer.checkLimit(length * 3);
+    final var bytes = buffer.byteArray();
+
+    int index = 0;
+    for (int i = 0; i < length; i++) {
+      final var c = value.charAt(i);
+      if (c < 0x80) {
+        bytes[index++] = (byte) c;
+      } else if (c < 0x800) {
+        bytes[index++] = (byte) (0xC0 | (c >> 6));
+        bytes[index++] = (byte) (0x80 | (c & 0x3F));
+      } else if (Character.isSurrogate(c)) {
+        if (Character.isHighSurrogate(c)
+            && i + 1 < length
+            && Character.isLowSurrogate(value.charAt(i + 1))) {
+          final var codePoint = Character.toCodePoint(c, value.charAt(++i));
+          bytes[index++] = (byte) (0xF0 | (codePoint >> 18));
+          bytes[index++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+          bytes[index++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+          bytes[index++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else {
+          bytes[index++] = '?';
+        }
+      } else {
+        bytes[index++] = (byte) (0xE0 | (c >> 12));
+        bytes[index++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+        bytes[index++] = (byte) (0x80 | (c & 0x3F));
+      }
+    }
+    return index;
+  }
+
+  private static class Flyweights {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final UnsafeBuffer readBuffer = new UnsafeBuffer(0, 0);
+    private final UnsafeBuffer writeBuffer = new UnsafeBuffer(0, 0);
+    private final ExpandableArrayBuffer scratchBuffer = new ExpandableArrayBuffer(1024);
+    private byte[] written;
+
+    private final MessageHeaderEncoder headerEncoder = new MessageHeaderEncoder();
+    private final MessageHeaderDecoder headerDecoder = new MessageHeaderDecoder();
+    private final LeaveRoomEventEncoder leaveRoomEncoder = new LeaveRoomEventEncoder();
+    private final LeaveRoomEventDecoder leaveRoomDecoder = new LeaveRoomEventDecoder();
+    private final RemoveMembersEventEncoder removeMembersEncoder =
+        new RemoveMembersEventEncoder();
+    private final RemoveMembersEventDecoder removeMembersDecoder =
+        new RemoveMembersEventDecoder();
+    private final BlockMembersEventEncoder blockMembersEncoder = new BlockMembersEventEncoder();
+    private final BlockMembersEventDecoder blockMembersDecoder = new BlockMembersEventDecoder();
+    private final RoomMessageEncoder roomMessageEncoder = new RoomMessageEncoder();
+    private final RoomMessageDecoder roomMessageDecoder = new RoomMessageDecoder();
+    private final HistorySavedEventEncoder historySavedEncoder = new HistorySavedEventEncoder();
+
+    private UnsafeBuffer wrapForRead(ByteBuffer byteBuffer) {
+      readBuffer.wrap(byteBuffer);
+      return readBuffer;
+    }
+
+    private UnsafeBuffer wrapForWrite(int encodedLength) {
+      written = new byte[encodedLength];
+      writeBuffer.wrap(written);
+      return writeBuffer;
+    }
+
+    private ByteBuffer releaseWritten() {
+      final var byteBuffer = ByteBuffer.wrap(written);
+      written = null;
+      writeBuffer.wrap(EMPTY);
+      return byteBuffer;
+    }
   }
 }
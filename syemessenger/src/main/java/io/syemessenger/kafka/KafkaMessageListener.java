@@ -3,19 +3,25 @@
 import io.syemessenger.SubscriptionRegistry;
 import io.syemessenger.api.message.MessageInfo;
 import io.syemessenger.api.messagehistory.MessageHistoryService;
-import io.syemessenger.kafka.dto.BlockMembersEvent;
-import io.syemessenger.kafka.dto.LeaveRoomEvent;
-import io.syemessenger.kafka.dto.RemoveMembersEvent;
+import io.syemessenger.api.messagehistory.RecentMessagesCache;
 import io.syemessenger.sbe.BlockMembersEventDecoder;
+import io.syemessenger.sbe.BooleanType;
+import io.syemessenger.sbe.HistorySavedEventDecoder;
 import io.syemessenger.sbe.LeaveRoomEventDecoder;
 import io.syemessenger.sbe.MessageHeaderDecoder;
 import io.syemessenger.sbe.RemoveMembersEventDecoder;
 import io.syemessenger.sbe.RoomMessageDecoder;
 import java.nio.ByteBuffer;
-import org.agrona.concurrent.UnsafeBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import org.agrona.DirectBuffer;
+import org.agrona.collections.LongArrayList;
+import org.agrona.collections.LongHashSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.BatchListenerFailedException;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -23,20 +29,38 @@ public class KafkaMessageListener {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(KafkaMessageListener.class);
 
+  private static final ThreadLocal<Flyweights> FLYWEIGHTS =
+      ThreadLocal.withInitial(Flyweights::new);
+
   private final SubscriptionRegistry subscriptionRegistry;
   private final MessageHistoryService messageHistoryService;
+  private final MessageHistoryRetryMetrics messageHistoryRetryMetrics;
+  private final RecentMessagesCache recentMessagesCache;
+  private final KafkaTemplate<Long, ByteBuffer> kafkaTemplate;
 
   public KafkaMessageListener(
-      SubscriptionRegistry subscriptionRegistry, MessageHistoryService messageHistoryService) {
+      SubscriptionRegistry subscriptionRegistry,
+      MessageHistoryService messageHistoryService,
+      MessageHistoryRetryMetrics messageHistoryRetryMetrics,
+      RecentMessagesCache recentMessagesCache,
+      KafkaTemplate<Long, ByteBuffer> kafkaTemplate) {
     this.subscriptionRegistry = subscriptionRegistry;
     this.messageHistoryService = messageHistoryService;
+    this.messageHistoryRetryMetrics = messageHistoryRetryMetrics;
+    this.recentMessagesCache = recentMessagesCache;
+    this.kafkaTemplate = kafkaTemplate;
   }
 
+  /**
+   * Fan-out of room events to local subscribers. Record is dispatched by wrapping per-thread
+   * decoder flyweight over it and handing decoder to the handler, no intermediate DTOs are created.
+   * Invoked concurrently from several consumer threads, events of the same room always come from
+   * the same thread (see {@link KafkaConfiguration#messagesTopic}).
+   */
   @KafkaListener(topics = "messages")
-  public void handleMessage(ByteBuffer byteBuffer) {
-    final var headerDecoder = new MessageHeaderDecoder();
-    final var directBuffer = new UnsafeBuffer(byteBuffer);
-    headerDecoder.wrap(directBuffer, 0);
+  public void handleMessage(DirectBuffer buffer) {
+    final var flyweights = FLYWEIGHTS.get();
+    final var headerDecoder = flyweights.headerDecoder.wrap(buffer, 0);
 
     if (headerDecoder.schemaId() != MessageHeaderDecoder.SCHEMA_ID) {
       throw new IllegalArgumentException("Wrong schemaId: " + headerDecoder.schemaId());
@@ -46,65 +70,150 @@ public void handleMessage(ByteBuffer byteBuffer) {
 
     switch (templateId) {
       case LeaveRoomEventDecoder.TEMPLATE_ID:
-        onLeaveRoomEvent(KafkaMessageCodec.decodeLeaveRoomEvent(byteBuffer));
+        onLeaveRoomEvent(flyweights.leaveRoomDecoder.wrapAndApplyHeader(buffer, 0, headerDecoder));
         break;
       case RemoveMembersEventDecoder.TEMPLATE_ID:
-        onRemoveMembersEvent(KafkaMessageCodec.decodeRemoveMembersEvent(byteBuffer));
+        onRemoveMembersEvent(
+            flyweights.removeMembersDecoder.wrapAndApplyHeader(buffer, 0, headerDecoder),
+            flyweights.memberIds);
         break;
       case BlockMembersEventDecoder.TEMPLATE_ID:
-        onBlockMembersEvent(KafkaMessageCodec.decodeBlockMembersEvent(byteBuffer));
+        onBlockMembersEvent(
+            flyweights.blockMembersDecoder.wrapAndApplyHeader(buffer, 0, headerDecoder),
+            flyweights.memberIds);
         break;
       case RoomMessageDecoder.TEMPLATE_ID:
-        onRoomMessage(KafkaMessageCodec.decodeRoomMessage(byteBuffer));
+        onRoomMessage(flyweights.roomMessageDecoder.wrapAndApplyHeader(buffer, 0, headerDecoder));
+        break;
+      case HistorySavedEventDecoder.TEMPLATE_ID:
+        onHistorySavedEvent(
+            flyweights.historySavedDecoder.wrapAndApplyHeader(buffer, 0, headerDecoder));
         break;
       default:
         throw new IllegalArgumentException("Wrong templateId: " + headerDecoder.templateId());
     }
   }
 
-  @KafkaListener(topics = "messages", groupId = "message-history-group")
-  public void handleMessageHistory(ByteBuffer byteBuffer) {
-    final var headerDecoder = new MessageHeaderDecoder();
-    final var directBuffer = new UnsafeBuffer(byteBuffer);
-    headerDecoder.wrap(directBuffer, 0);
-
-    if (RoomMessageDecoder.TEMPLATE_ID == headerDecoder.templateId()) {
-      final var messageInfo = KafkaMessageCodec.decodeRoomMessage(byteBuffer);
-      LOGGER.debug("Save history message: {}", messageInfo);
-      while (true) {
-        try {
-          messageHistoryService.saveMessage(messageInfo);
-          break;
-        } catch (Exception ex) {
-          try {
-            //noinspection BusyWait
-            Thread.sleep(3000);
-          } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-          }
+  /**
+   * Persists history in batches: every poll is decoded and written with one JDBC batch. Offsets of
+   * the poll are committed by container only after listener returns, i.e. once batch is durable.
+   * Failures are not retried here, see {@link KafkaConfiguration#historyErrorHandler}.
+   *
+   * <p>History group is shared by all nodes, so once batch is committed, recent messages of its
+   * rooms are dropped here and {@code HistorySavedEvent} is published for the other nodes. Ring
+   * reloaded before the commit is dropped by that event, not kept until it expires.
+   */
+  @KafkaListener(
+      topics = "messages",
+      groupId = "message-history-group",
+      containerFactory = "batchKafkaListenerContainerFactory")
+  public void handleMessageHistory(List<DirectBuffer> buffers) {
+    final var flyweights = FLYWEIGHTS.get();
+    final var headerDecoder = flyweights.headerDecoder;
+    final var messages = new ArrayList<MessageInfo>(buffers.size());
+
+    for (int i = 0; i < buffers.size(); i++) {
+      final var buffer = buffers.get(i);
+      try {
+        headerDecoder.wrap(buffer, 0);
+        if (headerDecoder.schemaId() != MessageHeaderDecoder.SCHEMA_ID) {
+          throw new IllegalArgumentException("Wrong schemaId: " + headerDecoder.schemaId());
         }
+        if (RoomMessageDecoder.TEMPLATE_ID == headerDecoder.templateId()) {
+          messages.add(
+              KafkaMessageCodec.toMessageInfo(
+                  flyweights.roomMessageDecoder.wrapAndApplyHeader(buffer, 0, headerDecoder)));
+        }
+      } catch (Exception ex) {
+        throw new BatchListenerFailedException(
+            "Failed to decode history message",
+            ex instanceof IllegalArgumentException ? ex : new IllegalArgumentException(ex),
+            i);
       }
     }
+
+    if (!messages.isEmpty()) {
+      LOGGER.debug("Save history messages: {}", messages.size());
+      messageHistoryService.saveMessages(messages);
+      if (recentMessagesCache.isEnabled()) {
+        invalidateRecentMessages(messages, flyweights.savedRoomIds);
+      }
+    }
+    messageHistoryRetryMetrics.onSaved();
   }
 
-  private void onLeaveRoomEvent(LeaveRoomEvent leaveRoomEvent) {
-    LOGGER.debug("Received leaveRoomEvent: {}", leaveRoomEvent);
+  private void invalidateRecentMessages(List<MessageInfo> messages, LongHashSet roomIds) {
+    roomIds.clear();
+    for (int i = 0; i < messages.size(); i++) {
+      roomIds.add(messages.get(i).roomId());
+    }
+    final var iterator = roomIds.iterator();
+    while (iterator.hasNext()) {
+      recentMessagesCache.invalidate(iterator.nextValue());
+    }
+    // Batch is committed, so failure to publish must not fail the listener (batch would be saved
+    // again), recent messages of other nodes are then stale until they expire
+    final var count = roomIds.size();
+    try {
+      kafkaTemplate
+          .send("messages", KafkaMessageCodec.encodeHistorySavedEvent(roomIds))
+          .whenComplete(
+              (result, ex) -> {
+                if (ex != null) {
+                  LOGGER.warn("Failed to publish saved history of {} rooms", count, ex);
+                }
+              });
+    } catch (Exception ex) {
+      LOGGER.warn("Failed to publish saved history of {} rooms", count, ex);
+    }
+  }
+
+  private void onLeaveRoomEvent(LeaveRoomEventDecoder decoder) {
     subscriptionRegistry.leaveRoom(
-        leaveRoomEvent.roomId(), leaveRoomEvent.accountId(), leaveRoomEvent.isOwner());
+        decoder.roomId(), decoder.accountId(), decoder.isOwner() == BooleanType.TRUE);
+  }
+
+  private void onRemoveMembersEvent(RemoveMembersEventDecoder decoder, LongArrayList memberIds) {
+    final var roomId = decoder.roomId();
+    memberIds.clear();
+    for (var memberId : decoder.memberIds()) {
+      memberIds.addLong(memberId.memberId());
+    }
+    subscriptionRegistry.removeMembers(roomId, memberIds);
+  }
+
+  private void onBlockMembersEvent(BlockMembersEventDecoder decoder, LongArrayList memberIds) {
+    final var roomId = decoder.roomId();
+    memberIds.clear();
+    for (var memberId : decoder.memberIds()) {
+      memberIds.addLong(memberId.memberId());
+    }
+    subscriptionRegistry.blockMembers(roomId, memberIds);
   }
 
-  private void onRemoveMembersEvent(RemoveMembersEvent removeMembersEvent) {
-    LOGGER.debug("Received removeMembersEvent: {}", removeMembersEvent);
-    subscriptionRegistry.removeMembers(removeMembersEvent.roomId(), removeMembersEvent.memberIds());
+  private void onHistorySavedEvent(HistorySavedEventDecoder decoder) {
+    for (var roomId : decoder.roomIds()) {
+      recentMessagesCache.invalidate(roomId.roomId());
+    }
   }
 
-  private void onBlockMembersEvent(BlockMembersEvent blockMembersEvent) {
-    LOGGER.debug("Received blockMembersEvent: {}", blockMembersEvent);
-    subscriptionRegistry.blockMembers(blockMembersEvent.roomId(), blockMembersEvent.memberIds());
+  private void onRoomMessage(RoomMessageDecoder decoder) {
+    // Nothing is materialized for rooms without local subscribers
+    if (subscriptionRegistry.hasSubscribers(decoder.roomId())) {
+      subscriptionRegistry.onRoomMessage(KafkaMessageCodec.toMessageInfo(decoder));
+    }
   }
 
-  private void onRoomMessage(MessageInfo messageInfo) {
-    LOGGER.debug("Received roomMessage: {}", messageInfo);
-    subscriptionRegistry.onRoomMessage(messageInfo);
+  private static class Flyweights {
+
+    private final MessageHeaderDecoder headerDecoder = new MessageHeaderDecoder();
+    private final LeaveRoomEventDecoder leaveRoomDecoder = new LeaveRoomEventDecoder();
+    private final RemoveMembersEventDecoder removeMembersDecoder =
+        new RemoveMembersEventDecoder();
+    private final BlockMembersEventDecoder blockMembersDecoder = new BlockMembersEventDecoder();
+    private final RoomMessageDecoder roomMessageDecoder = new RoomMessageDecoder();
+    private final HistorySavedEventDecoder historySavedDecoder = new HistorySavedEventDecoder();
+    private final LongArrayList memberIds = new LongArrayList();
+    private final LongHashSet savedRoomIds = new LongHashSet();
   }
 }
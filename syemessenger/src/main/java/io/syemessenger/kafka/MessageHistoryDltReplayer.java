@@ -0,0 +1,113 @@
+package io.syemessenger.kafka;
+
+import static io.syemessenger.kafka.KafkaConfiguration.MESSAGES_HISTORY_DLT;
+
+import io.syemessenger.api.message.MessageInfo;
+import io.syemessenger.api.messagehistory.MessageHistoryService;
+import io.syemessenger.sbe.MessageHeaderDecoder;
+import io.syemessenger.sbe.RoomMessageDecoder;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Properties;
+import org.agrona.DirectBuffer;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Puts dead-lettered history messages back into history. Replay reads {@link
+ * KafkaConfiguration#MESSAGES_HISTORY_DLT} up to end offsets taken at start, saves room messages
+ * poll by poll and commits offsets of its own consumer group after every save, so it can be
+ * repeated safely once the cause of failures is fixed. Records that still cannot be decoded are
+ * logged and skipped.
+ */
+@Service
+public class MessageHistoryDltReplayer {
+
+  public static final String REPLAY_GROUP = "message-history-dlt-replay-group";
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(MessageHistoryDltReplayer.class);
+
+  private static final Duration POLL_TIMEOUT = Duration.ofSeconds(1);
+
+  private final ConsumerFactory<Long, DirectBuffer> consumerFactory;
+  private final MessageHistoryService messageHistoryService;
+
+  public MessageHistoryDltReplayer(
+      ConsumerFactory<Long, DirectBuffer> consumerFactory,
+      MessageHistoryService messageHistoryService) {
+    this.consumerFactory = consumerFactory;
+    this.messageHistoryService = messageHistoryService;
+  }
+
+  /**
+   * Replays dead-letter topic into history.
+   *
+   * @return number of replayed messages
+   */
+  public long replay() {
+    final var properties = new Properties();
+    properties.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+
+    try (final var consumer =
+        consumerFactory.createConsumer(REPLAY_GROUP, null, null, properties)) {
+      final var partitions =
+          consumer.partitionsFor(MESSAGES_HISTORY_DLT).stream()
+              .map(info -> new TopicPartition(info.topic(), info.partition()))
+              .toList();
+      consumer.assign(partitions);
+      final var endOffsets = consumer.endOffsets(partitions);
+
+      final var headerDecoder = new MessageHeaderDecoder();
+      final var roomMessageDecoder = new RoomMessageDecoder();
+      long replayed = 0;
+
+      while (!isReplayed(consumer, endOffsets)) {
+        final var records = consumer.poll(POLL_TIMEOUT);
+        final var messages = new ArrayList<MessageInfo>(records.count());
+
+        for (var record : records) {
+          try {
+            headerDecoder.wrap(record.value(), 0);
+            if (headerDecoder.schemaId() == MessageHeaderDecoder.SCHEMA_ID
+                && headerDecoder.templateId() == RoomMessageDecoder.TEMPLATE_ID) {
+              messages.add(
+                  KafkaMessageCodec.toMessageInfo(
+                      roomMessageDecoder.wrapAndApplyHeader(record.value(), 0, headerDecoder)));
+            }
+          } catch (Exception ex) {
+            LOGGER.error(
+                "Skip undecodable record, partition: {}, offset: {}",
+                record.partition(),
+                record.offset(),
+                ex);
+          }
+        }
+
+        if (!messages.isEmpty()) {
+          messageHistoryService.saveMessages(messages);
+          replayed += messages.size();
+        }
+        consumer.commitSync();
+      }
+
+      LOGGER.info("Replayed history messages: {}", replayed);
+      return replayed;
+    }
+  }
+
+  private static boolean isReplayed(
+      Consumer<?, ?> consumer, Map<TopicPartition, Long> endOffsets) {
+    for (var entry : endOffsets.entrySet()) {
+      if (consumer.position(entry.getKey()) < entry.getValue()) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
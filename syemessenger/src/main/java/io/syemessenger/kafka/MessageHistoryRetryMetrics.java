@@ -0,0 +1,85 @@
+package io.syemessenger.kafka;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.springframework.kafka.listener.RetryListener;
+
+/**
+ * Metrics of history persistence retries. Retry backlog is the number of records held back by
+ * failing batches of all history consumer threads, it drops back once batch is saved or is
+ * dead-lettered.
+ */
+public class MessageHistoryRetryMetrics implements RetryListener {
+
+  private final Map<Long, Integer> backlog = new ConcurrentHashMap<>();
+  private final Counter retries;
+  private final Counter deadLettered;
+
+  public MessageHistoryRetryMetrics(MeterRegistry meterRegistry) {
+    retries =
+        Counter.builder("messages.history.retries")
+            .description("Failed deliveries of history records")
+            .register(meterRegistry);
+    deadLettered =
+        Counter.builder("messages.history.dlt")
+            .description("History records published to dead-letter topic")
+            .register(meterRegistry);
+    Gauge.builder("messages.history.retry.backlog", this, MessageHistoryRetryMetrics::backlog)
+        .description("History records waiting for retry")
+        .register(meterRegistry);
+  }
+
+  /** Invoked by the listener (on consumer thread) once batch is persisted. */
+  public void onSaved() {
+    if (!backlog.isEmpty()) {
+      backlog.remove(Thread.currentThread().threadId());
+    }
+  }
+
+  public int backlog() {
+    int sum = 0;
+    for (var value : backlog.values()) {
+      sum += value;
+    }
+    return sum;
+  }
+
+  @Override
+  public void failedDelivery(ConsumerRecord<?, ?> record, Exception ex, int deliveryAttempt) {
+    retries.increment();
+    backlog.put(Thread.currentThread().threadId(), 1);
+  }
+
+  @Override
+  public void failedDelivery(ConsumerRecords<?, ?> records, Exception ex, int deliveryAttempt) {
+    retries.increment(records.count());
+    backlog.put(Thread.currentThread().threadId(), records.count());
+  }
+
+  @Override
+  public void recovered(ConsumerRecord<?, ?> record, Exception ex) {
+    deadLettered.increment();
+    backlog.remove(Thread.currentThread().threadId());
+  }
+
+  @Override
+  public void recovered(ConsumerRecords<?, ?> records, Exception ex) {
+    deadLettered.increment(records.count());
+    backlog.remove(Thread.currentThread().threadId());
+  }
+
+  @Override
+  public void recoveryFailed(ConsumerRecord<?, ?> record, Exception original, Exception failure) {
+    backlog.remove(Thread.currentThread().threadId());
+  }
+
+  @Override
+  public void recoveryFailed(ConsumerRecords<?, ?> records, Exception original, Exception failure) {
+    backlog.remove(Thread.currentThread().threadId());
+  }
+}
@@ -0,0 +1,44 @@
+package io.syemessenger.kafka;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.kafka.clients.producer.ProducerConfig;
+
+/**
+ * Named sets of producer settings. Both profiles are idempotent with {@code acks=all}, they differ
+ * in how long records wait for a batch to fill up and whether batches are compressed.
+ */
+public enum ProducerProfile {
+
+  /** Records are sent as soon as possible, small uncompressed batches. */
+  LOW_LATENCY(
+      Map.of(
+          ProducerConfig.LINGER_MS_CONFIG, 0,
+          ProducerConfig.BATCH_SIZE_CONFIG, 16 * 1024,
+          ProducerConfig.COMPRESSION_TYPE_CONFIG, "none")),
+
+  /** Records linger to form big lz4 compressed batches, fewer broker requests under bursts. */
+  THROUGHPUT(
+      Map.of(
+          ProducerConfig.LINGER_MS_CONFIG, 10,
+          ProducerConfig.BATCH_SIZE_CONFIG, 256 * 1024,
+          ProducerConfig.COMPRESSION_TYPE_CONFIG, "lz4"));
+
+  private static final Map<String, Object> COMMON_CONFIG =
+      Map.of(
+          ProducerConfig.ACKS_CONFIG, "all",
+          ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true,
+          ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5);
+
+  private final Map<String, Object> config;
+
+  ProducerProfile(Map<String, Object> config) {
+    this.config = config;
+  }
+
+  public Map<String, Object> config() {
+    final var map = new HashMap<String, Object>(COMMON_CONFIG);
+    map.putAll(config);
+    return map;
+  }
+}
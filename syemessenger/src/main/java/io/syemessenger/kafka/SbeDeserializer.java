@@ -0,0 +1,20 @@
+package io.syemessenger.kafka;
+
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.apache.kafka.common.serialization.Deserializer;
+
+/**
+ * Deserializer of SBE encoded events. Record value is exposed as {@link DirectBuffer} over the
+ * fetched bytes, ready to be wrapped by SBE decoder flyweights without any further copying.
+ */
+public class SbeDeserializer implements Deserializer<DirectBuffer> {
+
+  @Override
+  public DirectBuffer deserialize(String topic, byte[] data) {
+    if (data == null) {
+      return null;
+    }
+    return new UnsafeBuffer(data);
+  }
+}
@@ -0,0 +1,48 @@
+package io.syemessenger.kafka;
+
+import io.syemessenger.sbe.MessageHeaderDecoder;
+import java.nio.ByteBuffer;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * Serializer of SBE encoded events. Frames produced by {@link KafkaMessageCodec} are exactly sized,
+ * so their backing array is handed to the producer as is, without copying. Frames of foreign schema
+ * are rejected before they reach the topic.
+ */
+public class SbeSerializer implements Serializer<ByteBuffer> {
+
+  @Override
+  public byte[] serialize(String topic, ByteBuffer data) {
+    if (data == null) {
+      return null;
+    }
+
+    if (data.remaining() < MessageHeaderDecoder.ENCODED_LENGTH) {
+      throw new SerializationException("Wrong SBE frame: length " + data.remaining());
+    }
+
+    final var schemaId = schemaId(data);
+    if (schemaId != MessageHeaderDecoder.SCHEMA_ID) {
+      throw new SerializationException("Wrong schemaId: " + schemaId);
+    }
+
+    if (data.hasArray()
+        && data.arrayOffset() == 0
+        && data.position() == 0
+        && data.remaining() == data.array().length) {
+      return data.array();
+    }
+
+    final var bytes = new byte[data.remaining()];
+    data.duplicate().get(bytes);
+    return bytes;
+  }
+
+  private static int schemaId(ByteBuffer data) {
+    final var index = data.position() + MessageHeaderDecoder.schemaIdEncodingOffset();
+    final var value = data.getShort(index);
+    return Short.toUnsignedInt(
+        data.order() == MessageHeaderDecoder.BYTE_ORDER ? value : Short.reverseBytes(value));
+  }
+}
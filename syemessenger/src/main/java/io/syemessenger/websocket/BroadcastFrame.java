@@ -0,0 +1,75 @@
+package io.syemessenger.websocket;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.syemessenger.SbeMessageCodec;
+import io.syemessenger.api.ServiceMessage;
+import java.util.StringJoiner;
+
+/**
+ * Push message shared by all subscribers of a room. Each wire representation is encoded at most
+ * once, by whichever session needs it first, and the resulting immutable frame is then handed to
+ * every other session as is.
+ */
+public class BroadcastFrame {
+
+  private final ServiceMessage message;
+
+  private volatile OutboundFrame textFrame;
+  private volatile OutboundFrame binaryFrame;
+  private volatile boolean binaryEncoded;
+
+  public BroadcastFrame(ServiceMessage message) {
+    this.message = message;
+  }
+
+  public ServiceMessage message() {
+    return message;
+  }
+
+  public OutboundFrame textFrame(JsonMapper jsonMapper) {
+    var frame = textFrame;
+    if (frame == null) {
+      synchronized (this) {
+        frame = textFrame;
+        if (frame == null) {
+          try {
+            frame = OutboundFrame.ofText(jsonMapper.writeValueAsString(message), true);
+          } catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
+          }
+          textFrame = frame;
+        }
+      }
+    }
+    return frame;
+  }
+
+  /**
+   * Returns binary frame.
+   *
+   * @param sbeMessageCodec sbeMessageCodec
+   * @return binary frame, or {@code null} if message has no binary mapping
+   */
+  public OutboundFrame binaryFrame(SbeMessageCodec sbeMessageCodec) {
+    if (!binaryEncoded) {
+      synchronized (this) {
+        if (!binaryEncoded) {
+          final var byteBuffer = sbeMessageCodec.encode(message);
+          if (byteBuffer != null) {
+            binaryFrame = OutboundFrame.ofBinary(byteBuffer, true);
+          }
+          binaryEncoded = true;
+        }
+      }
+    }
+    return binaryFrame;
+  }
+
+  @Override
+  public String toString() {
+    return new StringJoiner(", ", BroadcastFrame.class.getSimpleName() + "[", "]")
+        .add("message=" + message)
+        .toString();
+  }
+}
@@ -0,0 +1,49 @@
+package io.syemessenger.websocket;
+
+import java.nio.ByteBuffer;
+import java.util.StringJoiner;
+
+public class OutboundFrame {
+
+  private final String text;
+  private final ByteBuffer binary;
+  private final boolean broadcast;
+
+  private OutboundFrame(String text, ByteBuffer binary, boolean broadcast) {
+    this.text = text;
+    this.binary = binary;
+    this.broadcast = broadcast;
+  }
+
+  public static OutboundFrame ofText(String text, boolean broadcast) {
+    return new OutboundFrame(text, null, broadcast);
+  }
+
+  public static OutboundFrame ofBinary(ByteBuffer binary, boolean broadcast) {
+    return new OutboundFrame(null, binary, broadcast);
+  }
+
+  public String text() {
+    return text;
+  }
+
+  public ByteBuffer binary() {
+    return binary;
+  }
+
+  public boolean isBinary() {
+    return binary != null;
+  }
+
+  public boolean isBroadcast() {
+    return broadcast;
+  }
+
+  @Override
+  public String toString() {
+    return new StringJoiner(", ", OutboundFrame.class.getSimpleName() + "[", "]")
+        .add("binary=" + isBinary())
+        .add("broadcast=" + broadcast)
+        .toString();
+  }
+}
@@ -0,0 +1,92 @@
+package io.syemessenger.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.inject.Named;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters of outbound queues. Queue depth is reported as aggregates over open sessions (computed on
+ * scrape), not per session, so number of time series does not grow with number of sessions.
+ */
+@Named
+public class OutboundMetrics {
+
+  private final Set<OutboundQueue> queues = ConcurrentHashMap.newKeySet();
+  private final Counter droppedFrames;
+  private final Counter slowConsumerDisconnects;
+  private final Counter failedWrites;
+  private final Timer writeLatency;
+
+  public OutboundMetrics(MeterRegistry meterRegistry) {
+    droppedFrames =
+        Counter.builder("syemessenger.session.outbound.dropped")
+            .description("Broadcast frames dropped by overflow policy")
+            .register(meterRegistry);
+    slowConsumerDisconnects =
+        Counter.builder("syemessenger.session.outbound.disconnects")
+            .description("Sessions closed because outbound queue overflowed")
+            .register(meterRegistry);
+    failedWrites =
+        Counter.builder("syemessenger.session.outbound.failed")
+            .description("Frames failed to be written")
+            .register(meterRegistry);
+    writeLatency =
+        Timer.builder("syemessenger.session.outbound.write.latency")
+            .description("Time from frame write start to write completion")
+            .register(meterRegistry);
+    Gauge.builder("syemessenger.session.count", queues, Set::size)
+        .description("Open sessions")
+        .register(meterRegistry);
+    Gauge.builder("syemessenger.session.queue.depth.total", this, OutboundMetrics::totalDepth)
+        .description("Frames queued in outbound queues of all sessions")
+        .register(meterRegistry);
+    Gauge.builder("syemessenger.session.queue.depth.max", this, OutboundMetrics::maxDepth)
+        .description("Frames queued in the longest outbound queue")
+        .register(meterRegistry);
+  }
+
+  public void registerSession(OutboundQueue outboundQueue) {
+    queues.add(outboundQueue);
+  }
+
+  public void unregisterSession(OutboundQueue outboundQueue) {
+    queues.remove(outboundQueue);
+  }
+
+  public void onDropped(int count) {
+    droppedFrames.increment(count);
+  }
+
+  public void onSlowConsumerDisconnect() {
+    slowConsumerDisconnects.increment();
+  }
+
+  public void onWriteFailed() {
+    failedWrites.increment();
+  }
+
+  public void onWrite(long latencyNanos) {
+    writeLatency.record(latencyNanos, TimeUnit.NANOSECONDS);
+  }
+
+  private double totalDepth() {
+    long depth = 0;
+    for (var queue : queues) {
+      depth += queue.size();
+    }
+    return depth;
+  }
+
+  private double maxDepth() {
+    int depth = 0;
+    for (var queue : queues) {
+      depth = Math.max(depth, queue.size());
+    }
+    return depth;
+  }
+}
@@ -0,0 +1,185 @@
+package io.syemessenger.websocket;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import org.eclipse.jetty.websocket.api.Callback;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded per-session queue of outbound frames. Only one frame is written to the socket at a time,
+ * the next one is taken once the previous write has completed, so a slow client backs up here
+ * (where the overflow policy applies) instead of inside Jetty.
+ */
+public class OutboundQueue {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(OutboundQueue.class);
+
+  public static final int SLOW_CONSUMER_CLOSE_CODE = StatusCode.TRY_AGAIN_LATER;
+
+  private final Session session;
+  private final int capacity;
+  private final OverflowPolicy overflowPolicy;
+  private final OutboundMetrics metrics;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final ArrayDeque<OutboundFrame> frames = new ArrayDeque<>();
+  private boolean writing;
+  private boolean closed;
+
+  private volatile int size;
+  private volatile long lastWriteLatencyNanos;
+
+  public OutboundQueue(
+      Session session, int capacity, OverflowPolicy overflowPolicy, OutboundMetrics metrics) {
+    this.session = session;
+    this.capacity = capacity;
+    this.overflowPolicy = overflowPolicy;
+    this.metrics = metrics;
+  }
+
+  public void offer(OutboundFrame frame) {
+    OutboundFrame next = null;
+    boolean disconnect = false;
+
+    lock.lock();
+    try {
+      if (closed) {
+        return;
+      }
+      if (frames.size() >= capacity && !makeRoom()) {
+        if (frame.isBroadcast() && overflowPolicy != OverflowPolicy.DISCONNECT) {
+          metrics.onDropped(1);
+          return;
+        }
+        closed = true;
+        frames.clear();
+        disconnect = true;
+      } else {
+        frames.offer(frame);
+        if (!writing) {
+          writing = true;
+          next = frames.poll();
+        }
+      }
+      size = frames.size();
+    } finally {
+      lock.unlock();
+    }
+
+    if (disconnect) {
+      LOGGER.warn("Closing slow consumer session: {}", session);
+      metrics.onSlowConsumerDisconnect();
+      session.close(SLOW_CONSUMER_CLOSE_CODE, "Slow consumer", Callback.NOOP);
+      return;
+    }
+
+    if (next != null) {
+      write(next);
+    }
+  }
+
+  private boolean makeRoom() {
+    if (overflowPolicy == OverflowPolicy.DISCONNECT) {
+      return false;
+    }
+
+    int dropped = 0;
+    for (Iterator<OutboundFrame> it = frames.iterator(); it.hasNext(); ) {
+      if (it.next().isBroadcast()) {
+        it.remove();
+        dropped++;
+        if (overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+          break;
+        }
+      }
+    }
+    metrics.onDropped(dropped);
+    return dropped > 0;
+  }
+
+  private void write(OutboundFrame frame) {
+    while (frame != null) {
+      final var callback = new WriteCallback();
+      if (frame.isBinary()) {
+        session.sendBinary(frame.binary().duplicate(), callback);
+      } else {
+        session.sendText(frame.text(), callback);
+      }
+      frame = callback.continueInline();
+    }
+  }
+
+  private OutboundFrame poll() {
+    lock.lock();
+    try {
+      final var frame = closed ? null : frames.poll();
+      if (frame == null) {
+        writing = false;
+      }
+      size = frames.size();
+      return frame;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public void close() {
+    lock.lock();
+    try {
+      closed = true;
+      frames.clear();
+      size = 0;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public long lastWriteLatencyNanos() {
+    return lastWriteLatencyNanos;
+  }
+
+  private class WriteCallback implements Callback {
+
+    private static final int PENDING = 0;
+    private static final int RETURNED = 1;
+    private static final int COMPLETED = 2;
+
+    private final long startNanos = System.nanoTime();
+    private final AtomicInteger state = new AtomicInteger(PENDING);
+
+    @Override
+    public void succeed() {
+      final var latency = System.nanoTime() - startNanos;
+      lastWriteLatencyNanos = latency;
+      metrics.onWrite(latency);
+      // Completed inside sendText/sendBinary, writing loop will take next frame
+      if (state.compareAndSet(PENDING, COMPLETED)) {
+        return;
+      }
+      write(poll());
+    }
+
+    @Override
+    public void fail(Throwable cause) {
+      LOGGER.debug("Failed to write frame to session: {}", session, cause);
+      metrics.onWriteFailed();
+      close();
+    }
+
+    private OutboundFrame continueInline() {
+      if (state.compareAndSet(PENDING, RETURNED)) {
+        return null;
+      }
+      return poll();
+    }
+  }
+}
@@ -0,0 +1,11 @@
+package io.syemessenger.websocket;
+
+/** What to do when a session's outbound queue is full. Replies are never dropped. */
+public enum OverflowPolicy {
+  /** Drop the oldest queued broadcast to make room. */
+  DROP_OLDEST,
+  /** Drop every queued broadcast, so that only the newest one is delivered. */
+  COALESCE,
+  /** Close the session with {@link OutboundQueue#SLOW_CONSUMER_CLOSE_CODE}. */
+  DISCONNECT
+}
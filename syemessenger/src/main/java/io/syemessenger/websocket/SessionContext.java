@@ -2,28 +2,70 @@
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.syemessenger.SbeMessageCodec;
 import io.syemessenger.api.ErrorData;
 import io.syemessenger.api.ServiceMessage;
 import java.util.StringJoiner;
 import java.util.UUID;
-import org.eclipse.jetty.websocket.api.Callback;
+import java.util.concurrent.atomic.AtomicLong;
 import org.eclipse.jetty.websocket.api.Session;
 
 public class SessionContext {
 
+  private static final AtomicLong ID_GENERATOR = new AtomicLong();
+
+  private final long id = ID_GENERATOR.incrementAndGet();
   private final Session session;
   private final JsonMapper jsonMapper;
+  private final SbeMessageCodec sbeMessageCodec;
+  private final SubProtocol subProtocol;
+  private final OutboundQueue outboundQueue;
+  private final OutboundMetrics outboundMetrics;
 
-  private Long accountId;
+  private volatile Long accountId;
 
-  public SessionContext(Session session, JsonMapper jsonMapper) {
+  public SessionContext(
+      Session session,
+      JsonMapper jsonMapper,
+      SbeMessageCodec sbeMessageCodec,
+      SubProtocol subProtocol,
+      int outboundQueueCapacity,
+      OverflowPolicy overflowPolicy,
+      OutboundMetrics outboundMetrics) {
     this.session = session;
     this.jsonMapper = jsonMapper;
+    this.sbeMessageCodec = sbeMessageCodec;
+    this.subProtocol = subProtocol;
+    this.outboundMetrics = outboundMetrics;
+    outboundQueue =
+        new OutboundQueue(session, outboundQueueCapacity, overflowPolicy, outboundMetrics);
+    outboundMetrics.registerSession(outboundQueue);
   }
 
   public void send(ServiceMessage message) {
+    outboundQueue.offer(encode(message));
+  }
+
+  public void sendBroadcast(BroadcastFrame broadcastFrame) {
+    if (subProtocol == SubProtocol.SBE) {
+      final var binaryFrame = broadcastFrame.binaryFrame(sbeMessageCodec);
+      if (binaryFrame != null) {
+        outboundQueue.offer(binaryFrame);
+        return;
+      }
+    }
+    outboundQueue.offer(broadcastFrame.textFrame(jsonMapper));
+  }
+
+  private OutboundFrame encode(ServiceMessage message) {
+    if (subProtocol == SubProtocol.SBE) {
+      final var byteBuffer = sbeMessageCodec.encode(message);
+      if (byteBuffer != null) {
+        return OutboundFrame.ofBinary(byteBuffer, false);
+      }
+    }
     try {
-      session.sendText(jsonMapper.writeValueAsString(message), Callback.NOOP);
+      return OutboundFrame.ofText(jsonMapper.writeValueAsString(message), false);
     } catch (JsonProcessingException e) {
       throw new RuntimeException(e);
     }
@@ -37,6 +79,23 @@ public void sendError(UUID cid, int errorCode, String errorMessage) {
             .data(new ErrorData(errorCode, errorMessage)));
   }
 
+  public void close() {
+    outboundQueue.close();
+    outboundMetrics.unregisterSession(outboundQueue);
+  }
+
+  public long id() {
+    return id;
+  }
+
+  public int outboundQueueSize() {
+    return outboundQueue.size();
+  }
+
+  public long lastWriteLatencyNanos() {
+    return outboundQueue.lastWriteLatencyNanos();
+  }
+
   public Long accountId() {
     return accountId;
   }
@@ -46,6 +105,10 @@ public SessionContext accountId(Long accountId) {
     return this;
   }
 
+  public SubProtocol subProtocol() {
+    return subProtocol;
+  }
+
   public boolean isLoggedIn() {
     return accountId != null;
   }
@@ -53,7 +116,9 @@ public boolean isLoggedIn() {
   @Override
   public String toString() {
     return new StringJoiner(", ", SessionContext.class.getSimpleName() + "[", "]")
+        .add("id=" + id)
         .add("session=" + session)
+        .add("subProtocol=" + subProtocol)
         .add("accountId=" + accountId)
         .toString();
   }
@@ -0,0 +1,38 @@
+package io.syemessenger.websocket;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.syemessenger.SbeMessageCodec;
+import io.syemessenger.ServiceConfig;
+import jakarta.inject.Named;
+import org.eclipse.jetty.websocket.api.Session;
+
+@Named
+public class SessionContextFactory {
+
+  private final JsonMapper jsonMapper;
+  private final SbeMessageCodec sbeMessageCodec;
+  private final ServiceConfig serviceConfig;
+  private final OutboundMetrics outboundMetrics;
+
+  public SessionContextFactory(
+      JsonMapper jsonMapper,
+      SbeMessageCodec sbeMessageCodec,
+      ServiceConfig serviceConfig,
+      OutboundMetrics outboundMetrics) {
+    this.jsonMapper = jsonMapper;
+    this.sbeMessageCodec = sbeMessageCodec;
+    this.serviceConfig = serviceConfig;
+    this.outboundMetrics = outboundMetrics;
+  }
+
+  public SessionContext newSessionContext(Session session, SubProtocol subProtocol) {
+    return new SessionContext(
+        session,
+        jsonMapper,
+        sbeMessageCodec,
+        subProtocol,
+        serviceConfig.outboundQueueCapacity(),
+        serviceConfig.overflowPolicy(),
+        outboundMetrics);
+  }
+}
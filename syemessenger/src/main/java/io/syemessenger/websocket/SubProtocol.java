@@ -0,0 +1,31 @@
+package io.syemessenger.websocket;
+
+import java.util.List;
+
+public enum SubProtocol {
+  JSON("v1.json.syemessenger"),
+  SBE("v1.sbe.syemessenger");
+
+  private final String value;
+
+  SubProtocol(String value) {
+    this.value = value;
+  }
+
+  public String value() {
+    return value;
+  }
+
+  public static SubProtocol negotiate(List<String> subProtocols) {
+    if (subProtocols != null) {
+      for (var subProtocol : subProtocols) {
+        for (var value : values()) {
+          if (value.value.equalsIgnoreCase(subProtocol)) {
+            return value;
+          }
+        }
+      }
+    }
+    return JSON;
+  }
+}
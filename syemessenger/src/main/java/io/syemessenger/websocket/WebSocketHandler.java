@@ -1,11 +1,15 @@
 package io.syemessenger.websocket;
 
-import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.syemessenger.MessageCodec;
+import io.syemessenger.SbeMessageCodec;
+import io.syemessenger.SerialExecutor;
 import io.syemessenger.ServiceRegistry;
 import io.syemessenger.SubscriptionRegistry;
 import io.syemessenger.api.ServiceException;
 import io.syemessenger.api.ServiceMessage;
+import java.nio.ByteBuffer;
 import java.util.UUID;
+import org.eclipse.jetty.websocket.api.Callback;
 import org.eclipse.jetty.websocket.api.Session;
 import org.eclipse.jetty.websocket.api.annotations.OnWebSocketClose;
 import org.eclipse.jetty.websocket.api.annotations.OnWebSocketError;
@@ -20,34 +24,51 @@ public class WebSocketHandler {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(WebSocketHandler.class);
 
-  private final JsonMapper jsonMapper;
+  private final MessageCodec messageCodec;
   private final ServiceRegistry serviceRegistry;
   private final SubscriptionRegistry subscriptionRegistry;
+  private final SbeMessageCodec sbeMessageCodec;
+  private final SessionContextFactory sessionContextFactory;
+  private final SubProtocol subProtocol;
+  private final SerialExecutor sessionExecutor;
 
   private SessionContext sessionContext;
 
   public WebSocketHandler(
-      JsonMapper jsonMapper,
+      MessageCodec messageCodec,
       ServiceRegistry serviceRegistry,
-      SubscriptionRegistry subscriptionRegistry) {
-    this.jsonMapper = jsonMapper;
+      SubscriptionRegistry subscriptionRegistry,
+      SbeMessageCodec sbeMessageCodec,
+      SessionContextFactory sessionContextFactory,
+      SubProtocol subProtocol,
+      SerialExecutor sessionExecutor) {
+    this.messageCodec = messageCodec;
     this.serviceRegistry = serviceRegistry;
     this.subscriptionRegistry = subscriptionRegistry;
+    this.sbeMessageCodec = sbeMessageCodec;
+    this.sessionContextFactory = sessionContextFactory;
+    this.subProtocol = subProtocol;
+    this.sessionExecutor = sessionExecutor;
   }
 
   @OnWebSocketClose
   public void onWebSocketClose(int statusCode, String reason) {
-    if (subscriptionRegistry.isSubscribed(sessionContext)) {
-      subscriptionRegistry.unsubscribe(sessionContext);
-    }
+    final var context = sessionContext;
+    sessionExecutor.execute(
+        () -> {
+          if (subscriptionRegistry.isSubscribed(context)) {
+            subscriptionRegistry.unsubscribe(context);
+          }
+          context.close();
+        });
     sessionContext = null;
     LOGGER.info("WebSocket Close: {} - {}", statusCode, reason);
   }
 
   @OnWebSocketOpen
   public void onWebSocketOpen(Session session) {
-    sessionContext = new SessionContext(session, jsonMapper);
-    LOGGER.info("WebSocket Open: {}", session);
+    sessionContext = sessionContextFactory.newSessionContext(session, subProtocol);
+    LOGGER.info("WebSocket Open: {}, subProtocol: {}", session, subProtocol);
   }
 
   @OnWebSocketError
@@ -60,25 +81,57 @@ public void onWebSocketText(String text) {
     LOGGER.debug("Received: {}", text);
     UUID cid = null;
     try {
-      final var message = jsonMapper.readValue(text, ServiceMessage.class);
+      final var message = messageCodec.decode(text);
       cid = message.cid();
-      final var qualifier = message.qualifier();
-
-      if (qualifier == null) {
-        throw new ServiceException(400, "Wrong message: qualifier is missing");
-      }
+      invoke(message);
+    } catch (ServiceException ex) {
+      sendError(cid, ex);
+    } catch (Exception e) {
+      LOGGER.error("[onWebSocketText] Exception onMessage [{}]", text, e);
+      throw new RuntimeException(e);
+    }
+  }
 
-      final var invocationHandler = serviceRegistry.lookup(qualifier);
-      if (invocationHandler == null) {
-        throw new ServiceException(404, "Wrong message: request handler is missing");
+  @OnWebSocketMessage
+  public void onWebSocketBinary(ByteBuffer payload, Callback callback) {
+    UUID cid = null;
+    try {
+      if (subProtocol != SubProtocol.SBE) {
+        throw new ServiceException(400, "Wrong message: binary protocol is not negotiated");
       }
-
-      invocationHandler.invoke(sessionContext, message);
+      final var message = sbeMessageCodec.decode(payload);
+      cid = message.cid();
+      invoke(message);
     } catch (ServiceException ex) {
-      sessionContext.sendError(cid, ex.errorCode(), ex.getMessage());
+      sendError(cid, ex);
     } catch (Exception e) {
-      LOGGER.error("[onWebSocketText] Exception onMessage [{}]", text, e);
+      LOGGER.error("[onWebSocketBinary] Exception onMessage", e);
       throw new RuntimeException(e);
+    } finally {
+      callback.succeed();
+    }
+  }
+
+  private void invoke(ServiceMessage message) {
+    final var qualifier = message.qualifier();
+
+    if (qualifier == null) {
+      throw new ServiceException(400, "Wrong message: qualifier is missing");
+    }
+
+    final var invocationHandler = serviceRegistry.lookup(qualifier);
+    if (invocationHandler == null) {
+      throw new ServiceException(404, "Wrong message: request handler is missing");
     }
+
+    final var context = sessionContext;
+    // Next request of the session waits for reply to this one, even if it completes asynchronously
+    sessionExecutor.executeAsync(() -> invocationHandler.invoke(context, message));
+  }
+
+  private void sendError(UUID cid, ServiceException ex) {
+    final var context = sessionContext;
+    // Queued behind pending replies to previous requests, so replies keep request order
+    sessionExecutor.execute(() -> context.sendError(cid, ex.errorCode(), ex.getMessage()));
   }
 }
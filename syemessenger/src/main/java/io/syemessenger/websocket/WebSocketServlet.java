@@ -1,6 +1,8 @@
 package io.syemessenger.websocket;
 
-import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.syemessenger.MessageCodec;
+import io.syemessenger.RequestDispatcher;
+import io.syemessenger.SbeMessageCodec;
 import io.syemessenger.ServiceRegistry;
 import io.syemessenger.SubscriptionRegistry;
 import jakarta.inject.Named;
@@ -10,22 +12,45 @@
 @Named
 public class WebSocketServlet extends JettyWebSocketServlet {
 
-  private final JsonMapper jsonMapper;
+  private final MessageCodec messageCodec;
   private final ServiceRegistry serviceRegistry;
   private final SubscriptionRegistry subscriptionRegistry;
+  private final SbeMessageCodec sbeMessageCodec;
+  private final SessionContextFactory sessionContextFactory;
+  private final RequestDispatcher requestDispatcher;
 
   public WebSocketServlet(
-      JsonMapper jsonMapper,
+      MessageCodec messageCodec,
       ServiceRegistry serviceRegistry,
-      SubscriptionRegistry subscriptionRegistry) {
-    this.jsonMapper = jsonMapper;
+      SubscriptionRegistry subscriptionRegistry,
+      SbeMessageCodec sbeMessageCodec,
+      SessionContextFactory sessionContextFactory,
+      RequestDispatcher requestDispatcher) {
+    this.messageCodec = messageCodec;
     this.serviceRegistry = serviceRegistry;
     this.subscriptionRegistry = subscriptionRegistry;
+    this.sbeMessageCodec = sbeMessageCodec;
+    this.sessionContextFactory = sessionContextFactory;
+    this.requestDispatcher = requestDispatcher;
   }
 
   @Override
   public void configure(JettyWebSocketServletFactory factory) {
     factory.addMapping(
-        "/", (req, res) -> new WebSocketHandler(jsonMapper, serviceRegistry, subscriptionRegistry));
+        "/",
+        (req, res) -> {
+          final var subProtocol = SubProtocol.negotiate(req.getSubProtocols());
+          if (req.hasSubProtocol(subProtocol.value())) {
+            res.setAcceptedSubProtocol(subProtocol.value());
+          }
+          return new WebSocketHandler(
+              messageCodec,
+              serviceRegistry,
+              subscriptionRegistry,
+              sbeMessageCodec,
+              sessionContextFactory,
+              subProtocol,
+              requestDispatcher.newSessionExecutor());
+        });
   }
 }
@@ -0,0 +1,124 @@
+package io.syemessenger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class AgentRunnerTest {
+
+  @Test
+  void testIdleOnlyWithoutWork() throws Exception {
+    final var workCounts = new CopyOnWriteArrayList<Integer>();
+    final var resets = new AtomicInteger();
+    final var idles = new AtomicInteger();
+    final var latch = new CountDownLatch(1);
+    final var duties = List.of(3, 0, 0, 5, 0);
+    final var cycle = new AtomicInteger();
+
+    final var idleStrategy =
+        new IdleStrategy() {
+          @Override
+          public void idle(int workCount) {
+            workCounts.add(workCount);
+            IdleStrategy.super.idle(workCount);
+          }
+
+          @Override
+          public void idle() {
+            idles.incrementAndGet();
+          }
+
+          @Override
+          public void reset() {
+            resets.incrementAndGet();
+          }
+        };
+
+    final var agentRunner =
+        new AgentRunner(
+            idleStrategy,
+            newAgent(
+                () -> {
+                  final var i = cycle.getAndIncrement();
+                  if (i == duties.size() - 1) {
+                    latch.countDown();
+                  }
+                  return i < duties.size() ? duties.get(i) : 0;
+                }));
+
+    final var thread = AgentRunner.startOnThread(agentRunner);
+    assertTrue(latch.await(3, TimeUnit.SECONDS));
+    agentRunner.close();
+
+    assertFalse(thread.isAlive());
+    assertFalse(agentRunner.isRunning());
+    assertEquals(duties, workCounts.subList(0, duties.size()));
+    assertEquals(2, resets.get());
+    assertTrue(idles.get() >= 3);
+  }
+
+  @Test
+  void testExceptionIsTreatedAsNoWork() throws Exception {
+    final var workCounts = new CopyOnWriteArrayList<Integer>();
+    final var latch = new CountDownLatch(3);
+
+    final var agentRunner =
+        new AgentRunner(
+            new NoOpIdleStrategy() {
+              @Override
+              public void idle(int workCount) {
+                workCounts.add(workCount);
+                latch.countDown();
+              }
+            },
+            newAgent(
+                () -> {
+                  throw new IllegalStateException("Test exception");
+                }));
+
+    final var thread = AgentRunner.startOnThread(agentRunner);
+    assertTrue(latch.await(3, TimeUnit.SECONDS));
+    agentRunner.close();
+
+    assertFalse(thread.isAlive());
+    assertEquals(0, workCounts.get(0));
+  }
+
+  @Test
+  void testCloseInterruptsParkedAgent() {
+    final var agentRunner = new AgentRunner(new SleepIdleStrategy(60_000), newAgent(() -> 0));
+
+    final var thread = AgentRunner.startOnThread(agentRunner);
+    final var start = System.nanoTime();
+    agentRunner.close();
+
+    assertFalse(thread.isAlive());
+    assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(30));
+  }
+
+  private static Agent newAgent(DutyCycle dutyCycle) {
+    return new Agent() {
+      @Override
+      public int doWork() throws Exception {
+        return dutyCycle.doWork();
+      }
+
+      @Override
+      public String roleName() {
+        return "test-agent";
+      }
+    };
+  }
+
+  private interface DutyCycle {
+
+    int doWork() throws Exception;
+  }
+}
@@ -0,0 +1,48 @@
+package io.syemessenger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class BackoffIdleStrategyTest {
+
+  private static final long MIN_PARK_PERIOD_NS = 1_000;
+  private static final long MAX_PARK_PERIOD_NS = 8_000;
+
+  @Test
+  void testBackoffProgression() {
+    final var idleStrategy = new BackoffIdleStrategy(2, 2, MIN_PARK_PERIOD_NS, MAX_PARK_PERIOD_NS);
+
+    // Spinning and yielding steps
+    for (int i = 0; i < 5; i++) {
+      idleStrategy.idle();
+      assertFalse(idleStrategy.isParking(), "step: " + i);
+    }
+    idleStrategy.idle();
+    assertTrue(idleStrategy.isParking());
+    assertEquals(MIN_PARK_PERIOD_NS, idleStrategy.parkPeriodNs());
+
+    idleStrategy.idle();
+    assertEquals(MIN_PARK_PERIOD_NS * 2, idleStrategy.parkPeriodNs());
+    for (int i = 0; i < 10; i++) {
+      idleStrategy.idle();
+    }
+    assertEquals(MAX_PARK_PERIOD_NS, idleStrategy.parkPeriodNs());
+  }
+
+  @Test
+  void testResetOnWork() {
+    final var idleStrategy = new BackoffIdleStrategy(0, 0, MIN_PARK_PERIOD_NS, MAX_PARK_PERIOD_NS);
+    for (int i = 0; i < 10; i++) {
+      idleStrategy.idle(0);
+    }
+    assertTrue(idleStrategy.isParking());
+
+    idleStrategy.idle(1);
+
+    assertFalse(idleStrategy.isParking());
+    assertEquals(MIN_PARK_PERIOD_NS, idleStrategy.parkPeriodNs());
+  }
+}
@@ -0,0 +1,129 @@
+package io.syemessenger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import io.syemessenger.api.ServiceException;
+import io.syemessenger.api.ServiceMessage;
+import io.syemessenger.websocket.SessionContext;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+class InvocationHandlerTest {
+
+  private final MessageCodec messageCodec = newCodec();
+  private final SessionContext sessionContext = mock(SessionContext.class);
+
+  private static MessageCodec newCodec() {
+    final var codec = new MessageCodec(JsonMappers.jsonMapper());
+    codec.register("v1/syemessenger/test", Long.class);
+    return codec;
+  }
+
+  @Test
+  void testReplyOnCompletion() {
+    final var future = new CompletableFuture<Long>();
+    final var handler = new InvocationHandler("test", (s, m) -> future, messageCodec);
+    final var cid = UUID.randomUUID();
+
+    final var stage =
+        handler.invoke(sessionContext, new ServiceMessage().cid(cid).qualifier("test").data(1L));
+    verify(sessionContext, never()).send(any());
+    assertFalse(stage.toCompletableFuture().isDone());
+
+    future.complete(100L);
+    assertTrue(stage.toCompletableFuture().isDone());
+
+    final var captor = ArgumentCaptor.forClass(ServiceMessage.class);
+    verify(sessionContext).send(captor.capture());
+    assertEquals(cid, captor.getValue().cid());
+    assertEquals("v1/syemessenger/test", captor.getValue().qualifier());
+    assertEquals(100L, captor.getValue().data());
+  }
+
+  @Test
+  void testErrorOnExceptionalCompletion() {
+    final var future = new CompletableFuture<Long>();
+    final var handler = new InvocationHandler("test", (s, m) -> future, messageCodec);
+    final var cid = UUID.randomUUID();
+
+    handler.invoke(sessionContext, new ServiceMessage().cid(cid).qualifier("test").data(1L));
+    future.completeExceptionally(new CompletionException(new ServiceException(403, "Forbidden")));
+
+    verify(sessionContext).sendError(cid, 403, "Forbidden");
+    verify(sessionContext, never()).send(any());
+  }
+
+  @Test
+  void testInternalErrorOnExceptionalCompletion() {
+    final var future = new CompletableFuture<Long>();
+    final var handler = new InvocationHandler("test", (s, m) -> future, messageCodec);
+    final var cid = UUID.randomUUID();
+
+    handler.invoke(sessionContext, new ServiceMessage().cid(cid).qualifier("test").data(1L));
+    future.completeExceptionally(new IllegalStateException("Broker is down"));
+
+    verify(sessionContext)
+        .sendError(
+            cid, 500, "Internal service error: java.lang.IllegalStateException: Broker is down");
+  }
+
+  @Test
+  void testVoidHandler() {
+    final var handler = new InvocationHandler("test", (s, m) -> null, messageCodec);
+
+    assertNull(handler.invoke(sessionContext, new ServiceMessage().qualifier("test").data(1L)));
+
+    verify(sessionContext, never()).send(any());
+    verify(sessionContext, never()).sendError(any(), anyInt(), any());
+  }
+
+  @Test
+  void testSlowReplyIsNotOvertaken() {
+    final var slow = new CompletableFuture<Long>();
+    final var slowHandler = new InvocationHandler("test", (s, m) -> slow, messageCodec);
+    // Synchronous handler replies by itself, as controllers do
+    final var fastHandler =
+        new InvocationHandler(
+            "test",
+            (s, m) -> {
+              s.send(m.clone().data(200L));
+              return null;
+            },
+            messageCodec);
+    final var first = UUID.randomUUID();
+    final var second = UUID.randomUUID();
+
+    try (final var pool = Executors.newFixedThreadPool(2)) {
+      final var executor = new SerialExecutor(pool);
+      executor.executeAsync(
+          () ->
+              slowHandler.invoke(
+                  sessionContext, new ServiceMessage().cid(first).qualifier("test").data(1L)));
+      executor.executeAsync(
+          () ->
+              fastHandler.invoke(
+                  sessionContext, new ServiceMessage().cid(second).qualifier("test").data(2L)));
+
+      // Second request waits for reply to the first one
+      verify(sessionContext, after(100).never()).send(any());
+      slow.completeAsync(() -> 100L);
+
+      final var captor = ArgumentCaptor.forClass(ServiceMessage.class);
+      verify(sessionContext, timeout(1000).times(2)).send(captor.capture());
+      assertEquals(first, captor.getAllValues().get(0).cid());
+      assertEquals(100L, captor.getAllValues().get(0).data());
+      assertEquals(second, captor.getAllValues().get(1).cid());
+    }
+  }
+}
@@ -0,0 +1,114 @@
+package io.syemessenger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import io.syemessenger.api.ServiceMessage;
+import io.syemessenger.api.messagehistory.ListMessagesRequest;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class MessageCodecTest {
+
+  private final MessageCodec codec = newCodec();
+
+  private static MessageCodec newCodec() {
+    final var codec = new MessageCodec(JsonMappers.jsonMapper());
+    codec.register("v1/syemessenger/subscribe", Long.class);
+    codec.register("v1/syemessenger/listMessages", ListMessagesRequest.class);
+    return codec;
+  }
+
+  @Test
+  void testDecodeTyped() throws Exception {
+    final var cid = UUID.randomUUID();
+    final var request = new ListMessagesRequest().roomId(100L).keyword("hello").limit(10);
+
+    final var message =
+        codec.decode(toJson(new ServiceMessage().cid(cid).qualifier("listMessages").data(request)));
+
+    assertEquals(cid, message.cid());
+    assertEquals("v1/syemessenger/listMessages", message.qualifier());
+    final var data = assertInstanceOf(ListMessagesRequest.class, message.data());
+    assertEquals(100L, data.roomId());
+    assertEquals("hello", data.keyword());
+    assertEquals(10, data.limit());
+    assertSame(data, codec.decode(message));
+  }
+
+  @Test
+  void testDecodeNumberAsString() throws Exception {
+    final var message =
+        codec.decode("{\"qualifier\":\"v1/syemessenger/subscribe\",\"data\":\"42\"}");
+
+    assertNull(message.cid());
+    assertEquals(42L, message.data());
+  }
+
+  @Test
+  void testDecodeDataBeforeQualifier() throws Exception {
+    final var cid = UUID.randomUUID();
+    final var text =
+        "{\"data\":{\"roomId\":\"5\",\"unknown\":[1,2]},\"extra\":{\"a\":1},"
+            + "\"qualifier\":\"v1/syemessenger/listMessages\",\"cid\":\""
+            + cid
+            + "\"}";
+
+    final var message = codec.decode(text);
+
+    assertEquals(cid, message.cid());
+    assertEquals("v1/syemessenger/listMessages", message.qualifier());
+    final var data = assertInstanceOf(ListMessagesRequest.class, message.data());
+    assertEquals(5L, data.roomId());
+  }
+
+  @Test
+  void testDecodeUnknownQualifier() throws Exception {
+    final var message =
+        codec.decode("{\"qualifier\":\"v1/syemessenger/unknown\",\"data\":{\"a\":\"b\"}}");
+
+    assertEquals("v1/syemessenger/unknown", message.qualifier());
+    assertEquals(Map.of("a", "b"), message.data());
+  }
+
+  @Test
+  void testDecodeUnprefixedQualifier() throws Exception {
+    final var message = codec.decode("{\"qualifier\":\"subscribe\",\"data\":\"42\"}");
+
+    assertEquals("subscribe", message.qualifier());
+    assertEquals("42", message.data());
+  }
+
+  @Test
+  void testDecodeMismatchedData() throws Exception {
+    final var cid = UUID.randomUUID();
+    final var text =
+        "{\"cid\":\""
+            + cid
+            + "\",\"qualifier\":\"v1/syemessenger/subscribe\",\"data\":{\"roomId\":1}}";
+
+    final var message = codec.decode(text);
+
+    assertEquals(cid, message.cid());
+    assertEquals(Map.of("roomId", 1), message.data());
+    assertThrows(IllegalArgumentException.class, () -> codec.decode(message));
+  }
+
+  @Test
+  void testDecodeMissingQualifier() throws Exception {
+    final var message = codec.decode("{\"data\":{\"a\":\"b\"}}");
+
+    assertNull(message.qualifier());
+    assertEquals(Map.of("a", "b"), message.data());
+  }
+
+  @Test
+  void testDecodeMalformed() {
+    assertThrows(JsonProcessingException.class, () -> codec.decode("{\"cid\":"));
+  }
+
+  private static String toJson(ServiceMessage message) throws JsonProcessingException {
+    return JsonMappers.jsonMapper().writeValueAsString(message);
+  }
+}
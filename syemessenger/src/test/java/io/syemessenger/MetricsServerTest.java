@@ -0,0 +1,39 @@
+package io.syemessenger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse.BodyHandlers;
+import org.junit.jupiter.api.Test;
+
+class MetricsServerTest {
+
+  @Test
+  void testScrape() throws Exception {
+    final var meterRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+    meterRegistry.counter("syemessenger.test").increment(3);
+
+    try (final var metricsServer = MetricsServer.launch(0, meterRegistry);
+        final var httpClient = HttpClient.newHttpClient()) {
+      final var uri = "http://localhost:" + metricsServer.port();
+
+      final var response =
+          httpClient.send(
+              HttpRequest.newBuilder(URI.create(uri + "/metrics")).build(),
+              BodyHandlers.ofString());
+      assertEquals(200, response.statusCode());
+      assertTrue(response.body().contains("syemessenger_test_total 3.0"), response.body());
+
+      final var notFound =
+          httpClient.send(
+              HttpRequest.newBuilder(URI.create(uri + "/other")).build(),
+              BodyHandlers.ofString());
+      assertEquals(404, notFound.statusCode());
+    }
+  }
+}
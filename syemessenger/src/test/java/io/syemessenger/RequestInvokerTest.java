@@ -0,0 +1,102 @@
+package io.syemessenger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.syemessenger.api.ServiceException;
+import io.syemessenger.api.ServiceMessage;
+import io.syemessenger.websocket.SessionContext;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+
+class RequestInvokerTest {
+
+  @Test
+  void testInvoke() throws NoSuchMethodException {
+    final var controller = new TestController();
+    final var invoker =
+        RequestInvoker.create(
+            TestController.class.getDeclaredMethod(
+                "handle", SessionContext.class, ServiceMessage.class),
+            controller);
+
+    final var message = new ServiceMessage().qualifier("test").data(42L);
+    invoker.invoke(null, message);
+
+    assertSame(message, controller.lastMessage);
+  }
+
+  @Test
+  void testInvokePackagePrivateMethod() throws NoSuchMethodException {
+    final var controller = new TestController();
+    final var invoker =
+        RequestInvoker.create(
+            TestController.class.getDeclaredMethod(
+                "handlePackagePrivate", SessionContext.class, ServiceMessage.class),
+            controller);
+
+    final var message = new ServiceMessage().qualifier("test");
+    invoker.invoke(null, message);
+
+    assertSame(message, controller.lastMessage);
+  }
+
+  @Test
+  void testInvokeReturnsResult() throws NoSuchMethodException {
+    final var invoker =
+        RequestInvoker.create(
+            TestController.class.getDeclaredMethod(
+                "handleAsync", SessionContext.class, ServiceMessage.class),
+            new TestController());
+
+    final var result = invoker.invoke(null, new ServiceMessage().data(42L));
+
+    final var future = assertInstanceOf(CompletableFuture.class, result);
+    assertEquals(42L, future.join());
+  }
+
+  @Test
+  void testVoidMethodReturnsNull() throws NoSuchMethodException {
+    final var invoker =
+        RequestInvoker.create(
+            TestController.class.getDeclaredMethod(
+                "handle", SessionContext.class, ServiceMessage.class),
+            new TestController());
+
+    assertNull(invoker.invoke(null, new ServiceMessage()));
+  }
+
+  @Test
+  void testExceptionIsNotWrapped() throws NoSuchMethodException {
+    final var invoker =
+        RequestInvoker.create(
+            TestController.class.getDeclaredMethod(
+                "fail", SessionContext.class, ServiceMessage.class),
+            new TestController());
+
+    final var ex =
+        assertThrows(ServiceException.class, () -> invoker.invoke(null, new ServiceMessage()));
+    assertEquals(403, ex.errorCode());
+  }
+
+  public static class TestController {
+
+    private ServiceMessage lastMessage;
+
+    public void handle(SessionContext sessionContext, ServiceMessage message) {
+      lastMessage = message;
+    }
+
+    void handlePackagePrivate(SessionContext sessionContext, ServiceMessage message) {
+      lastMessage = message;
+    }
+
+    public CompletableFuture<Object> handleAsync(
+        SessionContext sessionContext, ServiceMessage message) {
+      return CompletableFuture.completedFuture(message.data());
+    }
+
+    public void fail(SessionContext sessionContext, ServiceMessage message) {
+      throw new ServiceException(403, "Forbidden");
+    }
+  }
+}
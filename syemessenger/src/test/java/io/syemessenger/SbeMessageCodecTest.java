@@ -0,0 +1,211 @@
+package io.syemessenger;
+
+import static org.apache.commons.lang3.RandomStringUtils.randomAlphanumeric;
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.syemessenger.api.ErrorData;
+import io.syemessenger.api.OrderBy.Direction;
+import io.syemessenger.api.ServiceException;
+import io.syemessenger.api.ServiceMessage;
+import io.syemessenger.api.message.MessageInfo;
+import io.syemessenger.api.messagehistory.ListMessagesRequest;
+import io.syemessenger.api.messagehistory.ListMessagesResponse;
+import io.syemessenger.sbe.ErrorResponseDecoder;
+import io.syemessenger.sbe.ListMessagesRequestEncoder;
+import io.syemessenger.sbe.ListMessagesResponseDecoder;
+import io.syemessenger.sbe.MessageHeaderDecoder;
+import io.syemessenger.sbe.MessageHeaderEncoder;
+import io.syemessenger.sbe.MessagesPushDecoder;
+import io.syemessenger.sbe.SendRequestEncoder;
+import io.syemessenger.sbe.SubscribeRequestEncoder;
+import java.nio.ByteBuffer;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+import org.agrona.ExpandableArrayBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.jupiter.api.Test;
+
+class SbeMessageCodecTest {
+
+  private final SbeMessageCodec codec = new SbeMessageCodec();
+
+  @Test
+  void testSubscribeRequest() {
+    final var cid = UUID.randomUUID();
+    final var roomId = Long.MAX_VALUE;
+
+    final var buffer = new ExpandableArrayBuffer();
+    final var encoder =
+        new SubscribeRequestEncoder().wrapAndApplyHeader(buffer, 0, new MessageHeaderEncoder());
+    encoder.cid().mostSigBits(cid.getMostSignificantBits());
+    encoder.cid().leastSigBits(cid.getLeastSignificantBits());
+    encoder.roomId(roomId);
+
+    final var message = codec.decode(toByteBuffer(buffer, encoder.encodedLength()));
+
+    assertEquals(cid, message.cid());
+    assertEquals("v1/syemessenger/subscribe", message.qualifier());
+    assertEquals(roomId, message.data());
+  }
+
+  @Test
+  void testSendRequest() {
+    final var text = randomAlphanumeric(100);
+
+    final var buffer = new ExpandableArrayBuffer();
+    final var encoder =
+        new SendRequestEncoder().wrapAndApplyHeader(buffer, 0, new MessageHeaderEncoder());
+    encoder.cid().mostSigBits(0).leastSigBits(0);
+    encoder.message(text);
+
+    final var message = codec.decode(toByteBuffer(buffer, encoder.encodedLength()));
+
+    assertNull(message.cid());
+    assertEquals("v1/syemessenger/send", message.qualifier());
+    assertEquals(text, message.data());
+  }
+
+  @Test
+  void testListMessagesRequest() {
+    final var from = LocalDateTime.now(Clock.systemUTC()).truncatedTo(ChronoUnit.MILLIS);
+    final var keyword = randomAlphanumeric(10);
+
+    final var buffer = new ExpandableArrayBuffer();
+    final var encoder =
+        new ListMessagesRequestEncoder().wrapAndApplyHeader(buffer, 0, new MessageHeaderEncoder());
+    encoder.cid().mostSigBits(1).leastSigBits(2);
+    encoder
+        .roomId(100)
+        .from(from.toInstant(ZoneOffset.UTC).toEpochMilli())
+        .to(ListMessagesRequestEncoder.toNullValue())
+        .pageLimit(20)
+        .pageOffset(ListMessagesRequestEncoder.pageOffsetNullValue())
+        .orderDirection(io.syemessenger.sbe.Direction.DESC)
+        .orderField("timestamp")
+        .timezone("")
+        .keyword(keyword)
+        .cursor("cursor");
+
+    final var message = codec.decode(toByteBuffer(buffer, encoder.encodedLength()));
+    final var request = (ListMessagesRequest) message.data();
+
+    assertEquals(new UUID(1, 2), message.cid());
+    assertEquals("v1/syemessenger/listMessages", message.qualifier());
+    assertEquals(100L, request.roomId());
+    assertEquals(from, request.from());
+    assertNull(request.to());
+    assertEquals(20, request.limit());
+    assertNull(request.offset());
+    assertEquals("timestamp", request.orderBy().field());
+    assertEquals(Direction.DESC, request.orderBy().direction());
+    assertNull(request.timezone());
+    assertEquals(keyword, request.keyword());
+    assertEquals("cursor", request.cursor());
+  }
+
+  @Test
+  void testMessagesPush() {
+    final var messageInfo = newMessageInfo();
+
+    final var byteBuffer =
+        codec.encode(new ServiceMessage().qualifier("messages").data(messageInfo));
+
+    final var decoder = new MessagesPushDecoder();
+    decoder.wrapAndApplyHeader(new UnsafeBuffer(byteBuffer), 0, new MessageHeaderDecoder());
+
+    assertEquals(MessagesPushDecoder.idNullValue(), decoder.id());
+    assertEquals(messageInfo.roomId(), decoder.roomId());
+    assertEquals(messageInfo.senderId(), decoder.senderId());
+    assertEquals(
+        messageInfo.timestamp().toInstant(ZoneOffset.UTC).toEpochMilli(), decoder.timestamp());
+    assertEquals(messageInfo.message(), decoder.message());
+    assertEquals(
+        MessageHeaderDecoder.ENCODED_LENGTH + decoder.encodedLength(), byteBuffer.remaining());
+  }
+
+  @Test
+  void testListMessagesResponse() {
+    final var cid = UUID.randomUUID();
+    final var messages = List.of(newMessageInfo().id(1L), newMessageInfo().id(2L));
+    final var response =
+        new ListMessagesResponse()
+            .messages(messages)
+            .limit(10)
+            .offset(0)
+            .totalCount(2L)
+            .nextCursor("nextCursor");
+
+    final var byteBuffer =
+        codec.encode(new ServiceMessage().cid(cid).qualifier("listMessages").data(response));
+
+    final var decoder = new ListMessagesResponseDecoder();
+    decoder.wrapAndApplyHeader(new UnsafeBuffer(byteBuffer), 0, new MessageHeaderDecoder());
+
+    assertEquals(cid.getMostSignificantBits(), decoder.cid().mostSigBits());
+    assertEquals(cid.getLeastSignificantBits(), decoder.cid().leastSigBits());
+    assertEquals(10, decoder.pageLimit());
+    assertEquals(0, decoder.pageOffset());
+    assertEquals(2, decoder.totalCount());
+
+    final var messagesDecoder = decoder.messages();
+    assertEquals(messages.size(), messagesDecoder.count());
+    for (var messageInfo : messages) {
+      messagesDecoder.next();
+      assertEquals(messageInfo.id(), messagesDecoder.id());
+      assertEquals(messageInfo.roomId(), messagesDecoder.roomId());
+      assertEquals(messageInfo.senderId(), messagesDecoder.senderId());
+      assertEquals(messageInfo.message(), messagesDecoder.message());
+    }
+    assertEquals("nextCursor", decoder.nextCursor());
+  }
+
+  @Test
+  void testErrorResponse() {
+    final var cid = UUID.randomUUID();
+    final var errorMessage = randomAlphanumeric(20);
+
+    final var byteBuffer =
+        codec.encode(
+            new ServiceMessage()
+                .cid(cid)
+                .qualifier("error")
+                .data(new ErrorData(404, errorMessage)));
+
+    final var decoder = new ErrorResponseDecoder();
+    decoder.wrapAndApplyHeader(new UnsafeBuffer(byteBuffer), 0, new MessageHeaderDecoder());
+
+    assertEquals(cid.getMostSignificantBits(), decoder.cid().mostSigBits());
+    assertEquals(cid.getLeastSignificantBits(), decoder.cid().leastSigBits());
+    assertEquals(404, decoder.errorCode());
+    assertEquals(errorMessage, decoder.errorMessage());
+  }
+
+  @Test
+  void testUnsupportedQualifier() {
+    assertNull(codec.encode(new ServiceMessage().qualifier("getRoom").data(1L)));
+    assertNull(codec.encode(new ServiceMessage().qualifier("send").data("text")));
+  }
+
+  @Test
+  void testMalformedFrame() {
+    final var ex =
+        assertThrows(ServiceException.class, () -> codec.decode(ByteBuffer.allocate(4)));
+    assertEquals(400, ex.errorCode());
+  }
+
+  private static MessageInfo newMessageInfo() {
+    return new MessageInfo()
+        .roomId(Long.MAX_VALUE)
+        .senderId(Long.MAX_VALUE)
+        .message(randomAlphanumeric(10))
+        .timestamp(LocalDateTime.now(Clock.systemUTC()).truncatedTo(ChronoUnit.MILLIS));
+  }
+
+  private static ByteBuffer toByteBuffer(ExpandableArrayBuffer buffer, int length) {
+    return ByteBuffer.wrap(buffer.byteArray(), 0, MessageHeaderEncoder.ENCODED_LENGTH + length);
+  }
+}
@@ -0,0 +1,158 @@
+package io.syemessenger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class SerialExecutorTest {
+
+  @Test
+  void testPerExecutorOrdering() throws InterruptedException {
+    final var sessionCount = 16;
+    final var taskCount = 1000;
+
+    try (final var pool = Executors.newFixedThreadPool(8)) {
+      final var results = new ArrayList<List<Integer>>();
+      final var latch = new CountDownLatch(sessionCount * taskCount);
+      final var executors = new ArrayList<SerialExecutor>();
+      for (int i = 0; i < sessionCount; i++) {
+        results.add(Collections.synchronizedList(new ArrayList<>()));
+        executors.add(new SerialExecutor(pool));
+      }
+
+      for (int n = 0; n < taskCount; n++) {
+        for (int i = 0; i < sessionCount; i++) {
+          final var result = results.get(i);
+          final var value = n;
+          executors
+              .get(i)
+              .execute(
+                  () -> {
+                    result.add(value);
+                    latch.countDown();
+                  });
+        }
+      }
+
+      assertTrue(latch.await(10, TimeUnit.SECONDS));
+      final var expected = IntStream.range(0, taskCount).boxed().toList();
+      for (var result : results) {
+        assertEquals(expected, result);
+      }
+    }
+  }
+
+  @Test
+  void testNoConcurrentExecution() throws InterruptedException {
+    try (final var pool = Executors.newVirtualThreadPerTaskExecutor()) {
+      final var executor = new SerialExecutor(pool);
+      final var running = new AtomicInteger();
+      final var overlaps = new AtomicInteger();
+      final var latch = new CountDownLatch(500);
+
+      IntStream.range(0, 500)
+          .parallel()
+          .forEach(
+              i ->
+                  executor.execute(
+                      () -> {
+                        if (running.incrementAndGet() > 1) {
+                          overlaps.incrementAndGet();
+                        }
+                        running.decrementAndGet();
+                        latch.countDown();
+                      }));
+
+      assertTrue(latch.await(10, TimeUnit.SECONDS));
+      assertEquals(0, overlaps.get());
+    }
+  }
+
+  @Test
+  void testFailedTaskDoesNotBreakExecutor() throws InterruptedException {
+    final var executor = new SerialExecutor(Runnable::run);
+    final var latch = new CountDownLatch(1);
+
+    executor.execute(
+        () -> {
+          throw new RuntimeException("Test");
+        });
+    executor.execute(latch::countDown);
+
+    assertTrue(latch.await(1, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void testAsyncTaskHoldsNextTasks() throws InterruptedException {
+    try (final var pool = Executors.newFixedThreadPool(2)) {
+      final var executor = new SerialExecutor(pool);
+      final var stage = new CompletableFuture<Void>();
+      final var result = Collections.synchronizedList(new ArrayList<Integer>());
+      final var latch = new CountDownLatch(1);
+
+      executor.executeAsync(
+          () -> {
+            result.add(1);
+            return stage.thenRun(() -> result.add(2));
+          });
+      executor.execute(
+          () -> {
+            result.add(3);
+            latch.countDown();
+          });
+
+      assertFalse(latch.await(100, TimeUnit.MILLISECONDS));
+      assertEquals(List.of(1), result);
+
+      stage.complete(null);
+      assertTrue(latch.await(1, TimeUnit.SECONDS));
+      assertEquals(List.of(1, 2, 3), result);
+    }
+  }
+
+  @Test
+  void testNextTasksResumeOnResumeExecutor() throws Exception {
+    try (final var resumePool =
+        Executors.newSingleThreadExecutor(Thread.ofPlatform().name("resume").factory())) {
+      final var executor = new SerialExecutor(Runnable::run, resumePool);
+      final var stage = new CompletableFuture<Void>();
+      final var thread = new CompletableFuture<String>();
+
+      executor.executeAsync(() -> stage);
+      executor.execute(() -> thread.complete(Thread.currentThread().getName()));
+      assertFalse(thread.isDone());
+
+      Thread.ofPlatform().name("completer").start(() -> stage.complete(null)).join();
+      assertEquals("resume", thread.get(1, TimeUnit.SECONDS));
+    }
+  }
+
+  @Test
+  void testCompletedAsyncTaskDoesNotHoldNextTasks() {
+    final var executor = new SerialExecutor(Runnable::run);
+    final var result = new ArrayList<Integer>();
+
+    executor.executeAsync(
+        () -> {
+          result.add(1);
+          return CompletableFuture.completedFuture(null);
+        });
+    executor.executeAsync(
+        () -> {
+          result.add(2);
+          return CompletableFuture.failedFuture(new RuntimeException("Test"));
+        });
+    executor.execute(() -> result.add(3));
+
+    assertEquals(List.of(1, 2, 3), result);
+  }
+}
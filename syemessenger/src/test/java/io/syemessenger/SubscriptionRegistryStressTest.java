@@ -0,0 +1,180 @@
+package io.syemessenger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import io.syemessenger.api.message.MessageInfo;
+import io.syemessenger.websocket.BroadcastFrame;
+import io.syemessenger.websocket.SessionContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.agrona.collections.LongArrayList;
+import org.junit.jupiter.api.Test;
+
+class SubscriptionRegistryStressTest {
+
+  private static final int ROOM_COUNT = 8;
+  private static final int STABLE_SESSIONS_PER_ROOM = 4;
+  private static final int CHURN_THREADS = 4;
+  private static final int CHURN_SESSIONS_PER_THREAD = 64;
+  private static final int BROADCAST_THREADS = 4;
+  private static final int BROADCASTS_PER_THREAD = 2_500;
+
+  private final SubscriptionRegistry subscriptionRegistry = new SubscriptionRegistry();
+  private final Map<SessionContext, AtomicLong> received = new HashMap<>();
+
+  @Test
+  void testConcurrentSubscribeUnsubscribeBroadcast() throws InterruptedException {
+    final var stableSessions = new ArrayList<List<SessionContext>>();
+    long accountId = 0;
+    for (long roomId = 0; roomId < ROOM_COUNT; roomId++) {
+      final var roomSessions = new ArrayList<SessionContext>();
+      for (int i = 0; i < STABLE_SESSIONS_PER_ROOM; i++) {
+        final var sessionContext = newSessionContext(accountId++);
+        subscriptionRegistry.subscribe(roomId, sessionContext);
+        roomSessions.add(sessionContext);
+      }
+      stableSessions.add(roomSessions);
+    }
+
+    final var churnSessions = new ArrayList<List<SessionContext>>();
+    for (int t = 0; t < CHURN_THREADS; t++) {
+      final var threadSessions = new ArrayList<SessionContext>();
+      for (int i = 0; i < CHURN_SESSIONS_PER_THREAD; i++) {
+        threadSessions.add(newSessionContext(accountId++));
+      }
+      churnSessions.add(threadSessions);
+    }
+
+    final var errors = new ConcurrentLinkedQueue<Throwable>();
+    final var stop = new AtomicBoolean();
+    final var start = new CountDownLatch(1);
+    final var broadcastsDone = new CountDownLatch(BROADCAST_THREADS);
+    final var sentPerRoom = new AtomicLong[ROOM_COUNT];
+    Arrays.setAll(sentPerRoom, i -> new AtomicLong());
+    final var threads = new ArrayList<Thread>();
+
+    for (int t = 0; t < CHURN_THREADS; t++) {
+      final var threadSessions = churnSessions.get(t);
+      threads.add(
+          Thread.ofPlatform()
+              .start(
+                  () ->
+                      run(
+                          start,
+                          errors,
+                          () -> {
+                            final var random = ThreadLocalRandom.current();
+                            while (!stop.get()) {
+                              final var sessionContext =
+                                  threadSessions.get(random.nextInt(threadSessions.size()));
+                              final long roomId = random.nextInt(ROOM_COUNT);
+                              switch (random.nextInt(3)) {
+                                case 0 -> subscriptionRegistry.subscribe(roomId, sessionContext);
+                                case 1 -> {
+                                  if (subscriptionRegistry.isSubscribed(sessionContext)) {
+                                    unsubscribeQuietly(sessionContext);
+                                  }
+                                }
+                                default -> {
+                                  final var memberIds = new LongArrayList();
+                                  memberIds.addLong(sessionContext.accountId());
+                                  subscriptionRegistry.removeMembers(roomId, memberIds);
+                                }
+                              }
+                            }
+                          })));
+    }
+
+    for (int t = 0; t < BROADCAST_THREADS; t++) {
+      threads.add(
+          Thread.ofPlatform()
+              .start(
+                  () ->
+                      run(
+                          start,
+                          errors,
+                          () -> {
+                            final var random = ThreadLocalRandom.current();
+                            for (int i = 0; i < BROADCASTS_PER_THREAD; i++) {
+                              final long roomId = random.nextInt(ROOM_COUNT);
+                              subscriptionRegistry.onRoomMessage(
+                                  new MessageInfo().roomId(roomId).senderId(1L).message("m"));
+                              sentPerRoom[(int) roomId].incrementAndGet();
+                            }
+                            broadcastsDone.countDown();
+                          })));
+    }
+
+    start.countDown();
+    broadcastsDone.await();
+    stop.set(true);
+    for (var thread : threads) {
+      thread.join();
+    }
+
+    assertTrue(errors.isEmpty(), () -> "Errors: " + errors);
+
+    // Stable subscribers never left their rooms, so must have seen every broadcast
+    for (int roomId = 0; roomId < ROOM_COUNT; roomId++) {
+      for (var sessionContext : stableSessions.get(roomId)) {
+        assertEquals(sentPerRoom[roomId].get(), received.get(sessionContext).get());
+      }
+    }
+
+    // Both indexes must agree
+    final var registry = subscriptionRegistry.registry();
+    final var sessions = subscriptionRegistry.sessions();
+    int total = 0;
+    for (var entry : registry.entrySet()) {
+      final var array = entry.getValue();
+      assertEquals(array.length, Arrays.stream(array).distinct().count());
+      for (var sessionContext : array) {
+        assertEquals(entry.getKey(), sessions.get(sessionContext));
+      }
+      total += array.length;
+    }
+    assertEquals(sessions.size(), total);
+  }
+
+  private SessionContext newSessionContext(long accountId) {
+    final var sessionContext = mock(SessionContext.class, withSettings().stubOnly());
+    final var counter = new AtomicLong();
+    when(sessionContext.accountId()).thenReturn(accountId);
+    doAnswer(invocation -> counter.incrementAndGet())
+        .when(sessionContext)
+        .sendBroadcast(any(BroadcastFrame.class));
+    received.put(sessionContext, counter);
+    return sessionContext;
+  }
+
+  private void unsubscribeQuietly(SessionContext sessionContext) {
+    try {
+      subscriptionRegistry.unsubscribe(sessionContext);
+    } catch (Exception e) {
+      // Might have been removed concurrently by removeMembers
+    }
+  }
+
+  private static void run(
+      CountDownLatch start, ConcurrentLinkedQueue<Throwable> errors, Runnable runnable) {
+    try {
+      start.await();
+      runnable.run();
+    } catch (Throwable th) {
+      errors.add(th);
+    }
+  }
+}
@@ -8,12 +8,13 @@
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
-import io.syemessenger.api.ServiceMessage;
 import io.syemessenger.api.message.MessageInfo;
+import io.syemessenger.websocket.BroadcastFrame;
 import io.syemessenger.websocket.SessionContext;
 import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 import java.util.Map;
+import org.agrona.collections.LongArrayList;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -27,7 +28,7 @@
 class SubscriptionRegistryTest {
 
   private SubscriptionRegistry subscriptionRegistry;
-  private Map<Long, List<SessionContext>> registry;
+  private Map<Long, SessionContext[]> registry;
   private Map<SessionContext, Long> sessions;
 
   @BeforeEach
@@ -59,7 +60,7 @@ void testSubscribeManyRooms() {
       subscriptionRegistry.subscribe(i, sessionContext);
 
       assertTrue(sessions.containsKey(sessionContext));
-      assertTrue(registry.get(i).contains(sessionContext));
+      assertTrue(contains(registry.get(i), sessionContext));
     }
 
     assertEquals(n, registry.size());
@@ -77,7 +78,7 @@ void testSubscribeManyRoomsManySessions() {
         subscriptionRegistry.subscribe(i, sessionContext);
 
         assertTrue(sessions.containsKey(sessionContext));
-        assertTrue(registry.get(i).contains(sessionContext));
+        assertTrue(contains(registry.get(i), sessionContext));
       }
     }
 
@@ -96,7 +97,7 @@ void testSubscribeOneRoomManySessions() {
       subscriptionRegistry.subscribe(roomId, sessionContext);
 
       assertTrue(sessions.containsKey(sessionContext));
-      assertTrue(registry.get(roomId).contains(sessionContext));
+      assertTrue(contains(registry.get(roomId), sessionContext));
     }
 
     assertEquals(1, registry.size());
@@ -115,7 +116,7 @@ void testUnsubscribe() {
       subscriptionRegistry.unsubscribe(sessionContext);
 
       assertFalse(sessions.containsKey(sessionContext));
-      assertFalse(registry.get(roomId).contains(sessionContext));
+      assertFalse(contains(registry.get(roomId), sessionContext));
     }
 
     assertEquals(1, registry.size());
@@ -136,7 +137,7 @@ void testOnRoomMessageWrongRoomId() {
           new MessageInfo().message(randomAlphanumeric(10)).roomId(Long.MAX_VALUE).senderId(i);
       subscriptionRegistry.onRoomMessage(messageInfo);
 
-      verify(sessionContext, never()).send(Mockito.any(ServiceMessage.class));
+      verify(sessionContext, never()).sendBroadcast(Mockito.any(BroadcastFrame.class));
     }
   }
 
@@ -154,7 +155,7 @@ void testOnRoomMessage() {
           new MessageInfo().message(randomAlphanumeric(10)).roomId(roomId).senderId(i);
       subscriptionRegistry.onRoomMessage(messageInfo);
 
-      verify(sessionContext, times(1)).send(Mockito.any(ServiceMessage.class));
+      verify(sessionContext, times(1)).sendBroadcast(Mockito.any(BroadcastFrame.class));
     }
   }
 
@@ -171,7 +172,7 @@ void testLeaveRoomNotOwner() {
 
     assertEquals(1, registry.size());
     assertEquals(0, sessions.size());
-    assertFalse(registry.get(id).contains(sessionContext));
+    assertFalse(contains(registry.get(id), sessionContext));
   }
 
   @Test
@@ -188,7 +189,7 @@ void testLeaveRoomNotOwnerRepeatedly() {
 
     assertEquals(1, registry.size());
     assertEquals(0, sessions.size());
-    assertFalse(registry.get(id).contains(sessionContext));
+    assertFalse(contains(registry.get(id), sessionContext));
   }
 
   @Test
@@ -238,10 +239,10 @@ void testRemoveMembers() {
       subscriptionRegistry.subscribe(roomId, sessionContext);
     }
 
-    final var removeIds = new ArrayList<Long>();
+    final var removeIds = new LongArrayList();
 
     for (long i = 0; i < removeCount; i++) {
-      removeIds.add(i);
+      removeIds.addLong(i);
     }
 
     subscriptionRegistry.removeMembers(roomId, removeIds);
@@ -262,10 +263,10 @@ void testRemoveMembersWrongRoomId() {
       subscriptionRegistry.subscribe(roomId, sessionContext);
     }
 
-    final var removeIds = new ArrayList<Long>();
+    final var removeIds = new LongArrayList();
 
     for (long i = 0; i < removeCount; i++) {
-      removeIds.add(i);
+      removeIds.addLong(i);
     }
 
     subscriptionRegistry.removeMembers(Long.MAX_VALUE, removeIds);
@@ -286,10 +287,10 @@ void testRemoveMembersRepeatedly() {
       subscriptionRegistry.subscribe(roomId, sessionContext);
     }
 
-    final var removeIds = new ArrayList<Long>();
+    final var removeIds = new LongArrayList();
 
     for (long i = 0; i < removeCount; i++) {
-      removeIds.add(i);
+      removeIds.addLong(i);
     }
 
     subscriptionRegistry.removeMembers(roomId, removeIds);
@@ -311,10 +312,10 @@ void testBlockMembers() {
       subscriptionRegistry.subscribe(roomId, sessionContext);
     }
 
-    final var removeIds = new ArrayList<Long>();
+    final var removeIds = new LongArrayList();
 
     for (long i = 0; i < blockCount; i++) {
-      removeIds.add(i);
+      removeIds.addLong(i);
     }
 
     subscriptionRegistry.blockMembers(roomId, removeIds);
@@ -335,10 +336,10 @@ void testBlockMembersRepeatedly() {
       subscriptionRegistry.subscribe(roomId, sessionContext);
     }
 
-    final var removeIds = new ArrayList<Long>();
+    final var removeIds = new LongArrayList();
 
     for (long i = 0; i < blockCount; i++) {
-      removeIds.add(i);
+      removeIds.addLong(i);
     }
 
     subscriptionRegistry.blockMembers(roomId, removeIds);
@@ -347,4 +348,106 @@ void testBlockMembersRepeatedly() {
     assertEquals(1, registry.size());
     assertEquals(n - blockCount, sessions.size());
   }
+
+  @Test
+  void testAccountSessions() {
+    final var accountId = 1L;
+    final var first = mock(SessionContext.class);
+    final var second = mock(SessionContext.class);
+    when(first.accountId()).thenReturn(accountId);
+    when(second.accountId()).thenReturn(accountId);
+
+    subscriptionRegistry.subscribe(1L, first);
+    subscriptionRegistry.subscribe(2L, second);
+    assertEquals(2, subscriptionRegistry.accountSessions(accountId).length);
+
+    subscriptionRegistry.subscribe(3L, first);
+    assertEquals(2, subscriptionRegistry.accountSessions(accountId).length);
+
+    subscriptionRegistry.unsubscribe(first);
+    assertArrayEquals(
+        new SessionContext[] {second}, subscriptionRegistry.accountSessions(accountId));
+
+    subscriptionRegistry.unsubscribe(second);
+    assertEquals(0, subscriptionRegistry.accountSessions(accountId).length);
+  }
+
+  @Test
+  void testRemoveMembersManySessionsPerAccount() {
+    final var roomId = 1L;
+    final var otherRoomId = 2L;
+    final var accountId = 1L;
+    final var sessionsPerAccount = 3;
+
+    final var removedSessions = new ArrayList<SessionContext>();
+    for (int i = 0; i < sessionsPerAccount; i++) {
+      SessionContext sessionContext = mock(SessionContext.class);
+      when(sessionContext.accountId()).thenReturn(accountId);
+      subscriptionRegistry.subscribe(roomId, sessionContext);
+      removedSessions.add(sessionContext);
+    }
+
+    SessionContext otherRoomSession = mock(SessionContext.class);
+    when(otherRoomSession.accountId()).thenReturn(accountId);
+    subscriptionRegistry.subscribe(otherRoomId, otherRoomSession);
+
+    SessionContext otherAccountSession = mock(SessionContext.class);
+    when(otherAccountSession.accountId()).thenReturn(2L);
+    subscriptionRegistry.subscribe(roomId, otherAccountSession);
+
+    final var removeIds = new LongArrayList();
+    removeIds.addLong(accountId);
+    subscriptionRegistry.removeMembers(roomId, removeIds);
+
+    for (var sessionContext : removedSessions) {
+      assertFalse(sessions.containsKey(sessionContext));
+      assertFalse(contains(registry.get(roomId), sessionContext));
+    }
+    assertTrue(contains(registry.get(roomId), otherAccountSession));
+    assertTrue(contains(registry.get(otherRoomId), otherRoomSession));
+    assertArrayEquals(
+        new SessionContext[] {otherRoomSession}, subscriptionRegistry.accountSessions(accountId));
+  }
+
+  @Test
+  void testLeaveRoomNotOwnerManySessions() {
+    final var roomId = 1L;
+    final var accountId = 1L;
+
+    SessionContext first = mock(SessionContext.class);
+    when(first.accountId()).thenReturn(accountId);
+    SessionContext second = mock(SessionContext.class);
+    when(second.accountId()).thenReturn(accountId);
+    SessionContext otherRoom = mock(SessionContext.class);
+    when(otherRoom.accountId()).thenReturn(accountId);
+
+    subscriptionRegistry.subscribe(roomId, first);
+    subscriptionRegistry.subscribe(roomId, second);
+    subscriptionRegistry.subscribe(2L, otherRoom);
+
+    subscriptionRegistry.leaveRoom(roomId, accountId, false);
+
+    assertEquals(1, sessions.size());
+    assertTrue(sessions.containsKey(otherRoom));
+    assertEquals(0, registry.get(roomId).length);
+  }
+
+  @Test
+  void testLeaveRoomOwnerNotConnected() {
+    final var roomId = 1L;
+
+    SessionContext sessionContext = mock(SessionContext.class);
+    when(sessionContext.accountId()).thenReturn(2L);
+    subscriptionRegistry.subscribe(roomId, sessionContext);
+
+    subscriptionRegistry.leaveRoom(roomId, 1L, true);
+
+    assertEquals(0, registry.size());
+    assertEquals(0, sessions.size());
+    assertEquals(0, subscriptionRegistry.accountSessions(2L).length);
+  }
+
+  private static boolean contains(SessionContext[] array, SessionContext sessionContext) {
+    return Arrays.asList(array).contains(sessionContext);
+  }
 }
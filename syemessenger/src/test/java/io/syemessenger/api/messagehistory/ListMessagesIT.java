@@ -6,10 +6,12 @@
 import static io.syemessenger.api.messagehistory.MessageHistoryAssertions.toUTC;
 import static io.syemessenger.api.room.RoomAssertions.createRoom;
 import static io.syemessenger.environment.AssertionUtils.assertCollections;
+import static io.syemessenger.environment.AssertionUtils.awaitUntil;
 import static io.syemessenger.environment.AssertionUtils.getFields;
 import static io.syemessenger.environment.AssertionUtils.toComparator;
 import static io.syemessenger.environment.IntegrationEnvironment.cleanTables;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.testcontainers.shaded.org.apache.commons.lang3.RandomStringUtils.randomAlphanumeric;
 
@@ -26,6 +28,7 @@
 import io.syemessenger.environment.OffsetLimit;
 import java.sql.SQLException;
 import java.time.Clock;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.temporal.ChronoUnit;
@@ -112,6 +115,13 @@ private static Stream<?> testListMessagesFailedMethodSource() {
             new ListMessagesRequest().roomId(Long.MAX_VALUE).keyword(randomAlphanumeric(2)),
             400,
             "Missing or invalid: keyword"),
+        new FailedArgs(
+            "Relevance order without keyword",
+            new ListMessagesRequest()
+                .roomId(Long.MAX_VALUE)
+                .orderBy(new OrderBy().field(MessageHistoryService.RELEVANCE)),
+            400,
+            "Missing or invalid: keyword"),
         new FailedArgs(
             "From is ahead of to",
             new ListMessagesRequest()
@@ -364,6 +374,158 @@ private static Stream<?> testListMessagesMethodSource() {
     return builder.build();
   }
 
+  @ParameterizedTest(name = "Direction: {0}")
+  @MethodSource("testListMessagesByCursorMethodSource")
+  void testListMessagesByCursor(
+      Direction direction, ClientSdk clientSdk, AccountInfo accountInfo, DataSource dataSource)
+      throws SQLException {
+    final var roomInfo = createRoom(accountInfo);
+    login(clientSdk, accountInfo);
+
+    final var n = 25;
+    final var limit = 10;
+    final var now = LocalDateTime.now(Clock.systemUTC()).truncatedTo(ChronoUnit.MILLIS);
+    final var messageRecords = new ArrayList<MessageRecord>();
+    for (long i = 1; i <= n; i++) {
+      // Messages saved in one batch share timestamp, so ties are broken by id
+      messageRecords.add(
+          new MessageRecord(
+              i, accountInfo.id(), roomInfo.id(), "test@" + i, now.minusHours(n - i / 2)));
+    }
+    insertRecords(dataSource, messageRecords);
+
+    var comparator =
+        Comparator.comparing(MessageRecord::timestamp).thenComparing(MessageRecord::id);
+    if (direction == Direction.DESC) {
+      comparator = comparator.reversed();
+    }
+    final var expectedRecords = messageRecords.stream().sorted(comparator).toList();
+
+    // First page is offset page, it has total count
+    var response =
+        clientSdk
+            .messageHistorySdk()
+            .listMessages(
+                new ListMessagesRequest()
+                    .roomId(roomInfo.id())
+                    .limit(limit)
+                    .orderBy(new OrderBy().direction(direction)));
+    assertEquals(n, response.totalCount(), "totalCount");
+
+    final var actualRecords = new ArrayList<MessageRecord>();
+    while (true) {
+      response.messages().stream()
+          .map(MessageHistoryAssertions::toMessageRecord)
+          .forEach(actualRecords::add);
+      if (response.nextCursor() == null) {
+        break;
+      }
+      response =
+          clientSdk
+              .messageHistorySdk()
+              .listMessages(
+                  new ListMessagesRequest()
+                      .roomId(roomInfo.id())
+                      .limit(limit)
+                      .cursor(response.nextCursor()));
+      // Keyset pages skip the count
+      assertNull(response.totalCount(), "totalCount");
+    }
+
+    assertCollections(
+        expectedRecords, actualRecords, MessageHistoryAssertions::assertMessageRecord);
+  }
+
+  private static Stream<Direction> testListMessagesByCursorMethodSource() {
+    return Stream.of(Direction.ASC, Direction.DESC);
+  }
+
+  @Test
+  void testListMessagesByInvalidCursor(ClientSdk clientSdk, AccountInfo accountInfo) {
+    final var roomInfo = createRoom(accountInfo);
+    login(clientSdk, accountInfo);
+
+    final ListMessagesRequest[] requests = {
+      new ListMessagesRequest().roomId(roomInfo.id()).cursor("???"),
+      new ListMessagesRequest().roomId(roomInfo.id()).cursor("QVND").offset(10),
+      new ListMessagesRequest()
+          .roomId(roomInfo.id())
+          .cursor("QVND")
+          .orderBy(new OrderBy().field("id")),
+    };
+    for (var request : requests) {
+      try {
+        clientSdk.messageHistorySdk().listMessages(request);
+        fail("Expected exception");
+      } catch (Exception ex) {
+        assertError(ex, 400, "Missing or invalid: cursor");
+      }
+    }
+  }
+
+  @Test
+  void testListMessagesByRelevance(
+      ClientSdk clientSdk, AccountInfo accountInfo, DataSource dataSource) throws SQLException {
+    final var roomInfo = createRoom(accountInfo);
+    login(clientSdk, accountInfo);
+
+    final var now = LocalDateTime.now(Clock.systemUTC()).truncatedTo(ChronoUnit.MILLIS);
+    final var exact = new MessageRecord(1L, accountInfo.id(), roomInfo.id(), "hello", now);
+    final var partial =
+        new MessageRecord(
+            2L, accountInfo.id(), roomInfo.id(), "well, hellothere", now.minusHours(2));
+    final var other =
+        new MessageRecord(3L, accountInfo.id(), roomInfo.id(), "bye", now.minusHours(1));
+    insertRecords(dataSource, List.of(exact, partial, other));
+
+    final var response =
+        clientSdk
+            .messageHistorySdk()
+            .listMessages(
+                new ListMessagesRequest()
+                    .roomId(roomInfo.id())
+                    .keyword("hello")
+                    .orderBy(new OrderBy().field(MessageHistoryService.RELEVANCE)));
+    assertEquals(2, response.totalCount(), "totalCount");
+    // Relevance order is not keyset order
+    assertNull(response.nextCursor(), "nextCursor");
+    assertCollections(
+        List.of(exact, partial),
+        response.messages().stream().map(MessageHistoryAssertions::toMessageRecord).toList(),
+        MessageHistoryAssertions::assertMessageRecord);
+  }
+
+  @Test
+  void testListMessagesOfRoomOnly(
+      ClientSdk clientSdk, AccountInfo accountInfo, DataSource dataSource) throws SQLException {
+    final var roomInfo = createRoom(accountInfo);
+    final var anotherRoomInfo = createRoom(accountInfo);
+    login(clientSdk, accountInfo);
+
+    final var now = LocalDateTime.now(Clock.systemUTC()).truncatedTo(ChronoUnit.MILLIS);
+    final var messageRecords = new ArrayList<MessageRecord>();
+    final var anotherMessageRecords = new ArrayList<MessageRecord>();
+    for (long i = 1; i <= 10; i++) {
+      final var room = i % 2 == 0 ? roomInfo : anotherRoomInfo;
+      final var messageRecord =
+          new MessageRecord(i, accountInfo.id(), room.id(), "test@" + i, now.minusHours(10 - i));
+      (room == roomInfo ? messageRecords : anotherMessageRecords).add(messageRecord);
+    }
+    insertRecords(
+        dataSource,
+        Stream.concat(messageRecords.stream(), anotherMessageRecords.stream())
+            .sorted(Comparator.comparing(MessageRecord::id))
+            .toList());
+
+    final var response =
+        clientSdk.messageHistorySdk().listMessages(new ListMessagesRequest().roomId(roomInfo.id()));
+    assertEquals(messageRecords.size(), response.totalCount(), "totalCount");
+    assertCollections(
+        messageRecords,
+        response.messages().stream().map(MessageHistoryAssertions::toMessageRecord).toList(),
+        MessageHistoryAssertions::assertMessageRecord);
+  }
+
   @Test
   void testListMessagesWithDifferentTimezones(
       ClientSdk clientSdk, AccountInfo accountInfo, DataSource dataSource) throws SQLException {
@@ -401,4 +563,35 @@ void testListMessagesWithDifferentTimezones(
     assertEquals(1, responseLA.totalCount());
     assertEquals(1, responseTokyo.totalCount());
   }
+
+  @Test
+  void testListMessagesAfterSend(ClientSdk clientSdk, AccountInfo accountInfo) {
+    final var roomInfo = createRoom(accountInfo);
+    login(clientSdk, accountInfo);
+    clientSdk.messageSdk().subscribe(roomInfo.id());
+
+    final var n = 10;
+    final var texts = new ArrayList<String>();
+    for (int i = 0; i < n; i++) {
+      texts.add("test@" + i);
+      clientSdk.messageSdk().send(texts.getLast());
+      // Recent messages are reloaded while history is being saved
+      clientSdk.messageHistorySdk().listMessages(new ListMessagesRequest().roomId(roomInfo.id()));
+    }
+
+    // Recent messages expire after a minute, so head must be dropped once history is saved
+    final var response =
+        awaitUntil(
+            () -> {
+              final var r =
+                  clientSdk
+                      .messageHistorySdk()
+                      .listMessages(new ListMessagesRequest().roomId(roomInfo.id()));
+              return r.totalCount() == n ? r : null;
+            },
+            Duration.ofSeconds(10));
+    assertEquals(
+        texts.stream().sorted().toList(),
+        response.messages().stream().map(MessageInfo::message).sorted().toList());
+  }
 }
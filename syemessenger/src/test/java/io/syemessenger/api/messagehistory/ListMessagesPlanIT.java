@@ -0,0 +1,182 @@
+package io.syemessenger.api.messagehistory;
+
+import static io.syemessenger.environment.IntegrationEnvironment.cleanTables;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.syemessenger.api.account.AccountInfo;
+import io.syemessenger.api.messagehistory.repository.HistoryMessageRepository;
+import io.syemessenger.environment.IntegrationEnvironmentExtension;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Guards the room history queries against regressions to full table scans: plans of the page and
+ * of the count query must read only the room, through {@code messages_room_id_timestamp_idx}, and
+ * keyword search in a busy room must go through {@code messages_message_trgm_idx}. Both indexes
+ * are on partitioned table, so plans name indexes of partitions, which are generated by Postgres
+ * from partition name and indexed columns. Time bounds must prune partitions.
+ */
+@ExtendWith(IntegrationEnvironmentExtension.class)
+public class ListMessagesPlanIT {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ListMessagesPlanIT.class);
+
+  private static final String INDEX = "_room_id_timestamp_id_idx";
+  private static final String TRGM_INDEX = "_lower_idx";
+  private static final int MESSAGES = 500_000;
+  private static final DateTimeFormatter PARTITION_FORMAT = DateTimeFormatter.ofPattern("yyyy_MM");
+
+  @AfterEach
+  void afterEach(DataSource dataSource) {
+    cleanTables(dataSource);
+  }
+
+  @Test
+  void testListMessagesUsesRoomIndex(AccountInfo accountInfo, DataSource dataSource)
+      throws SQLException {
+    try (final var connection = dataSource.getConnection()) {
+      final var roomId = insertMessages(connection, accountInfo.id(), 200);
+
+      final var query = bind(HistoryMessageRepository.LIST_MESSAGES, roomId, null);
+
+      final var pagePlan =
+          explain(connection, query + " ORDER BY m.timestamp ASC, m.id ASC LIMIT 50 OFFSET 100");
+      assertTrue(pagePlan.contains(INDEX), pagePlan);
+      assertFalse(pagePlan.contains("Seq Scan"), pagePlan);
+      // Partitions are merged in index order, with no sort node
+      assertFalse(pagePlan.contains("Sort  ("), pagePlan);
+
+      final var countPlan = explain(connection, query.replace("SELECT *", "SELECT count(*)"));
+      assertTrue(countPlan.contains(INDEX), countPlan);
+      assertFalse(countPlan.contains("Seq Scan"), countPlan);
+    }
+  }
+
+  @Test
+  void testKeywordSearchUsesTrigramIndex(AccountInfo accountInfo, DataSource dataSource)
+      throws SQLException {
+    try (final var connection = dataSource.getConnection()) {
+      // Busy room: half of all messages
+      final var roomId = insertMessages(connection, accountInfo.id(), 2);
+      final String keyword;
+      try (final var statement =
+              connection.prepareStatement(
+                  "SELECT substr(message, 5, 10) FROM messages WHERE room_id = "
+                      + roomId
+                      + " LIMIT 1");
+          final var resultSet = statement.executeQuery()) {
+        resultSet.next();
+        keyword = resultSet.getString(1);
+      }
+
+      final var query =
+          bind(
+              HistoryMessageRepository.LIST_MESSAGES + HistoryMessageRepository.KEYWORD,
+              roomId,
+              keyword);
+
+      final var pagePlan = explain(connection, query + " ORDER BY m.timestamp, m.id LIMIT 50");
+      assertTrue(pagePlan.contains(TRGM_INDEX), pagePlan);
+      assertFalse(pagePlan.contains("Seq Scan"), pagePlan);
+
+      final var countPlan =
+          explain(connection, query.replace("SELECT *", "SELECT count(*)"));
+      assertTrue(countPlan.contains(TRGM_INDEX), countPlan);
+      assertFalse(countPlan.contains("Seq Scan"), countPlan);
+    }
+  }
+
+  @Test
+  void testListMessagesPrunesPartitions(AccountInfo accountInfo, DataSource dataSource)
+      throws SQLException {
+    try (final var connection = dataSource.getConnection()) {
+      final var roomId = insertMessages(connection, accountInfo.id(), 200);
+      final var month = LocalDate.now(ZoneOffset.UTC).withDayOfMonth(1);
+      final var partition = "messages_" + month.format(PARTITION_FORMAT);
+
+      final var query =
+          HistoryMessageRepository.LIST_MESSAGES
+              .replace(":roomId", String.valueOf(roomId))
+              .replace(":from", "date '" + month + "'")
+              .replace(":to", "date '" + month + "' + interval '1 month' - interval '1 second'");
+
+      final var pagePlan = explain(connection, query + " ORDER BY m.timestamp, m.id LIMIT 50");
+      assertTrue(pagePlan.contains(partition), pagePlan);
+      assertFalse(pagePlan.contains("messages_default"), pagePlan);
+      assertFalse(
+          pagePlan.contains("messages_" + month.minusMonths(1).format(PARTITION_FORMAT)),
+          pagePlan);
+      assertFalse(
+          pagePlan.contains("messages_" + month.plusMonths(1).format(PARTITION_FORMAT)),
+          pagePlan);
+    }
+  }
+
+  private static String bind(String query, long roomId, String keyword) {
+    return query
+        .replace(":roomId", String.valueOf(roomId))
+        .replace(":keyword", "'" + keyword + "'")
+        .replace(":from", "timestamp '1970-01-01'")
+        .replace(":to", "now()");
+  }
+
+  /**
+   * Inserts {@link #MESSAGES} messages with random text evenly spread over given number of new
+   * rooms.
+   *
+   * @return id of one of the rooms
+   */
+  private static long insertMessages(Connection connection, long accountId, int rooms)
+      throws SQLException {
+    try (final var statement =
+        connection.prepareStatement(
+            "INSERT INTO rooms (name, owner_id, created_at, updated_at) "
+                + "SELECT 'plan-' || g, ?, now(), now() FROM generate_series(1, ?) g")) {
+      statement.setLong(1, accountId);
+      statement.setInt(2, rooms);
+      statement.executeUpdate();
+    }
+    try (final var statement =
+        connection.prepareStatement(
+            "INSERT INTO messages (sender_id, room_id, message, timestamp) "
+                + "SELECT ?, r.id, md5(g::text), now() - g * interval '1 second' "
+                + "FROM generate_series(1, ?) g "
+                + "JOIN rooms r ON r.name = 'plan-' || (1 + g % ?)")) {
+      statement.setLong(1, accountId);
+      statement.setInt(2, MESSAGES);
+      statement.setInt(3, rooms);
+      statement.executeUpdate();
+    }
+    try (final var statement = connection.prepareStatement("ANALYZE messages")) {
+      statement.execute();
+    }
+    try (final var statement =
+            connection.prepareStatement("SELECT id FROM rooms WHERE name = 'plan-1'");
+        final var resultSet = statement.executeQuery()) {
+      resultSet.next();
+      return resultSet.getLong(1);
+    }
+  }
+
+  private static String explain(Connection connection, String query) throws SQLException {
+    try (final var statement = connection.prepareStatement("EXPLAIN " + query);
+        final var resultSet = statement.executeQuery()) {
+      final var plan = new StringBuilder();
+      while (resultSet.next()) {
+        plan.append(resultSet.getString(1)).append('\n');
+      }
+      LOGGER.info("Plan of {}:\n{}", query, plan);
+      return plan.toString();
+    }
+  }
+}
@@ -0,0 +1,84 @@
+package io.syemessenger.api.messagehistory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.syemessenger.api.OffsetPageable;
+import io.syemessenger.api.OrderBy.Direction;
+import io.syemessenger.api.ServiceException;
+import io.syemessenger.api.messagehistory.repository.HistoryMessage;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+
+class MessageCursorTest {
+
+  private static final LocalDateTime TIMESTAMP =
+      LocalDateTime.of(2024, 5, 1, 10, 20, 30, 123_456_000);
+
+  @Test
+  void testEncodeDecode() {
+    final var cursor =
+        MessageCursor.decode(new MessageCursor(TIMESTAMP, 42, Direction.DESC).encode());
+
+    assertEquals(TIMESTAMP, cursor.timestamp());
+    assertEquals(42, cursor.id());
+    assertEquals(Direction.DESC, cursor.direction());
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"", "???", "QVND", "WFlaOjE6Mg", "QVNDOng6Mg", "QVNDOjE6Mjoz"})
+  void testDecodeInvalid(String cursor) {
+    final var ex = assertThrows(ServiceException.class, () -> MessageCursor.decode(cursor));
+    assertEquals(400, ex.errorCode());
+    assertEquals("Missing or invalid: cursor", ex.getMessage());
+  }
+
+  @Test
+  void testNextOfKeysetSlice() {
+    final var messages = List.of(newMessage(1), newMessage(2));
+
+    final var cursor =
+        MessageCursor.next(
+            new SliceImpl<>(messages, PageRequest.of(0, 2, MessageCursor.DESC_ORDER), true));
+
+    final var decoded = MessageCursor.decode(cursor);
+    assertEquals(2, decoded.id());
+    assertEquals(Direction.DESC, decoded.direction());
+
+    assertNull(
+        MessageCursor.next(
+            new SliceImpl<>(messages, PageRequest.of(0, 2, MessageCursor.DESC_ORDER), false)));
+  }
+
+  @Test
+  void testNextOfOffsetPage() {
+    final var messages = List.of(newMessage(6), newMessage(7));
+
+    final var cursor =
+        MessageCursor.next(
+            new PageImpl<>(messages, new OffsetPageable(5, 2, MessageCursor.ASC_ORDER), 10));
+    assertEquals(7, MessageCursor.decode(cursor).id());
+    assertEquals(Direction.ASC, MessageCursor.decode(cursor).direction());
+
+    // Last page
+    assertNull(
+        MessageCursor.next(
+            new PageImpl<>(messages, new OffsetPageable(5, 2, MessageCursor.ASC_ORDER), 7)));
+    // Not in keyset order
+    assertNull(
+        MessageCursor.next(
+            new PageImpl<>(messages, new OffsetPageable(5, 2, Sort.by("sender_id")), 10)));
+  }
+
+  private static HistoryMessage newMessage(long id) {
+    return new HistoryMessage().id(id).timestamp(TIMESTAMP.plusSeconds(id));
+  }
+}
@@ -0,0 +1,126 @@
+package io.syemessenger.api.messagehistory;
+
+import static io.syemessenger.environment.IntegrationEnvironment.cleanTables;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.syemessenger.api.account.AccountInfo;
+import io.syemessenger.environment.IntegrationEnvironmentExtension;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * Messages which landed in the default partition must not block creating partition of their month,
+ * otherwise {@link MessagePartitionManager} fails on it on every run.
+ */
+@ExtendWith(IntegrationEnvironmentExtension.class)
+public class MessagePartitionIT {
+
+  private static final DateTimeFormatter PARTITION_FORMAT = DateTimeFormatter.ofPattern("yyyy_MM");
+
+  // Far beyond messagesPartitionsAhead, so nothing creates partition of the month
+  private final LocalDate month = LocalDate.now(ZoneOffset.UTC).withDayOfMonth(1).plusYears(5);
+  private final String partition = "messages_" + month.format(PARTITION_FORMAT);
+
+  @AfterEach
+  void afterEach(DataSource dataSource) throws SQLException {
+    try (final var connection = dataSource.getConnection();
+        final var statement =
+            connection.prepareStatement("DROP TABLE IF EXISTS " + partition)) {
+      statement.execute();
+    }
+    cleanTables(dataSource);
+  }
+
+  @Test
+  void testCreatePartitionMovesRowsOutOfDefault(AccountInfo accountInfo, DataSource dataSource)
+      throws SQLException {
+    try (final var connection = dataSource.getConnection()) {
+      final var roomId = insertRoom(connection, accountInfo.id());
+      // Partition of the month does not exist yet
+      insertMessage(connection, accountInfo.id(), roomId, month.atStartOfDay().plusHours(1));
+      insertMessage(connection, accountInfo.id(), roomId, month.plusMonths(1).atStartOfDay());
+      assertEquals(2, queryLong(connection, "SELECT count(*) FROM messages_default"));
+
+      assertTrue(createPartition(connection, month));
+      assertFalse(createPartition(connection, month));
+
+      assertEquals(1, queryLong(connection, "SELECT count(*) FROM " + partition));
+      // Row of the next month stays in the default partition
+      assertEquals(1, queryLong(connection, "SELECT count(*) FROM messages_default"));
+      assertEquals(2, queryLong(connection, "SELECT count(*) FROM messages"));
+    }
+  }
+
+  @Test
+  void testLegacyHistoryIsNotRepartitioned(AccountInfo accountInfo, DataSource dataSource)
+      throws SQLException {
+    final var currentMonth = LocalDate.now(ZoneOffset.UTC).withDayOfMonth(1);
+    try (final var connection = dataSource.getConnection()) {
+      final var roomId = insertRoom(connection, accountInfo.id());
+      insertMessage(connection, accountInfo.id(), roomId, currentMonth.atStartOfDay());
+
+      // Existing history table is the partition of every month before its bound
+      assertFalse(createPartition(connection, currentMonth));
+      assertEquals(1, queryLong(connection, "SELECT count(*) FROM messages_legacy"));
+      assertEquals(0, queryLong(connection, "SELECT count(*) FROM messages_default"));
+    }
+  }
+
+  private static long insertRoom(Connection connection, long accountId) throws SQLException {
+    try (final var statement =
+        connection.prepareStatement(
+            "INSERT INTO rooms (name, owner_id, created_at, updated_at) "
+                + "VALUES ('partition-room', ?, now(), now()) RETURNING id")) {
+      statement.setLong(1, accountId);
+      try (final var resultSet = statement.executeQuery()) {
+        resultSet.next();
+        return resultSet.getLong(1);
+      }
+    }
+  }
+
+  private static void insertMessage(
+      Connection connection, long accountId, long roomId, LocalDateTime timestamp)
+      throws SQLException {
+    try (final var statement =
+        connection.prepareStatement(
+            "INSERT INTO messages (sender_id, room_id, message, timestamp) "
+                + "VALUES (?, ?, 'test', ?)")) {
+      statement.setLong(1, accountId);
+      statement.setLong(2, roomId);
+      statement.setTimestamp(3, Timestamp.valueOf(timestamp));
+      statement.executeUpdate();
+    }
+  }
+
+  private static boolean createPartition(Connection connection, LocalDate month)
+      throws SQLException {
+    try (final var statement = connection.prepareStatement("SELECT create_messages_partition(?)")) {
+      statement.setDate(1, Date.valueOf(month));
+      try (final var resultSet = statement.executeQuery()) {
+        resultSet.next();
+        return resultSet.getBoolean(1);
+      }
+    }
+  }
+
+  private static long queryLong(Connection connection, String query) throws SQLException {
+    try (final var statement = connection.prepareStatement(query);
+        final var resultSet = statement.executeQuery()) {
+      resultSet.next();
+      return resultSet.getLong(1);
+    }
+  }
+}
@@ -0,0 +1,105 @@
+package io.syemessenger.api.messagehistory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.syemessenger.ServiceConfig;
+import io.syemessenger.api.messagehistory.repository.HistoryMessageRepository;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class MessagePartitionManagerTest {
+
+  @Mock private HistoryMessageRepository historyMessageRepository;
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  @Test
+  void testCreatePartitionsAhead() {
+    final var config =
+        new ServiceConfig().messagesPartitionInterval(60_000).messagesPartitionsAhead(2);
+    final var month = LocalDate.now(ZoneOffset.UTC).withDayOfMonth(1);
+    when(historyMessageRepository.createPartition(any())).thenReturn(false);
+    when(historyMessageRepository.createPartition(month.plusMonths(2))).thenReturn(true);
+
+    final var manager =
+        new MessagePartitionManager(config, historyMessageRepository, meterRegistry);
+    assertEquals(1, manager.doWork());
+
+    verify(historyMessageRepository).createPartition(month);
+    verify(historyMessageRepository).createPartition(month.plusMonths(1));
+    verify(historyMessageRepository).createPartition(month.plusMonths(2));
+    // Retention is not set
+    verify(historyMessageRepository, never()).detachPartitions(any());
+    assertEquals(1, meterRegistry.get("messages.partitions.created").counter().count());
+  }
+
+  @Test
+  void testDetachPartitionsAfterRetention() {
+    final var config =
+        new ServiceConfig()
+            .messagesPartitionInterval(60_000)
+            .messagesPartitionsAhead(0)
+            .messagesRetentionMonths(6);
+    final var month = LocalDate.now(ZoneOffset.UTC).withDayOfMonth(1);
+    when(historyMessageRepository.createPartition(month)).thenReturn(false);
+    when(historyMessageRepository.detachPartitions(month.minusMonths(6))).thenReturn(3);
+
+    final var manager =
+        new MessagePartitionManager(config, historyMessageRepository, meterRegistry);
+    assertEquals(3, manager.doWork());
+    assertEquals(3, meterRegistry.get("messages.partitions.detached").counter().count());
+  }
+
+  @Test
+  void testFailedPartitionDoesNotStopMaintenance() {
+    final var config =
+        new ServiceConfig()
+            .messagesPartitionInterval(60_000)
+            .messagesPartitionsAhead(2)
+            .messagesRetentionMonths(6);
+    final var month = LocalDate.now(ZoneOffset.UTC).withDayOfMonth(1);
+    when(historyMessageRepository.createPartition(any())).thenReturn(true);
+    when(historyMessageRepository.createPartition(month.plusMonths(1)))
+        .thenThrow(new IllegalStateException("Lock timeout"));
+    when(historyMessageRepository.detachPartitions(month.minusMonths(6))).thenReturn(1);
+
+    final var manager =
+        new MessagePartitionManager(config, historyMessageRepository, meterRegistry);
+    assertEquals(3, manager.doWork());
+
+    verify(historyMessageRepository).createPartition(month.plusMonths(2));
+    assertEquals(2, meterRegistry.get("messages.partitions.created").counter().count());
+    assertEquals(1, meterRegistry.get("messages.partitions.failed").counter().count());
+  }
+
+  @Test
+  void testMaintenanceIsRateLimited() {
+    final var config =
+        new ServiceConfig()
+            .messagesPartitionInterval(60_000)
+            .messagesPartitionsAhead(0)
+            .messagesRetentionMonths(1);
+    when(historyMessageRepository.createPartition(any())).thenReturn(true);
+
+    final var manager =
+        new MessagePartitionManager(config, historyMessageRepository, meterRegistry);
+    assertEquals(1, manager.doWork());
+    // Next run waits for messagesPartitionInterval
+    assertEquals(0, manager.doWork());
+    assertEquals(0, manager.doWork());
+
+    verify(historyMessageRepository, times(1)).createPartition(any());
+    verify(historyMessageRepository, times(1)).detachPartitions(any());
+  }
+}
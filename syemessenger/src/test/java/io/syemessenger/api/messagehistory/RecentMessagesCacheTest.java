@@ -0,0 +1,166 @@
+package io.syemessenger.api.messagehistory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.syemessenger.ServiceConfig;
+import io.syemessenger.api.messagehistory.repository.HistoryMessage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongFunction;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+
+class RecentMessagesCacheTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final AtomicInteger loads = new AtomicInteger();
+
+  @Test
+  void testLoadOnce() {
+    final var cache = newCache(60_000, 100);
+
+    final var messages = cache.get(1L, this::load);
+    assertSame(messages, cache.get(1L, this::load));
+    assertSame(messages, cache.get(1L, this::load));
+
+    assertEquals(1, loads.get());
+    assertEquals(3, cache.size());
+    assertEquals(2, meterRegistry.get("history.recent.hits").counter().count());
+  }
+
+  @Test
+  void testInvalidate() {
+    final var cache = newCache(60_000, 100);
+
+    final var messages = cache.get(1L, this::load);
+    cache.get(2L, this::load);
+    cache.invalidate(1L);
+    assertEquals(3, cache.size());
+
+    final var reloaded = cache.get(1L, this::load);
+    assertEquals(messages.getContent().size(), reloaded.getContent().size());
+    assertEquals(3, loads.get());
+  }
+
+  @Test
+  void testInvalidateAll() {
+    final var cache = newCache(60_000, 100);
+
+    cache.get(1L, this::load);
+    cache.get(2L, this::load);
+    cache.invalidateAll();
+    assertEquals(0, cache.size());
+
+    cache.get(1L, this::load);
+    assertEquals(3, loads.get());
+    assertEquals(3, cache.size());
+  }
+
+  @Test
+  void testExpire() throws InterruptedException {
+    final var cache = newCache(1, 100);
+
+    cache.get(1L, this::load);
+    TimeUnit.MILLISECONDS.sleep(5);
+    cache.get(1L, this::load);
+
+    assertEquals(2, loads.get());
+    assertEquals(3, cache.size());
+  }
+
+  @Test
+  void testEvictLeastRecentlyRead() {
+    final var cache = newCache(60_000, 7);
+
+    cache.get(1L, this::load);
+    cache.get(2L, this::load);
+    // Room 1 becomes the most recently read
+    cache.get(1L, this::load);
+    cache.get(3L, this::load);
+    assertEquals(6, cache.size());
+    assertEquals(3, loads.get());
+
+    cache.get(1L, this::load);
+    cache.get(3L, this::load);
+    assertEquals(3, loads.get());
+
+    // Room 2 is evicted
+    cache.get(2L, this::load);
+    assertEquals(4, loads.get());
+  }
+
+  @Test
+  void testConcurrentLoadsAreCoalesced() throws Exception {
+    final var cache = newCache(60_000, 100);
+    final var started = new CountDownLatch(1);
+    final var release = new CountDownLatch(1);
+    final LongFunction<Page<HistoryMessage>> blockingLoader =
+        roomId -> {
+          started.countDown();
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+          }
+          return load(roomId);
+        };
+
+    final var owner = CompletableFuture.supplyAsync(() -> cache.get(1L, blockingLoader));
+    started.await();
+    final var waiters = new ArrayList<CompletableFuture<Page<HistoryMessage>>>();
+    for (int i = 0; i < 4; i++) {
+      waiters.add(CompletableFuture.supplyAsync(() -> cache.get(1L, blockingLoader)));
+    }
+    release.countDown();
+
+    final var messages = owner.get(5, TimeUnit.SECONDS);
+    for (var waiter : waiters) {
+      assertSame(messages, waiter.get(5, TimeUnit.SECONDS));
+    }
+    assertEquals(1, loads.get());
+  }
+
+  @Test
+  void testLoadFailure() {
+    final var cache = newCache(60_000, 100);
+
+    assertThrows(
+        IllegalStateException.class,
+        () ->
+            cache.get(
+                1L,
+                roomId -> {
+                  throw new IllegalStateException("Connection refused");
+                }));
+    assertEquals(0, cache.size());
+
+    cache.get(1L, this::load);
+    assertEquals(1, loads.get());
+  }
+
+  private RecentMessagesCache newCache(int ttl, int capacity) {
+    return new RecentMessagesCache(
+        new ServiceConfig()
+            .recentMessagesPerRoom(3)
+            .recentMessagesCapacity(capacity)
+            .recentMessagesTtl(ttl),
+        meterRegistry);
+  }
+
+  private Page<HistoryMessage> load(long roomId) {
+    loads.incrementAndGet();
+    final var messages = new ArrayList<HistoryMessage>();
+    for (long id = 3; id >= 1; id--) {
+      messages.add(new HistoryMessage().id(id).roomId(roomId).message("test@" + id));
+    }
+    return new PageImpl<>(List.copyOf(messages));
+  }
+}
@@ -0,0 +1,149 @@
+package io.syemessenger.api.room.outbox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.syemessenger.ServiceConfig;
+import io.syemessenger.api.room.outbox.repository.RoomEventRepository;
+import io.syemessenger.environment.IntegrationEnvironment;
+import io.syemessenger.environment.IntegrationEnvironmentExtension;
+import io.syemessenger.kafka.KafkaMessageCodec;
+import io.syemessenger.kafka.dto.LeaveRoomEvent;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(IntegrationEnvironmentExtension.class)
+public class OutboxCompactionIT {
+
+  private static final int EVENTS = 1000;
+  private static final int BATCH_SIZE = 10;
+  private static final Duration TIMEOUT = Duration.ofSeconds(10);
+  private static final String PENDING_EVENTS =
+      "SELECT count(*) FROM outbox_room_events e JOIN outbox_position p "
+          + "ON p.id = mod(e.room_id, "
+          + RoomEventRepository.PARTITIONS
+          + ") WHERE (e.xid, e.id) > (p.position_xid, p.position)";
+
+  @Test
+  void testPublishedEventsArePruned(IntegrationEnvironment environment, DataSource dataSource)
+      throws Exception {
+    final var meterRegistry = new SimpleMeterRegistry();
+    final var outboxCompactor =
+        new OutboxCompactor(
+            new ServiceConfig()
+                .roomOutboxCompactionInterval(0)
+                .roomOutboxCompactionBatchSize(BATCH_SIZE),
+            environment.getBean(RoomEventRepository.class),
+            meterRegistry);
+
+    try (final var connection = dataSource.getConnection()) {
+      insertEvents(connection);
+      final var start = System.nanoTime();
+      while (queryLong(connection, PENDING_EVENTS) > 0) {
+        assertTrue(System.nanoTime() - start < TIMEOUT.toNanos(), "Outbox is not drained");
+        //noinspection BusyWait
+        Thread.sleep(10);
+      }
+
+      final var before = queryLong(connection, "SELECT count(*) FROM outbox_room_events");
+      assertTrue(before >= EVENTS, "before: " + before);
+
+      // Every compaction is bounded by batch size per partition
+      final var firstPruned = outboxCompactor.doWork();
+      assertTrue(firstPruned <= BATCH_SIZE * RoomEventRepository.PARTITIONS);
+
+      long pruned = firstPruned;
+      int workCount;
+      while ((workCount = outboxCompactor.doWork()) > 0) {
+        pruned += workCount;
+      }
+
+      assertEquals(before, pruned);
+      assertEquals(0, queryLong(connection, "SELECT count(*) FROM outbox_room_events"));
+      assertEquals(pruned, meterRegistry.get("outbox.compaction.pruned").counter().count());
+      assertTrue(meterRegistry.get("outbox.table.size").gauge().value() > 0);
+    }
+  }
+
+  @Test
+  void testLateCommittedEventIsNotPruned(IntegrationEnvironment environment, DataSource dataSource)
+      throws Exception {
+    final var outboxCompactor =
+        new OutboxCompactor(
+            new ServiceConfig()
+                .roomOutboxCompactionInterval(0)
+                .roomOutboxCompactionBatchSize(BATCH_SIZE),
+            environment.getBean(RoomEventRepository.class),
+            new SimpleMeterRegistry());
+
+    try (final var connection = dataSource.getConnection();
+        final var lateConnection = dataSource.getConnection()) {
+      lateConnection.setAutoCommit(false);
+      final var lateEventId = insertEvent(lateConnection);
+      final var eventId = insertEvent(connection);
+      assertTrue(lateEventId < eventId);
+
+      // Processor and compactor run while event with lower id is not committed yet
+      Thread.sleep(500);
+      //noinspection StatementWithEmptyBody
+      while (outboxCompactor.doWork() > 0) {}
+
+      lateConnection.commit();
+      final var lateEvents =
+          queryLong(
+              connection, "SELECT count(*) FROM outbox_room_events WHERE id = " + lateEventId);
+      assertEquals(1, lateEvents);
+
+      final var start = System.nanoTime();
+      while (queryLong(connection, PENDING_EVENTS) > 0) {
+        assertTrue(System.nanoTime() - start < TIMEOUT.toNanos(), "Outbox is not drained");
+        //noinspection BusyWait
+        Thread.sleep(10);
+      }
+    }
+  }
+
+  private static long insertEvent(Connection connection) throws SQLException {
+    final var data =
+        KafkaMessageCodec.encodeLeaveRoomEvent(
+                new LeaveRoomEvent().roomId(Long.MAX_VALUE).accountId(Long.MAX_VALUE))
+            .array();
+    try (final var statement =
+        connection.prepareStatement(
+            "INSERT INTO outbox_room_events (room_id, data) VALUES (2000000000, ?) RETURNING id")) {
+      statement.setBytes(1, data);
+      try (final var resultSet = statement.executeQuery()) {
+        resultSet.next();
+        return resultSet.getLong(1);
+      }
+    }
+  }
+
+  private static void insertEvents(Connection connection) throws SQLException {
+    // Events of non-existing rooms, they go through the whole pipeline but change nothing
+    final var data =
+        KafkaMessageCodec.encodeLeaveRoomEvent(
+                new LeaveRoomEvent().roomId(Long.MAX_VALUE).accountId(Long.MAX_VALUE))
+            .array();
+    try (final var statement =
+        connection.prepareStatement(
+            "INSERT INTO outbox_room_events (room_id, data) "
+                + "SELECT 2000000000 + g % 100, ? FROM generate_series(1, ?) g")) {
+      statement.setBytes(1, data);
+      statement.setInt(2, EVENTS);
+      statement.executeUpdate();
+    }
+  }
+
+  private static long queryLong(Connection connection, String sql) throws SQLException {
+    try (final var statement = connection.prepareStatement(sql);
+        final var resultSet = statement.executeQuery()) {
+      return resultSet.next() ? resultSet.getLong(1) : 0;
+    }
+  }
+}
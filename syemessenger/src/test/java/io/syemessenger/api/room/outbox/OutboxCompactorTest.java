@@ -0,0 +1,79 @@
+package io.syemessenger.api.room.outbox;
+
+import static io.syemessenger.api.room.outbox.repository.RoomEventRepository.PARTITIONS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.syemessenger.ServiceConfig;
+import io.syemessenger.api.room.outbox.repository.RoomEventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxCompactorTest {
+
+  private static final int BATCH_SIZE = 100;
+
+  @Mock private RoomEventRepository roomEventRepository;
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final ServiceConfig config =
+      new ServiceConfig()
+          .roomOutboxCompactionInterval(60_000)
+          .roomOutboxCompactionBatchSize(BATCH_SIZE);
+
+  private OutboxCompactor outboxCompactor;
+
+  @BeforeEach
+  void beforeEach() {
+    outboxCompactor = new OutboxCompactor(config, roomEventRepository, meterRegistry);
+  }
+
+  @Test
+  void testCompaction() {
+    when(roomEventRepository.deletePublishedEvents(anyInt(), anyInt())).thenReturn(0);
+    when(roomEventRepository.deletePublishedEvents(2, BATCH_SIZE)).thenReturn(BATCH_SIZE);
+    when(roomEventRepository.deletePublishedEvents(5, BATCH_SIZE)).thenReturn(7);
+    when(roomEventRepository.tableSize()).thenReturn(8192L);
+
+    assertEquals(BATCH_SIZE + 7, outboxCompactor.doWork());
+
+    for (int partition = 0; partition < PARTITIONS; partition++) {
+      verify(roomEventRepository).deletePublishedEvents(partition, BATCH_SIZE);
+    }
+    assertEquals(BATCH_SIZE + 7, meterRegistry.get("outbox.compaction.pruned").counter().count());
+    assertEquals(8192, meterRegistry.get("outbox.table.size").gauge().value());
+  }
+
+  @Test
+  void testOutboxLag() {
+    when(roomEventRepository.countUnpublishedEvents()).thenReturn(10L);
+    when(roomEventRepository.countHeldEvents()).thenReturn(4L);
+    when(roomEventRepository.oldestHeldXid()).thenReturn(1000L);
+
+    assertEquals(0, outboxCompactor.doWork());
+
+    assertEquals(10, meterRegistry.get("outbox.events.unpublished").gauge().value());
+    assertEquals(4, meterRegistry.get("outbox.events.held").gauge().value());
+  }
+
+  @Test
+  void testCompactionIsRateLimited() {
+    when(roomEventRepository.deletePublishedEvents(anyInt(), anyInt())).thenReturn(BATCH_SIZE);
+
+    assertEquals(BATCH_SIZE * PARTITIONS, outboxCompactor.doWork());
+    // Backlog is still there, but next compaction waits for roomOutboxCompactionInterval
+    assertEquals(0, outboxCompactor.doWork());
+    assertEquals(0, outboxCompactor.doWork());
+
+    verify(roomEventRepository, times(PARTITIONS)).deletePublishedEvents(anyInt(), anyInt());
+    verify(roomEventRepository, times(1)).tableSize();
+  }
+}
@@ -0,0 +1,78 @@
+package io.syemessenger.api.room.outbox;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.syemessenger.api.room.outbox.repository.RoomEventRepository;
+import io.syemessenger.environment.IntegrationEnvironmentExtension;
+import io.syemessenger.kafka.KafkaMessageCodec;
+import io.syemessenger.kafka.dto.LeaveRoomEvent;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+@ExtendWith(IntegrationEnvironmentExtension.class)
+public class OutboxNotifyIT {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(OutboxNotifyIT.class);
+
+  private static final int SAMPLES = 20;
+  private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+  @Test
+  void testEventIsPublishedWithoutWaitingForPoll(DataSource dataSource) throws Exception {
+    // Events of non-existing room, they go through the whole pipeline but change nothing
+    final var data =
+        KafkaMessageCodec.encodeLeaveRoomEvent(
+                new LeaveRoomEvent().roomId(Long.MAX_VALUE).accountId(Long.MAX_VALUE))
+            .array();
+
+    try (final var connection = dataSource.getConnection()) {
+      long total = 0;
+      for (int i = 0; i < SAMPLES; i++) {
+        // Let processor go idle
+        Thread.sleep(50);
+
+        final var start = System.nanoTime();
+        final var eventId = insertEvent(connection, data);
+        while (position(connection) < eventId) {
+          assertTrue(System.nanoTime() - start < TIMEOUT.toNanos(), "Event is not published");
+          Thread.onSpinWait();
+        }
+        total += System.nanoTime() - start;
+      }
+
+      final var avgMillis = total / SAMPLES / 1_000_000;
+      LOGGER.info("Outbox event published in {} ms on average", avgMillis);
+      // Poll-only processor (roomOutboxProcessorRunDelay = 300) would average ~150 ms
+      assertTrue(avgMillis < 50, "avgMillis: " + avgMillis);
+    }
+  }
+
+  private static long insertEvent(Connection connection, byte[] data) throws SQLException {
+    try (final var statement =
+        connection.prepareStatement(
+            "INSERT INTO outbox_room_events (room_id, data) VALUES (?, ?) RETURNING id")) {
+      statement.setLong(1, Long.MAX_VALUE);
+      statement.setBytes(2, data);
+      try (final var resultSet = statement.executeQuery()) {
+        resultSet.next();
+        return resultSet.getLong(1);
+      }
+    }
+  }
+
+  private static long position(Connection connection) throws SQLException {
+    try (final var statement =
+            connection.prepareStatement(
+                "SELECT position FROM outbox_position WHERE id = "
+                    + RoomEventRepository.partition(Long.MAX_VALUE));
+        final var resultSet = statement.executeQuery()) {
+      return resultSet.next() ? resultSet.getLong(1) : 0;
+    }
+  }
+}
@@ -0,0 +1,38 @@
+package io.syemessenger.api.room.outbox;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.syemessenger.ServiceConfig;
+import org.junit.jupiter.api.Test;
+
+class OutboxNotifyIdleStrategyTest {
+
+  @Test
+  void testFallbackToSleep() {
+    try (final var idleStrategy =
+        new OutboxNotifyIdleStrategy(
+            new ServiceConfig()
+                .dbUrl("jdbc:postgresql://localhost:1/syemessenger")
+                .dbUser("user")
+                .dbPassword("password")
+                .roomOutboxProcessorRunDelay(200))) {
+      final var start = System.nanoTime();
+      idleStrategy.idle();
+      final var elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+      assertTrue(elapsedMillis >= 200, "elapsedMillis: " + elapsedMillis);
+    }
+  }
+
+  @Test
+  void testZeroIdle() {
+    try (final var idleStrategy =
+        new OutboxNotifyIdleStrategy(new ServiceConfig().roomOutboxProcessorRunDelay(0))) {
+      final var start = System.nanoTime();
+      idleStrategy.idle();
+      final var elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+      assertTrue(elapsedMillis < 100, "elapsedMillis: " + elapsedMillis);
+    }
+  }
+}
@@ -0,0 +1,145 @@
+package io.syemessenger.api.room.outbox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.syemessenger.api.room.outbox.repository.RoomEventRepository;
+import io.syemessenger.environment.IntegrationEnvironmentExtension;
+import io.syemessenger.kafka.KafkaMessageCodec;
+import io.syemessenger.kafka.dto.LeaveRoomEvent;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(IntegrationEnvironmentExtension.class)
+public class OutboxPartitionIT {
+
+  // Non-existing rooms of two different partitions
+  private static final long LOCKED_ROOM_ID = 2_000_000_000L;
+  private static final long FREE_ROOM_ID = LOCKED_ROOM_ID + 1;
+  private static final long REORDERED_ROOM_ID = FREE_ROOM_ID + 1;
+  private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+  @Test
+  void testPartitionLockedByAnotherNodeIsSkipped(DataSource dataSource) throws Exception {
+    final var lockedPartition = RoomEventRepository.partition(LOCKED_ROOM_ID);
+    final var freePartition = RoomEventRepository.partition(FREE_ROOM_ID);
+
+    try (final var connection = dataSource.getConnection();
+        final var lockConnection = dataSource.getConnection()) {
+      // Act as another node which is publishing the partition right now
+      lockConnection.setAutoCommit(false);
+      try (final var statement =
+          lockConnection.prepareStatement(
+              "SELECT position FROM outbox_position WHERE id = ? FOR UPDATE")) {
+        statement.setInt(1, lockedPartition);
+        statement.executeQuery().close();
+      }
+
+      final var lockedEventId = insertEvent(connection, LOCKED_ROOM_ID);
+      final var freeEventId = insertEvent(connection, FREE_ROOM_ID);
+
+      awaitPosition(connection, freePartition, freeEventId);
+      assertTrue(position(connection, lockedPartition) < lockedEventId);
+
+      lockConnection.rollback();
+      awaitPosition(connection, lockedPartition, lockedEventId);
+    }
+  }
+
+  @Test
+  void testEventsCommittedInReverseIdOrder(DataSource dataSource) throws Exception {
+    final var partition = RoomEventRepository.partition(REORDERED_ROOM_ID);
+
+    try (final var connection = dataSource.getConnection();
+        final var firstConnection = dataSource.getConnection();
+        final var secondConnection = dataSource.getConnection()) {
+      firstConnection.setAutoCommit(false);
+      secondConnection.setAutoCommit(false);
+
+      final var firstEventId = insertEvent(firstConnection, REORDERED_ROOM_ID);
+      final var secondEventId = insertEvent(secondConnection, REORDERED_ROOM_ID);
+      assertTrue(firstEventId < secondEventId);
+
+      // Event with higher id commits first, and must wait for the one with lower id
+      secondConnection.commit();
+      Thread.sleep(500);
+      assertEquals(1, pendingEvents(connection, partition));
+
+      firstConnection.commit();
+      final var start = System.nanoTime();
+      while (pendingEvents(connection, partition) > 0) {
+        assertTrue(System.nanoTime() - start < TIMEOUT.toNanos(), "Event is lost");
+        //noinspection BusyWait
+        Thread.sleep(10);
+      }
+      assertEquals(secondEventId, position(connection, partition));
+    }
+  }
+
+  @Test
+  void testPartitionsCoverAllRooms(DataSource dataSource) throws Exception {
+    try (final var connection = dataSource.getConnection();
+        final var statement = connection.prepareStatement("SELECT count(*) FROM outbox_position");
+        final var resultSet = statement.executeQuery()) {
+      resultSet.next();
+      assertEquals(RoomEventRepository.PARTITIONS, resultSet.getInt(1));
+    }
+  }
+
+  private static long insertEvent(Connection connection, long roomId) throws SQLException {
+    final var data =
+        KafkaMessageCodec.encodeLeaveRoomEvent(
+                new LeaveRoomEvent().roomId(roomId).accountId(Long.MAX_VALUE))
+            .array();
+    try (final var statement =
+        connection.prepareStatement(
+            "INSERT INTO outbox_room_events (room_id, data) VALUES (?, ?) RETURNING id")) {
+      statement.setLong(1, roomId);
+      statement.setBytes(2, data);
+      try (final var resultSet = statement.executeQuery()) {
+        resultSet.next();
+        return resultSet.getLong(1);
+      }
+    }
+  }
+
+  private static void awaitPosition(Connection connection, int partition, long eventId)
+      throws Exception {
+    final var start = System.nanoTime();
+    while (position(connection, partition) < eventId) {
+      assertTrue(System.nanoTime() - start < TIMEOUT.toNanos(), "Event is not published");
+      //noinspection BusyWait
+      Thread.sleep(10);
+    }
+  }
+
+  /** Committed events of the partition which are not published yet. */
+  private static long pendingEvents(Connection connection, int partition) throws SQLException {
+    try (final var statement =
+        connection.prepareStatement(
+            "SELECT count(*) FROM outbox_room_events e JOIN outbox_position p "
+                + "ON p.id = mod(e.room_id, "
+                + RoomEventRepository.PARTITIONS
+                + ") WHERE p.id = ? AND (e.xid, e.id) > (p.position_xid, p.position)")) {
+      statement.setInt(1, partition);
+      try (final var resultSet = statement.executeQuery()) {
+        resultSet.next();
+        return resultSet.getLong(1);
+      }
+    }
+  }
+
+  private static long position(Connection connection, int partition) throws SQLException {
+    try (final var statement =
+        connection.prepareStatement("SELECT position FROM outbox_position WHERE id = ?")) {
+      statement.setInt(1, partition);
+      try (final var resultSet = statement.executeQuery()) {
+        return resultSet.next() ? resultSet.getLong(1) : 0;
+      }
+    }
+  }
+}
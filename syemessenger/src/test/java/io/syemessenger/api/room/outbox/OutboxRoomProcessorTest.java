@@ -1,16 +1,24 @@
 package io.syemessenger.api.room.outbox;
 
+import static io.syemessenger.api.room.outbox.repository.RoomEventRepository.PARTITIONS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.only;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import io.syemessenger.IdleStrategy;
 import io.syemessenger.ServiceConfig;
+import io.syemessenger.api.room.outbox.repository.OutboxPosition;
+import io.syemessenger.api.room.outbox.repository.OutboxPositionRepository;
 import io.syemessenger.api.room.outbox.repository.OutboxRoomEvent;
 import io.syemessenger.api.room.outbox.repository.RoomEventRepository;
 import java.nio.ByteBuffer;
@@ -20,140 +28,249 @@
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
 
 @ExtendWith(MockitoExtension.class)
 @MockitoSettings(strictness = Strictness.LENIENT)
 class OutboxRoomProcessorTest {
 
+  private static final long XID = 1000L;
+
   @Mock private ServiceConfig config;
-  @Mock private IdleStrategy sleepStrategy;
+  @Mock private IdleStrategy idleStrategy;
   @Mock private RoomEventRepository roomEventRepository;
+  @Mock private OutboxPositionRepository outboxPositionRepository;
   @Mock private KafkaTemplate<Long, ByteBuffer> kafkaTemplate;
+  @Mock private PlatformTransactionManager transactionManager;
 
   private OutboxRoomProcessor outboxRoomProcessor;
 
   @BeforeEach
   void beforeEach() {
     outboxRoomProcessor =
-        new OutboxRoomProcessor(config, sleepStrategy, roomEventRepository, kafkaTemplate);
+        new OutboxRoomProcessor(
+            config,
+            idleStrategy,
+            roomEventRepository,
+            outboxPositionRepository,
+            kafkaTemplate,
+            transactionManager);
     when(config.roomOutboxProcessorRunDelay()).thenReturn(10);
+    when(outboxPositionRepository.claimPosition(anyInt())).thenReturn(position(0L));
+    when(roomEventRepository.listEvents(anyInt(), anyLong(), anyLong())).thenReturn(List.of());
     when(kafkaTemplate.send(anyString(), anyLong(), any(ByteBuffer.class)))
         .thenReturn(CompletableFuture.completedFuture(null));
+    when(outboxPositionRepository.savePosition(anyInt(), anyLong(), anyLong(), anyLong()))
+        .thenReturn(1);
   }
 
-  @Test
-  void testNullPosition() {
-    when(roomEventRepository.getPosition()).thenReturn(null);
-    when(roomEventRepository.listEvents(0L)).thenReturn(List.of());
+  private static OutboxPosition position(long position) {
+    return new OutboxPosition().position(position).positionXid(0L);
+  }
 
-    outboxRoomProcessor.doWork();
+  @Test
+  void testNoEvents() {
+    assertEquals(0, outboxRoomProcessor.doWork());
 
-    verify(roomEventRepository).getPosition();
-    verify(roomEventRepository).listEvents(0L);
+    for (int partition = 0; partition < PARTITIONS; partition++) {
+      verify(outboxPositionRepository).claimPosition(partition);
+      verify(roomEventRepository).listEvents(partition, 0L, 0L);
+    }
+    verify(transactionManager, times(PARTITIONS)).commit(any());
 
     verify(kafkaTemplate, never()).send(anyString(), anyLong(), any(ByteBuffer.class));
 
-    verify(sleepStrategy).idle(config.roomOutboxProcessorRunDelay());
-    verify(sleepStrategy, never()).idle(config.roomOutboxProcessorRunDelay() * 10L);
-
-    verify(roomEventRepository, never()).savePosition(anyLong());
+    verify(outboxPositionRepository, never())
+        .savePosition(anyInt(), anyLong(), anyLong(), anyLong());
   }
 
   @Test
   void testWithEvents() {
     final var position = 5L;
     final var roomId = 100L;
+    final var partition = RoomEventRepository.partition(roomId);
     final var eventId = 6L;
     final var data = new byte[] {1, 2, 3};
 
-    OutboxRoomEvent event = new OutboxRoomEvent().roomId(roomId).data(data).id(eventId);
+    OutboxRoomEvent event = new OutboxRoomEvent().roomId(roomId).data(data).xid(XID).id(eventId);
 
-    when(roomEventRepository.getPosition()).thenReturn(position);
-    when(roomEventRepository.listEvents(position)).thenReturn(List.of(event));
+    when(outboxPositionRepository.claimPosition(partition)).thenReturn(position(position));
+    when(roomEventRepository.listEvents(partition, 0L, position)).thenReturn(List.of(event));
 
-    outboxRoomProcessor.doWork();
+    assertEquals(1, outboxRoomProcessor.doWork());
 
-    verify(roomEventRepository).getPosition();
-    verify(roomEventRepository).listEvents(position);
+    verify(outboxPositionRepository).claimPosition(partition);
+    verify(roomEventRepository).listEvents(partition, 0L, position);
 
     verify(kafkaTemplate).send(anyString(), eq(roomId), eq(ByteBuffer.wrap(data)));
 
-    verify(roomEventRepository).savePosition(eventId);
-
-    verify(sleepStrategy).idle(config.roomOutboxProcessorRunDelay());
-
-    verify(sleepStrategy, never()).idle(config.roomOutboxProcessorRunDelay() * 10L);
+    verify(outboxPositionRepository)
+        .savePosition(eq(partition), anyLong(), eq(XID), eq(eventId));
   }
 
   @Test
   void testMultipleEvents() {
-    final var position = 0L;
     final var n = 25;
-    final var roomId = 100L;
     final var data = new byte[] {1, 2, 3};
     final var roomEvents = new ArrayList<OutboxRoomEvent>();
 
     for (long i = 1; i <= n; i++) {
-      final var event = new OutboxRoomEvent().roomId(roomId).data(data).id(i);
+      final var event = new OutboxRoomEvent().roomId(100L).data(data).xid(XID).id(i);
       roomEvents.add(event);
     }
 
-    when(roomEventRepository.getPosition()).thenReturn(position);
-    when(roomEventRepository.listEvents(position)).thenReturn(roomEvents);
+    when(roomEventRepository.listEvents(RoomEventRepository.partition(100L), 0L, 0L))
+        .thenReturn(roomEvents);
+    when(roomEventRepository.listEvents(RoomEventRepository.partition(101L), 0L, 0L))
+        .thenReturn(List.of(new OutboxRoomEvent().roomId(101L).data(data).xid(XID).id(n + 1L)));
 
-    outboxRoomProcessor.doWork();
+    assertEquals(n + 1, outboxRoomProcessor.doWork());
 
-    verify(roomEventRepository).getPosition();
-    verify(roomEventRepository).listEvents(position);
+    verify(kafkaTemplate, times(n)).send("messages", 100L, ByteBuffer.wrap(data));
+    verify(kafkaTemplate).send("messages", 101L, ByteBuffer.wrap(data));
 
-    verify(kafkaTemplate, times(n)).send("messages", roomId, ByteBuffer.wrap(data));
+    verify(outboxPositionRepository, times(2))
+        .savePosition(anyInt(), anyLong(), anyLong(), anyLong());
+    verify(outboxPositionRepository)
+        .savePosition(eq(RoomEventRepository.partition(100L)), anyLong(), eq(XID), eq((long) n));
+    verify(outboxPositionRepository)
+        .savePosition(eq(RoomEventRepository.partition(101L)), anyLong(), eq(XID), eq(n + 1L));
+  }
 
-    for (long i = 1; i <= n; i++) {
-      verify(roomEventRepository).savePosition(i);
-    }
+  @Test
+  void testNoLockIsHeldWhileSending() {
+    final var partition = RoomEventRepository.partition(100L);
+    final var data = new byte[] {1, 2, 3};
+    when(roomEventRepository.listEvents(partition, 0L, 0L))
+        .thenReturn(List.of(new OutboxRoomEvent().roomId(100L).data(data).xid(XID).id(6L)));
+
+    assertEquals(1, outboxRoomProcessor.doWork());
+
+    final var inOrder = inOrder(outboxPositionRepository, transactionManager, kafkaTemplate);
+    inOrder.verify(outboxPositionRepository).claimPosition(partition);
+    final var leaseId = ArgumentCaptor.forClass(Long.class);
+    inOrder
+        .verify(outboxPositionRepository)
+        .leasePosition(eq(partition), leaseId.capture(), anyLong());
+    inOrder.verify(transactionManager).commit(any());
+    inOrder.verify(kafkaTemplate).send("messages", 100L, ByteBuffer.wrap(data));
+    inOrder.verify(outboxPositionRepository).savePosition(partition, leaseId.getValue(), XID, 6L);
+    // Partitions without events are not leased
+    verify(outboxPositionRepository, times(1)).leasePosition(anyInt(), anyLong(), anyLong());
+  }
+
+  @Test
+  void testExpiredLease() {
+    final var partition = RoomEventRepository.partition(100L);
+    final var data = new byte[] {1, 2, 3};
+    when(roomEventRepository.listEvents(partition, 0L, 0L))
+        .thenReturn(List.of(new OutboxRoomEvent().roomId(100L).data(data).xid(XID).id(6L)));
+    when(outboxPositionRepository.savePosition(anyInt(), anyLong(), anyLong(), anyLong()))
+        .thenReturn(0);
+
+    // Events were sent, another processor publishes them again
+    assertEquals(1, outboxRoomProcessor.doWork());
+    verify(kafkaTemplate).send("messages", 100L, ByteBuffer.wrap(data));
+  }
+
+  @Test
+  void testPositionFollowsCommitOrder() {
+    final var partition = RoomEventRepository.partition(100L);
+    final var data = new byte[] {1, 2, 3};
+
+    // Transaction of event 7 took its id later, but committed first
+    when(roomEventRepository.listEvents(partition, 0L, 0L))
+        .thenReturn(
+            List.of(
+                new OutboxRoomEvent().roomId(100L).data(data).xid(XID).id(7L),
+                new OutboxRoomEvent().roomId(100L).data(data).xid(XID + 1).id(6L)));
+
+    assertEquals(2, outboxRoomProcessor.doWork());
+
+    verify(outboxPositionRepository)
+        .savePosition(eq(partition), anyLong(), eq(XID + 1), eq(6L));
+  }
+
+  @Test
+  void testLockedPartitionsAreSkipped() {
+    final var partition = 3;
+    final var data = new byte[] {1, 2, 3};
+
+    when(outboxPositionRepository.claimPosition(anyInt())).thenReturn(null);
+    when(outboxPositionRepository.claimPosition(partition)).thenReturn(position(5L));
+    when(roomEventRepository.listEvents(partition, 0L, 5L))
+        .thenReturn(List.of(new OutboxRoomEvent().roomId(3L).data(data).xid(XID).id(6L)));
+
+    assertEquals(1, outboxRoomProcessor.doWork());
+
+    verify(outboxPositionRepository, times(PARTITIONS)).claimPosition(anyInt());
+    verify(roomEventRepository, times(1)).listEvents(anyInt(), anyLong(), anyLong());
+    verify(kafkaTemplate, only()).send("messages", 3L, ByteBuffer.wrap(data));
+    verify(outboxPositionRepository).savePosition(eq(partition), anyLong(), eq(XID), eq(6L));
   }
 
   @Test
   void testKafkaSendThrowsException() {
     final var position = 5L;
     final var roomId = 100L;
+    final var partition = RoomEventRepository.partition(roomId);
     final var eventId = 6L;
     final var data = new byte[] {1, 2, 3};
 
-    OutboxRoomEvent event = new OutboxRoomEvent().roomId(roomId).data(data).id(eventId);
+    OutboxRoomEvent event = new OutboxRoomEvent().roomId(roomId).data(data).xid(XID).id(eventId);
 
-    when(roomEventRepository.getPosition()).thenReturn(position);
-    when(roomEventRepository.listEvents(position)).thenReturn(List.of(event));
+    when(outboxPositionRepository.claimPosition(partition)).thenReturn(position(position));
+    when(roomEventRepository.listEvents(partition, 0L, position)).thenReturn(List.of(event));
     when(kafkaTemplate.send(anyString(), anyLong(), any(ByteBuffer.class)))
         .thenThrow(new RuntimeException("Test exception"));
 
-    outboxRoomProcessor.doWork();
+    assertThrows(RuntimeException.class, () -> outboxRoomProcessor.doWork());
 
-    verify(roomEventRepository).getPosition();
-    verify(roomEventRepository).listEvents(position);
+    verify(roomEventRepository).listEvents(partition, 0L, position);
+    // Batch is published again on the next run
+    verify(outboxPositionRepository).releasePosition(eq(partition), anyLong());
 
-    verify(roomEventRepository, never()).savePosition(anyLong());
-
-    verify(sleepStrategy).idle(config.roomOutboxProcessorRunDelay() * 10L);
+    verify(outboxPositionRepository, never())
+        .savePosition(anyInt(), anyLong(), anyLong(), anyLong());
   }
 
   @Test
-  void testGetPositionThrowsException() {
-    when(roomEventRepository.getPosition()).thenThrow(new RuntimeException("Test Exception"));
+  void testKafkaSendCompletesExceptionally() {
+    final var data = new byte[] {1, 2, 3};
 
-    outboxRoomProcessor.doWork();
+    when(roomEventRepository.listEvents(RoomEventRepository.partition(200L), 0L, 0L))
+        .thenReturn(
+            List.of(
+                new OutboxRoomEvent().roomId(200L).data(data).xid(XID).id(6L),
+                new OutboxRoomEvent().roomId(216L).data(data).xid(XID).id(7L)));
+    when(kafkaTemplate.send(anyString(), eq(216L), any(ByteBuffer.class)))
+        .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Test exception")));
+
+    assertThrows(RuntimeException.class, () -> outboxRoomProcessor.doWork());
+
+    verify(kafkaTemplate, times(2)).send(anyString(), anyLong(), any(ByteBuffer.class));
+    verify(outboxPositionRepository)
+        .releasePosition(eq(RoomEventRepository.partition(200L)), anyLong());
+    verify(outboxPositionRepository, never())
+        .savePosition(anyInt(), anyLong(), anyLong(), anyLong());
+  }
 
-    verify(kafkaTemplate, never()).send(anyString(), anyLong(), any(ByteBuffer.class));
+  @Test
+  void testClaimPositionThrowsException() {
+    when(outboxPositionRepository.claimPosition(anyInt()))
+        .thenThrow(new RuntimeException("Test Exception"));
 
-    verify(sleepStrategy).idle(config.roomOutboxProcessorRunDelay() * 10L);
+    assertThrows(RuntimeException.class, () -> outboxRoomProcessor.doWork());
 
-    verify(sleepStrategy, never()).idle(config.roomOutboxProcessorRunDelay());
+    verify(kafkaTemplate, never()).send(anyString(), anyLong(), any(ByteBuffer.class));
 
-    verify(roomEventRepository, never()).savePosition(anyLong());
+    verify(outboxPositionRepository, never())
+        .savePosition(anyInt(), anyLong(), anyLong(), anyLong());
   }
 }
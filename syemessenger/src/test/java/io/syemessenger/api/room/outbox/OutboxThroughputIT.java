@@ -0,0 +1,139 @@
+package io.syemessenger.api.room.outbox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.syemessenger.api.room.outbox.repository.RoomEventRepository;
+import io.syemessenger.environment.IntegrationEnvironmentExtension;
+import io.syemessenger.kafka.KafkaMessageCodec;
+import io.syemessenger.kafka.dto.LeaveRoomEvent;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+@ExtendWith(IntegrationEnvironmentExtension.class)
+public class OutboxThroughputIT {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(OutboxThroughputIT.class);
+
+  private static final int EVENTS = 2_000_000;
+  private static final int QUERY_SAMPLES = 20;
+  private static final Duration TIMEOUT = Duration.ofMinutes(5);
+  private static final String PENDING_PARTITIONS =
+      "SELECT count(*) FROM outbox_position p WHERE EXISTS (SELECT 1 FROM outbox_room_events e "
+          + "WHERE mod(e.room_id, "
+          + RoomEventRepository.PARTITIONS
+          + ") = p.id AND (e.xid, e.id) > (p.position_xid, p.position))";
+
+  @Test
+  void testDrainLargeOutbox(DataSource dataSource) throws Exception {
+    try (final var connection = dataSource.getConnection()) {
+      final var startPosition = queryLong(connection, "SELECT max(id) FROM outbox_room_events");
+      insertEvents(connection);
+      final var endPosition = queryLong(connection, "SELECT max(id) FROM outbox_room_events");
+      assertEquals(startPosition + EVENTS, endPosition);
+
+      final var start = System.nanoTime();
+      while (queryLong(connection, PENDING_PARTITIONS) > 0) {
+        assertTrue(System.nanoTime() - start < TIMEOUT.toNanos(), "Outbox is not drained");
+        //noinspection BusyWait
+        Thread.sleep(100);
+      }
+      final var elapsedMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+      final var throughput = EVENTS * 1000L / elapsedMillis;
+
+      LOGGER.info(
+          "Drained {} outbox events in {} ms ({} events/s)", EVENTS, elapsedMillis, throughput);
+      assertTrue(throughput > 10_000, "throughput: " + throughput);
+
+      // All events are inserted by one transaction
+      final var xid =
+          queryLong(connection, "SELECT xid FROM outbox_room_events WHERE id = " + endPosition);
+      final var keysetHead =
+          measureListEvents(connection, RoomEventRepository.LIST_EVENTS, 0, 0);
+      final var keysetTail =
+          measureListEvents(
+              connection, RoomEventRepository.LIST_EVENTS, xid, endPosition - 1000);
+      final var offsetTail =
+          measureListEvents(
+              connection,
+              "SELECT * FROM outbox_room_events ORDER BY id ASC OFFSET :position LIMIT 500",
+              0,
+              EVENTS - 1000);
+      LOGGER.info(
+          "listEvents, avg micros: keyset head - {}, keyset tail - {}, offset tail - {}",
+          keysetHead,
+          keysetTail,
+          offsetTail);
+      assertTrue(keysetTail * 10 < offsetTail, "keysetTail: " + keysetTail);
+
+      try (final var statement =
+          connection.prepareStatement("DELETE FROM outbox_room_events WHERE id <= ?")) {
+        statement.setLong(1, endPosition);
+        statement.executeUpdate();
+      }
+    }
+  }
+
+  private static void insertEvents(Connection connection) throws SQLException {
+    // Events of non-existing rooms, they go through the whole pipeline but change nothing
+    final var data =
+        KafkaMessageCodec.encodeLeaveRoomEvent(
+                new LeaveRoomEvent().roomId(Long.MAX_VALUE).accountId(Long.MAX_VALUE))
+            .array();
+    try (final var statement =
+        connection.prepareStatement(
+            "INSERT INTO outbox_room_events (room_id, data) "
+                + "SELECT 1000000000 + g % 1000, ? FROM generate_series(1, ?) g")) {
+      statement.setBytes(1, data);
+      statement.setInt(2, EVENTS);
+      statement.executeUpdate();
+    }
+    try (final var statement = connection.prepareStatement("ANALYZE outbox_room_events")) {
+      statement.execute();
+    }
+  }
+
+  /**
+   * Runs the outbox query at given position ({@code :positionXid} is substituted as is) several
+   * times.
+   *
+   * @return average execution time in micros
+   */
+  private static long measureListEvents(
+      Connection connection, String query, long positionXid, long position) throws SQLException {
+    final var sql =
+        query
+            .replace(":partition", "0")
+            .replace(":positionXid", String.valueOf(positionXid))
+            .replace(":position", "?");
+    long total = 0;
+    for (int i = 0; i < QUERY_SAMPLES; i++) {
+      try (final var statement = connection.prepareStatement(sql)) {
+        statement.setLong(1, position);
+        final var start = System.nanoTime();
+        try (final var resultSet = statement.executeQuery()) {
+          int rows = 0;
+          while (resultSet.next()) {
+            rows++;
+          }
+          assertTrue(rows > 0);
+        }
+        total += System.nanoTime() - start;
+      }
+    }
+    return total / QUERY_SAMPLES / 1000;
+  }
+
+  private static long queryLong(Connection connection, String sql) throws SQLException {
+    try (final var statement = connection.prepareStatement(sql);
+        final var resultSet = statement.executeQuery()) {
+      return resultSet.next() ? resultSet.getLong(1) : 0;
+    }
+  }
+}
@@ -36,7 +36,12 @@ public void start() {
                   .dbPassword(postgres.getPassword())
                   .kafkaBootstrapServers(kafka.getBootstrapServers())
                   .kafkaConsumerGroup("messages-group0")
+                  .metricsPort(0)
                   .roomOutboxProcessorRunDelay(300)
+                  // Outbox is compacted explicitly by OutboxCompactionIT
+                  .roomOutboxCompactionBatchSize(0)
+                  // Stale recent messages must be dropped on save, not outlive a test by expiring
+                  .recentMessagesTtl(60_000)
                   .shouldRunRoomOutboxProcessor(true));
 
       serviceBootstrap.start();
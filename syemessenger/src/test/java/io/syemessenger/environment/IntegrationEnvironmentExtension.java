@@ -3,6 +3,7 @@
 import io.syemessenger.api.ClientSdk;
 import io.syemessenger.api.account.AccountAssertions;
 import io.syemessenger.api.account.AccountInfo;
+import io.syemessenger.api.messagehistory.RecentMessagesCache;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -48,6 +49,8 @@ public void beforeAll(ExtensionContext context) {
   public void afterEach(ExtensionContext context) {
     resources.forEach(CloseHelper::close);
     resources.clear();
+    // Tests write history directly to database, and room ids are reused after cleanTables
+    environment.getBean(RecentMessagesCache.class).invalidateAll();
   }
 
   @Override
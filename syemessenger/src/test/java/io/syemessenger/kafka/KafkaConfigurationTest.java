@@ -0,0 +1,109 @@
+package io.syemessenger.kafka;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.syemessenger.ServiceConfig;
+import java.util.Map;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.MicrometerProducerListener;
+
+class KafkaConfigurationTest {
+
+  @Test
+  void testLowLatencyProfile() {
+    final var properties = producerConfig(ProducerProfile.LOW_LATENCY);
+
+    assertEquals(0, properties.get(ProducerConfig.LINGER_MS_CONFIG));
+    assertEquals("none", properties.get(ProducerConfig.COMPRESSION_TYPE_CONFIG));
+    assertEquals("all", properties.get(ProducerConfig.ACKS_CONFIG));
+    assertEquals(true, properties.get(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG));
+    assertEquals("localhost:9092", properties.get(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG));
+  }
+
+  @Test
+  void testThroughputProfile() {
+    final var properties = producerConfig(ProducerProfile.THROUGHPUT);
+
+    assertEquals(10, properties.get(ProducerConfig.LINGER_MS_CONFIG));
+    assertEquals(256 * 1024, properties.get(ProducerConfig.BATCH_SIZE_CONFIG));
+    assertEquals("lz4", properties.get(ProducerConfig.COMPRESSION_TYPE_CONFIG));
+    assertEquals("all", properties.get(ProducerConfig.ACKS_CONFIG));
+    assertEquals(SbeSerializer.class, properties.get(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG));
+  }
+
+  @Test
+  void testMetricsListener() {
+    final var producerFactory =
+        (DefaultKafkaProducerFactory<?, ?>)
+            new KafkaConfiguration()
+                .producerFactory(
+                    new ServiceConfig().kafkaBootstrapServers("localhost:9092"),
+                    new SimpleMeterRegistry());
+
+    assertEquals(1, producerFactory.getListeners().size());
+    assertInstanceOf(MicrometerProducerListener.class, producerFactory.getListeners().get(0));
+  }
+
+  private static Map<String, Object> producerConfig(ProducerProfile profile) {
+    return new KafkaConfiguration()
+        .producerFactory(
+            new ServiceConfig()
+                .kafkaBootstrapServers("localhost:9092")
+                .kafkaProducerProfile(profile),
+            new SimpleMeterRegistry())
+        .getConfigurationProperties();
+  }
+
+  @Test
+  void testListenerConcurrency() {
+    final var serviceConfig =
+        new ServiceConfig()
+            .kafkaBootstrapServers("localhost:9092")
+            .kafkaConsumerGroup("group")
+            .kafkaMessagesPartitions(8)
+            .kafkaListenerConcurrency(8)
+            .kafkaHistoryListenerConcurrency(3);
+    final var kafkaConfiguration = new KafkaConfiguration();
+
+    assertEquals(8, kafkaConfiguration.messagesTopic(serviceConfig).numPartitions());
+    assertEquals(
+        8,
+        kafkaConfiguration
+            .kafkaListenerContainerFactory(serviceConfig)
+            .createContainer("messages")
+            .getConcurrency());
+    assertEquals(
+        3,
+        kafkaConfiguration
+            .batchKafkaListenerContainerFactory(
+                serviceConfig,
+                kafkaConfiguration.deadLetterKafkaTemplate(serviceConfig),
+                new MessageHistoryRetryMetrics(new SimpleMeterRegistry()))
+            .createContainer("messages")
+            .getConcurrency());
+  }
+
+  @Test
+  void testHistoryErrorHandler() {
+    final var serviceConfig =
+        new ServiceConfig().kafkaBootstrapServers("localhost:9092").kafkaHistoryMaxRetries(3);
+    final var kafkaConfiguration = new KafkaConfiguration();
+    final var meterRegistry = new SimpleMeterRegistry();
+
+    final var errorHandler =
+        KafkaConfiguration.historyErrorHandler(
+            serviceConfig,
+            kafkaConfiguration.deadLetterKafkaTemplate(serviceConfig),
+            new MessageHistoryRetryMetrics(meterRegistry));
+
+    assertFalse(errorHandler.removeClassification(IllegalArgumentException.class));
+    assertEquals(
+        KafkaConfiguration.MESSAGES_HISTORY_DLT,
+        kafkaConfiguration.messagesHistoryDltTopic(serviceConfig).name());
+    assertNotNull(meterRegistry.find("messages.history.retry.backlog").gauge());
+    assertNotNull(meterRegistry.find("messages.history.dlt").counter());
+  }
+}
@@ -9,10 +9,18 @@
 import io.syemessenger.kafka.dto.BlockMembersEvent;
 import io.syemessenger.kafka.dto.LeaveRoomEvent;
 import io.syemessenger.kafka.dto.RemoveMembersEvent;
+import io.syemessenger.sbe.MessageHeaderEncoder;
+import io.syemessenger.sbe.RoomMessageEncoder;
+import java.nio.charset.StandardCharsets;
 import java.time.Clock;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
 import org.junit.jupiter.api.Test;
 
 class KafkaHistoryMessageCodecTest {
@@ -79,4 +87,96 @@ void testRoomMessage() {
     assertEquals(message, decodedMessageInfo.message());
     assertEquals(timestamp, decodedMessageInfo.timestamp());
   }
+
+  @Test
+  void testRoomMessageMultibyte() {
+    final var message = "Ж😀".repeat(250);
+    final var timestamp = LocalDateTime.now(Clock.systemUTC()).truncatedTo(ChronoUnit.MILLIS);
+    final var messageInfo =
+        new MessageInfo().roomId(1L).senderId(2L).message(message).timestamp(timestamp);
+
+    final var buffer = encodeRoomMessage(messageInfo);
+    final var decodedMessageInfo = decodeRoomMessage(buffer);
+
+    final var expectedLength =
+        MessageHeaderEncoder.ENCODED_LENGTH
+            + RoomMessageEncoder.BLOCK_LENGTH
+            + RoomMessageEncoder.messageHeaderLength()
+            + message.getBytes(StandardCharsets.UTF_8).length;
+    assertEquals(expectedLength, buffer.remaining());
+    assertEquals(expectedLength, buffer.capacity());
+    assertEquals(message, decodedMessageInfo.message());
+    assertEquals(timestamp, decodedMessageInfo.timestamp());
+  }
+
+  @Test
+  void testRoomMessageMalformedSurrogates() {
+    final var message = "a\uD800b\uDC00c\uD83D";
+    final var messageInfo =
+        new MessageInfo().roomId(1L).senderId(2L).message(message).timestamp(LocalDateTime.now());
+
+    final var decodedMessageInfo = decodeRoomMessage(encodeRoomMessage(messageInfo));
+
+    assertEquals(
+        new String(message.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8),
+        decodedMessageInfo.message());
+  }
+
+  @Test
+  void testBlockRoomMembersEventManyMembers() {
+    final var memberIds = LongStream.range(0, 1000).boxed().toList();
+    final var blockMembersEvent = new BlockMembersEvent().roomId(1L).memberIds(memberIds);
+
+    final var buffer = encodeBlockMembersEvent(blockMembersEvent);
+    final var decodedBlockMembersEvent = decodeBlockMembersEvent(buffer);
+
+    assertEquals(buffer.capacity(), buffer.remaining());
+    assertEquals(1L, decodedBlockMembersEvent.roomId());
+    assertCollections(memberIds, decodedBlockMembersEvent.memberIds(), Long::equals);
+  }
+
+  @Test
+  void testRemoveRoomMembersEventManyMembers() {
+    final var memberIds = LongStream.range(0, 1000).boxed().toList();
+    final var removeMembersEvent = new RemoveMembersEvent().roomId(1L).memberIds(memberIds);
+
+    final var decodedRemoveMembersEvent =
+        decodeRemoveMembersEvent(encodeRemoveMembersEvent(removeMembersEvent));
+
+    assertCollections(memberIds, decodedRemoveMembersEvent.memberIds(), Long::equals);
+  }
+
+  @Test
+  void testConcurrentEncodeDecode() throws Exception {
+    final var threads = 8;
+    final var executor = Executors.newFixedThreadPool(threads);
+    try {
+      final var futures = new ArrayList<Future<?>>();
+      for (int t = 0; t < threads; t++) {
+        final var roomId = (long) t;
+        futures.add(
+            executor.submit(
+                () -> {
+                  for (int i = 0; i < 10_000; i++) {
+                    final var message = randomAlphanumeric(1, 100);
+                    final var messageInfo =
+                        new MessageInfo()
+                            .roomId(roomId)
+                            .senderId((long) i)
+                            .message(message)
+                            .timestamp(LocalDateTime.now(Clock.systemUTC()));
+                    final var decoded = decodeRoomMessage(encodeRoomMessage(messageInfo));
+                    assertEquals(roomId, decoded.roomId());
+                    assertEquals(i, decoded.senderId());
+                    assertEquals(message, decoded.message());
+                  }
+                }));
+      }
+      for (var future : futures) {
+        future.get(30, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
 }
@@ -0,0 +1,151 @@
+package io.syemessenger.kafka;
+
+import static io.syemessenger.environment.AssertionUtils.awaitUntil;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.syemessenger.ServiceConfig;
+import io.syemessenger.api.message.MessageInfo;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.agrona.DirectBuffer;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.listener.MessageListener;
+import org.testcontainers.kafka.KafkaContainer;
+
+public class KafkaListenerConcurrencyIT {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(KafkaListenerConcurrencyIT.class);
+
+  private static final int ROOMS = 32;
+  private static final int MESSAGES_PER_ROOM = 25;
+  private static final long HANDLE_MILLIS = 5;
+  private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+  private static KafkaContainer kafka;
+
+  @BeforeAll
+  static void beforeAll() {
+    kafka = new KafkaContainer("apache/kafka-native:3.8.0");
+    kafka.start();
+  }
+
+  @AfterAll
+  static void afterAll() {
+    if (kafka != null) {
+      kafka.close();
+    }
+  }
+
+  @Test
+  void testThroughputScalesWithPartitions() throws Exception {
+    final var singleElapsed = consume(1);
+    final var parallelElapsed = consume(4);
+
+    LOGGER.info(
+        "Consumed {} slow messages: 1 partition - {} ms, 4 partitions - {} ms",
+        ROOMS * MESSAGES_PER_ROOM,
+        singleElapsed,
+        parallelElapsed);
+    assertTrue(
+        parallelElapsed * 3 < singleElapsed * 2,
+        "parallelElapsed: " + parallelElapsed + ", singleElapsed: " + singleElapsed);
+  }
+
+  /**
+   * Consumes messages of {@link #ROOMS} rooms from the topic with given number of partitions, using
+   * the same number of listener threads, and asserts that messages of every room came in order.
+   *
+   * @return elapsed millis
+   */
+  private static long consume(int partitions) throws Exception {
+    final var topic = "messages-" + partitions;
+    try (final var admin =
+        AdminClient.create(
+            Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, kafka.getBootstrapServers()))) {
+      admin.createTopics(List.of(new NewTopic(topic, partitions, (short) 1))).all().get();
+    }
+
+    final var serviceConfig =
+        new ServiceConfig()
+            .kafkaBootstrapServers(kafka.getBootstrapServers())
+            .kafkaConsumerGroup("concurrency-group-" + partitions)
+            .kafkaListenerConcurrency(partitions);
+    final var kafkaConfiguration = new KafkaConfiguration();
+
+    final var latch = new CountDownLatch(ROOMS * MESSAGES_PER_ROOM);
+    final var received = new ConcurrentHashMap<Long, List<String>>();
+    final var container =
+        kafkaConfiguration.kafkaListenerContainerFactory(serviceConfig).createContainer(topic);
+    container.setupMessageListener(
+        (MessageListener<Long, DirectBuffer>)
+            record -> {
+              final var messageInfo =
+                  KafkaMessageCodec.decodeRoomMessage(
+                      ByteBuffer.wrap(record.value().byteArray()));
+              received
+                  .computeIfAbsent(
+                      messageInfo.roomId(), k -> Collections.synchronizedList(new ArrayList<>()))
+                  .add(messageInfo.message());
+              try {
+                // Slow broadcast to the room
+                Thread.sleep(HANDLE_MILLIS);
+              } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+              }
+              latch.countDown();
+            });
+
+    final var producerFactory =
+        kafkaConfiguration.producerFactory(serviceConfig, new SimpleMeterRegistry());
+    try {
+      container.start();
+      awaitUntil(
+          () -> container.getAssignedPartitions().size() == partitions ? true : null, TIMEOUT);
+
+      final var kafkaTemplate = kafkaConfiguration.kafkaTemplate(producerFactory);
+      final var start = System.currentTimeMillis();
+      for (int i = 0; i < MESSAGES_PER_ROOM; i++) {
+        for (long roomId = 1; roomId <= ROOMS; roomId++) {
+          final var messageInfo =
+              new MessageInfo()
+                  .roomId(roomId)
+                  .senderId(1L)
+                  .message(String.valueOf(i))
+                  .timestamp(LocalDateTime.now());
+          kafkaTemplate.send(topic, roomId, KafkaMessageCodec.encodeRoomMessage(messageInfo));
+        }
+      }
+      kafkaTemplate.flush();
+
+      assertTrue(latch.await(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS), "Not all consumed");
+      final var elapsed = System.currentTimeMillis() - start;
+
+      final var expected =
+          IntStream.range(0, MESSAGES_PER_ROOM).mapToObj(String::valueOf).toList();
+      assertEquals(ROOMS, received.size());
+      received.forEach((roomId, messages) -> assertEquals(expected, messages, "roomId: " + roomId));
+      return elapsed;
+    } finally {
+      container.stop();
+      producerFactory.reset();
+    }
+  }
+}
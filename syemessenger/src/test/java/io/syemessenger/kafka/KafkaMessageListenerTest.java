@@ -0,0 +1,279 @@
+package io.syemessenger.kafka;
+
+import static io.syemessenger.kafka.KafkaMessageCodec.encodeBlockMembersEvent;
+import static io.syemessenger.kafka.KafkaMessageCodec.encodeHistorySavedEvent;
+import static io.syemessenger.kafka.KafkaMessageCodec.encodeLeaveRoomEvent;
+import static io.syemessenger.kafka.KafkaMessageCodec.encodeRemoveMembersEvent;
+import static io.syemessenger.kafka.KafkaMessageCodec.encodeRoomMessage;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.syemessenger.SubscriptionRegistry;
+import io.syemessenger.api.message.MessageInfo;
+import io.syemessenger.api.messagehistory.MessageHistoryService;
+import io.syemessenger.api.messagehistory.RecentMessagesCache;
+import io.syemessenger.kafka.dto.BlockMembersEvent;
+import io.syemessenger.kafka.dto.LeaveRoomEvent;
+import io.syemessenger.kafka.dto.RemoveMembersEvent;
+import java.nio.ByteBuffer;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import org.agrona.DirectBuffer;
+import org.agrona.collections.LongArrayList;
+import org.agrona.collections.LongHashSet;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+
+class KafkaMessageListenerTest {
+
+  private final SubscriptionRegistry subscriptionRegistry = mock(SubscriptionRegistry.class);
+  private final MessageHistoryService messageHistoryService = mock(MessageHistoryService.class);
+  private final MessageHistoryRetryMetrics retryMetrics =
+      new MessageHistoryRetryMetrics(new SimpleMeterRegistry());
+  private final RecentMessagesCache recentMessagesCache = mock(RecentMessagesCache.class);
+  //noinspection unchecked
+  private final KafkaTemplate<Long, ByteBuffer> kafkaTemplate = mock(KafkaTemplate.class);
+  private final KafkaMessageListener listener =
+      new KafkaMessageListener(
+          subscriptionRegistry,
+          messageHistoryService,
+          retryMetrics,
+          recentMessagesCache,
+          kafkaTemplate);
+
+  @BeforeEach
+  void beforeEach() {
+    when(recentMessagesCache.isEnabled()).thenReturn(true);
+    when(kafkaTemplate.send(eq("messages"), any(ByteBuffer.class)))
+        .thenReturn(CompletableFuture.completedFuture(null));
+  }
+
+  @Test
+  void testHandleMessageHistoryBatch() {
+    final var first = newMessageInfo(1L, "first");
+    final var second = newMessageInfo(2L, "second");
+
+    listener.handleMessageHistory(
+        List.of(
+            toDirectBuffer(encodeRoomMessage(first)),
+            toDirectBuffer(encodeLeaveRoomEvent(new LeaveRoomEvent().roomId(1L).accountId(1L))),
+            toDirectBuffer(encodeRoomMessage(second))));
+
+    //noinspection unchecked
+    final ArgumentCaptor<List<MessageInfo>> captor = ArgumentCaptor.forClass(List.class);
+    verify(messageHistoryService).saveMessages(captor.capture());
+    final var messages = captor.getValue();
+    assertEquals(2, messages.size());
+    assertEquals("first", messages.get(0).message());
+    assertEquals(1L, messages.get(0).roomId());
+    assertEquals("second", messages.get(1).message());
+    assertEquals(2L, messages.get(1).roomId());
+  }
+
+  @Test
+  void testRecentMessagesDroppedAfterHistorySaved() {
+    listener.handleMessageHistory(
+        List.of(
+            toDirectBuffer(encodeRoomMessage(newMessageInfo(1L, "first"))),
+            toDirectBuffer(encodeRoomMessage(newMessageInfo(2L, "second"))),
+            toDirectBuffer(encodeRoomMessage(newMessageInfo(1L, "third")))));
+
+    final var inOrder = inOrder(messageHistoryService, recentMessagesCache, kafkaTemplate);
+    inOrder.verify(messageHistoryService).saveMessages(any());
+    inOrder.verify(recentMessagesCache, times(2)).invalidate(anyLong());
+    final var captor = ArgumentCaptor.forClass(ByteBuffer.class);
+    inOrder.verify(kafkaTemplate).send(eq("messages"), captor.capture());
+    verify(recentMessagesCache).invalidate(1L);
+    verify(recentMessagesCache).invalidate(2L);
+
+    // Other nodes drop recent messages of the rooms
+    final var otherCache = mock(RecentMessagesCache.class);
+    new KafkaMessageListener(
+            subscriptionRegistry, messageHistoryService, retryMetrics, otherCache, kafkaTemplate)
+        .handleMessage(toDirectBuffer(captor.getValue()));
+    verify(otherCache).invalidate(1L);
+    verify(otherCache).invalidate(2L);
+  }
+
+  @Test
+  void testRecentMessagesNotDroppedWhenSaveFailed() {
+    doThrow(new RuntimeException("Connection refused"))
+        .when(messageHistoryService)
+        .saveMessages(any());
+
+    final var buffers = List.of(toDirectBuffer(encodeRoomMessage(newMessageInfo(1L, "test"))));
+    assertThrows(RuntimeException.class, () -> listener.handleMessageHistory(buffers));
+
+    verify(recentMessagesCache, never()).invalidate(anyLong());
+    verify(kafkaTemplate, never()).send(any(), any(ByteBuffer.class));
+  }
+
+  @Test
+  void testPublishFailureDoesNotFailHistory() {
+    when(kafkaTemplate.send(eq("messages"), any(ByteBuffer.class)))
+        .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Timeout")));
+
+    listener.handleMessageHistory(
+        List.of(toDirectBuffer(encodeRoomMessage(newMessageInfo(1L, "test")))));
+
+    verify(messageHistoryService).saveMessages(any());
+    verify(recentMessagesCache).invalidate(1L);
+  }
+
+  @Test
+  void testHandleMessageHistoryWithoutRoomMessages() {
+    listener.handleMessageHistory(
+        List.of(
+            toDirectBuffer(encodeLeaveRoomEvent(new LeaveRoomEvent().roomId(1L).accountId(1L)))));
+
+    verify(messageHistoryService, never()).saveMessages(any());
+  }
+
+  @Test
+  void testHandleMessageHistoryFailure() {
+    final var exception = new RuntimeException("Connection refused");
+    doThrow(exception).when(messageHistoryService).saveMessages(any());
+
+    final var buffers = List.of(toDirectBuffer(encodeRoomMessage(newMessageInfo(1L, "test"))));
+    final var thrown =
+        assertThrows(RuntimeException.class, () -> listener.handleMessageHistory(buffers));
+
+    assertSame(exception, thrown);
+    verify(messageHistoryService, times(1)).saveMessages(any());
+  }
+
+  @Test
+  void testHandleMessageHistoryPoisonRecord() {
+    final var poison = new UnsafeBuffer(new byte[16]);
+
+    final var thrown =
+        assertThrows(
+            BatchListenerFailedException.class,
+            () ->
+                listener.handleMessageHistory(
+                    List.of(
+                        toDirectBuffer(encodeRoomMessage(newMessageInfo(1L, "first"))),
+                        poison)));
+
+    assertEquals(1, thrown.getIndex());
+    assertInstanceOf(IllegalArgumentException.class, thrown.getCause());
+    verify(messageHistoryService, never()).saveMessages(any());
+  }
+
+  @Test
+  void testRetryBacklog() {
+    final var records =
+        new ConsumerRecords<>(
+            Map.of(
+                new TopicPartition("messages", 0),
+                List.of(
+                    new ConsumerRecord<>("messages", 0, 0L, 1L, "a"),
+                    new ConsumerRecord<>("messages", 0, 1L, 1L, "b"))));
+
+    retryMetrics.failedDelivery(records, new RuntimeException(), 1);
+    retryMetrics.failedDelivery(records, new RuntimeException(), 2);
+    assertEquals(2, retryMetrics.backlog());
+
+    listener.handleMessageHistory(
+        List.of(toDirectBuffer(encodeRoomMessage(newMessageInfo(1L, "test")))));
+    assertEquals(0, retryMetrics.backlog());
+
+    retryMetrics.failedDelivery(records, new RuntimeException(), 1);
+    retryMetrics.recovered(records, new RuntimeException());
+    assertEquals(0, retryMetrics.backlog());
+  }
+
+  @Test
+  void testHandleRoomMessage() {
+    when(subscriptionRegistry.hasSubscribers(1L)).thenReturn(true);
+
+    listener.handleMessage(toDirectBuffer(encodeRoomMessage(newMessageInfo(1L, "hello"))));
+    listener.handleMessage(toDirectBuffer(encodeRoomMessage(newMessageInfo(2L, "ignored"))));
+
+    final var captor = ArgumentCaptor.forClass(MessageInfo.class);
+    verify(subscriptionRegistry).onRoomMessage(captor.capture());
+    assertEquals(1L, captor.getValue().roomId());
+    assertEquals("hello", captor.getValue().message());
+    // Recent messages are dropped only once message is saved
+    verify(recentMessagesCache, never()).invalidate(anyLong());
+  }
+
+  @Test
+  void testHandleHistorySavedEvent() {
+    final var roomIds = new LongHashSet();
+    roomIds.add(1L);
+    roomIds.add(3L);
+
+    listener.handleMessage(toDirectBuffer(encodeHistorySavedEvent(roomIds)));
+
+    verify(recentMessagesCache).invalidate(1L);
+    verify(recentMessagesCache).invalidate(3L);
+    verify(recentMessagesCache, times(2)).invalidate(anyLong());
+  }
+
+  @Test
+  void testHandleLeaveRoomEvent() {
+    listener.handleMessage(
+        toDirectBuffer(
+            encodeLeaveRoomEvent(new LeaveRoomEvent().roomId(1L).accountId(2L).isOwner(true))));
+
+    verify(subscriptionRegistry).leaveRoom(1L, 2L, true);
+  }
+
+  @Test
+  void testHandleMembersEvents() {
+    listener.handleMessage(
+        toDirectBuffer(
+            encodeBlockMembersEvent(
+                new BlockMembersEvent().roomId(1L).memberIds(List.of(10L, 20L, 30L)))));
+    verify(subscriptionRegistry).blockMembers(1L, longArrayList(10L, 20L, 30L));
+
+    listener.handleMessage(
+        toDirectBuffer(
+            encodeRemoveMembersEvent(
+                new RemoveMembersEvent().roomId(2L).memberIds(List.of(40L)))));
+    verify(subscriptionRegistry).removeMembers(2L, longArrayList(40L));
+  }
+
+  private static LongArrayList longArrayList(long... values) {
+    final var list = new LongArrayList();
+    for (var value : values) {
+      list.addLong(value);
+    }
+    return list;
+  }
+
+  private static MessageInfo newMessageInfo(long roomId, String message) {
+    return new MessageInfo()
+        .roomId(roomId)
+        .senderId(100L)
+        .message(message)
+        .timestamp(LocalDateTime.now(Clock.systemUTC()).truncatedTo(ChronoUnit.MILLIS));
+  }
+
+  private static DirectBuffer toDirectBuffer(ByteBuffer byteBuffer) {
+    final var bytes = new SbeSerializer().serialize("messages", byteBuffer);
+    return new SbeDeserializer().deserialize("messages", bytes);
+  }
+}
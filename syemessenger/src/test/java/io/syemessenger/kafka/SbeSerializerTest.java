@@ -0,0 +1,77 @@
+package io.syemessenger.kafka;
+
+import static io.syemessenger.kafka.KafkaConfiguration.MESSAGES_HISTORY_DLT;
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.syemessenger.kafka.dto.LeaveRoomEvent;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.Test;
+
+class SbeSerializerTest {
+
+  private final SbeSerializer serializer = new SbeSerializer();
+
+  @Test
+  void testExactFrameIsNotCopied() {
+    final var byteBuffer =
+        KafkaMessageCodec.encodeLeaveRoomEvent(new LeaveRoomEvent().roomId(1L).accountId(2L));
+
+    assertSame(byteBuffer.array(), serializer.serialize("messages", byteBuffer));
+  }
+
+  @Test
+  void testSliceIsCopied() {
+    final var encoded =
+        KafkaMessageCodec.encodeLeaveRoomEvent(new LeaveRoomEvent().roomId(1L).accountId(2L));
+    final var byteBuffer = ByteBuffer.allocate(encoded.remaining() + 10);
+    byteBuffer.position(5);
+    byteBuffer.put(encoded.duplicate());
+    byteBuffer.flip().position(5);
+
+    final var bytes = serializer.serialize("messages", byteBuffer);
+
+    assertArrayEquals(encoded.array(), bytes);
+    assertEquals(5, byteBuffer.position());
+  }
+
+  @Test
+  void testWrongSchema() {
+    final var byteBuffer = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+    byteBuffer.putShort(4, (short) 42);
+
+    assertThrows(SerializationException.class, () -> serializer.serialize("messages", byteBuffer));
+  }
+
+  @Test
+  void testTooShort() {
+    final var byteBuffer = ByteBuffer.allocate(4);
+
+    assertThrows(SerializationException.class, () -> serializer.serialize("messages", byteBuffer));
+  }
+
+  @Test
+  void testNull() {
+    assertNull(serializer.serialize("messages", null));
+  }
+
+  @Test
+  void testDirectBufferSerializer() {
+    final var encoded =
+        KafkaMessageCodec.encodeLeaveRoomEvent(new LeaveRoomEvent().roomId(1L).accountId(2L));
+    final var bytes = serializer.serialize("messages", encoded);
+    final var directBufferSerializer = new DirectBufferSerializer();
+
+    final var buffer = new SbeDeserializer().deserialize("messages", bytes);
+    assertSame(bytes, directBufferSerializer.serialize(MESSAGES_HISTORY_DLT, buffer));
+
+    final var padded = new byte[bytes.length + 10];
+    System.arraycopy(bytes, 0, padded, 5, bytes.length);
+    assertArrayEquals(
+        bytes,
+        directBufferSerializer.serialize(
+            MESSAGES_HISTORY_DLT, new UnsafeBuffer(padded, 5, bytes.length)));
+  }
+}
@@ -0,0 +1,174 @@
+package io.syemessenger.websocket;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import org.eclipse.jetty.websocket.api.Callback;
+import org.eclipse.jetty.websocket.api.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class OutboundQueueTest {
+
+  private static final int CAPACITY = 4;
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final OutboundMetrics metrics = new OutboundMetrics(meterRegistry);
+  private final List<String> written = new ArrayList<>();
+  private final List<Callback> pendingCallbacks = new ArrayList<>();
+  private Session session;
+  private boolean completeInline;
+
+  @BeforeEach
+  void beforeEach() {
+    session = mock(Session.class);
+    doAnswer(
+            invocation -> {
+              written.add(invocation.getArgument(0));
+              final Callback callback = invocation.getArgument(1);
+              if (completeInline) {
+                callback.succeed();
+              } else {
+                pendingCallbacks.add(callback);
+              }
+              return null;
+            })
+        .when(session)
+        .sendText(anyString(), any(Callback.class));
+  }
+
+  @Test
+  void testWritesInOrder() {
+    completeInline = true;
+    final var queue = new OutboundQueue(session, CAPACITY, OverflowPolicy.DROP_OLDEST, metrics);
+
+    for (int i = 0; i < 100; i++) {
+      queue.offer(OutboundFrame.ofText("m" + i, true));
+    }
+
+    assertEquals(100, written.size());
+    for (int i = 0; i < 100; i++) {
+      assertEquals("m" + i, written.get(i));
+    }
+    assertEquals(0, queue.size());
+  }
+
+  @Test
+  void testOneWriteInFlight() {
+    final var queue = new OutboundQueue(session, CAPACITY, OverflowPolicy.DROP_OLDEST, metrics);
+
+    queue.offer(OutboundFrame.ofText("m0", true));
+    queue.offer(OutboundFrame.ofText("m1", true));
+    queue.offer(OutboundFrame.ofText("m2", true));
+
+    assertEquals(List.of("m0"), written);
+    assertEquals(2, queue.size());
+
+    pendingCallbacks.removeFirst().succeed();
+    assertEquals(List.of("m0", "m1"), written);
+    assertEquals(1, queue.size());
+  }
+
+  @Test
+  void testDropOldest() {
+    final var queue = new OutboundQueue(session, CAPACITY, OverflowPolicy.DROP_OLDEST, metrics);
+
+    queue.offer(OutboundFrame.ofText("m0", true));
+    queue.offer(OutboundFrame.ofText("reply", false));
+    for (int i = 1; i <= 5; i++) {
+      queue.offer(OutboundFrame.ofText("m" + i, true));
+    }
+
+    assertEquals(CAPACITY, queue.size());
+    drain();
+    assertEquals(List.of("m0", "reply", "m3", "m4", "m5"), written);
+    assertEquals(2, meterRegistry.counter("syemessenger.session.outbound.dropped").count());
+  }
+
+  @Test
+  void testCoalesce() {
+    final var queue = new OutboundQueue(session, CAPACITY, OverflowPolicy.COALESCE, metrics);
+
+    queue.offer(OutboundFrame.ofText("m0", true));
+    queue.offer(OutboundFrame.ofText("m1", true));
+    queue.offer(OutboundFrame.ofText("reply", false));
+    for (int i = 2; i <= 5; i++) {
+      queue.offer(OutboundFrame.ofText("m" + i, true));
+    }
+
+    drain();
+    assertEquals(List.of("m0", "reply", "m4", "m5"), written);
+  }
+
+  @Test
+  void testRepliesAreNeverDropped() {
+    final var queue = new OutboundQueue(session, CAPACITY, OverflowPolicy.DROP_OLDEST, metrics);
+
+    queue.offer(OutboundFrame.ofText("m0", true));
+    for (int i = 0; i < CAPACITY; i++) {
+      queue.offer(OutboundFrame.ofText("reply" + i, false));
+    }
+    queue.offer(OutboundFrame.ofText("m1", true));
+    verify(session, never()).close(eq(OutboundQueue.SLOW_CONSUMER_CLOSE_CODE), any(), any());
+
+    queue.offer(OutboundFrame.ofText("reply", false));
+    verify(session)
+        .close(eq(OutboundQueue.SLOW_CONSUMER_CLOSE_CODE), anyString(), any(Callback.class));
+  }
+
+  @Test
+  void testDisconnect() {
+    final var queue = new OutboundQueue(session, CAPACITY, OverflowPolicy.DISCONNECT, metrics);
+
+    for (int i = 0; i <= CAPACITY + 1; i++) {
+      queue.offer(OutboundFrame.ofText("m" + i, true));
+    }
+
+    verify(session)
+        .close(eq(OutboundQueue.SLOW_CONSUMER_CLOSE_CODE), anyString(), any(Callback.class));
+    assertEquals(0, queue.size());
+    assertEquals(
+        1, meterRegistry.counter("syemessenger.session.outbound.disconnects").count());
+
+    queue.offer(OutboundFrame.ofText("after", true));
+    assertEquals(List.of("m0"), written);
+  }
+
+  @Test
+  void testSessionGauges() {
+    final var queue = new OutboundQueue(session, CAPACITY, OverflowPolicy.DROP_OLDEST, metrics);
+    final var anotherQueue =
+        new OutboundQueue(session, CAPACITY, OverflowPolicy.DROP_OLDEST, metrics);
+    metrics.registerSession(queue);
+    metrics.registerSession(anotherQueue);
+
+    queue.offer(OutboundFrame.ofText("m0", true));
+    queue.offer(OutboundFrame.ofText("m1", true));
+
+    assertEquals(2, meterRegistry.get("syemessenger.session.count").gauge().value());
+    assertEquals(1, meterRegistry.get("syemessenger.session.queue.depth.total").gauge().value());
+    assertEquals(1, meterRegistry.get("syemessenger.session.queue.depth.max").gauge().value());
+    // Gauges are not tagged by session
+    assertEquals(1, meterRegistry.find("syemessenger.session.queue.depth.total").gauges().size());
+
+    metrics.unregisterSession(queue);
+    assertEquals(1, meterRegistry.get("syemessenger.session.count").gauge().value());
+    assertEquals(0, meterRegistry.get("syemessenger.session.queue.depth.total").gauge().value());
+  }
+
+  private void drain() {
+    completeInline = true;
+    while (!pendingCallbacks.isEmpty()) {
+      pendingCallbacks.removeFirst().succeed();
+    }
+  }
+}